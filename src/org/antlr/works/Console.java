@@ -2,10 +2,15 @@ package org.antlr.works;
 
 import org.antlr.Tool;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisCache;
+import org.antlr.works.grammar.check.GrammarBatchChecker;
+import org.antlr.works.grammar.check.GrammarCheckReport;
+import org.antlr.works.grammar.check.GrammarCheckResult;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.engine.GrammarEngineDelegate;
 import org.antlr.works.grammar.engine.GrammarEngineImpl;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.ConsoleHelper;
 import org.antlr.works.visualization.SDGenerator;
 import org.antlr.works.visualization.serializable.SEncoder;
@@ -14,6 +19,7 @@ import org.antlr.xjlib.foundation.XJUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 /*
 
@@ -62,7 +68,9 @@ public class Console {
         System.setProperty("java.awt.headless", "true");
         
         Console c = new Console();
-        c.process(args);
+        if(!c.process(args)) {
+            System.exit(1);
+        }
     }
 
     private static void printUsage() {
@@ -73,6 +81,11 @@ public class Console {
         sb.append(" -serialize outputFile : ").append("serialize all the syntax diagram of the specified files");
         sb.append(" -o outputDir : ").append("specify the output directory\n");
         sb.append(" -verbose : ").append("prints the operations\n");
+        sb.append(" -check fileOrDir : ").append("check the grammar file or all the grammar files (*.g) of the directory\n");
+        sb.append(" -report format : ").append("specify the format of the check report: 'json' (default) or 'junit'\n");
+        sb.append(" -reportFile file : ").append("specify the file of the check report (default is the standard output)\n");
+        sb.append(" -threads count : ").append("specify the number of grammars checked in parallel (default is the number of processors)\n");
+        sb.append(" -nocache : ").append("analyze all the grammars even if they did not change since the last check\n");
         System.out.println(sb.toString());
     }
 
@@ -80,7 +93,11 @@ public class Console {
         ConsoleHelper.setCurrent(new ConsoleConsole());
     }
 
-    private void process(String args[]) throws Exception {
+    private boolean process(String args[]) throws Exception {
+        if(hasArgument(args, "-check")) {
+            return checkGrammars(args);
+        }
+
         readArguments(args);
 
         String sdFormat = getArgumentValue(args, "-sd");
@@ -92,6 +109,61 @@ public class Console {
             if(verbose) System.out.println("Serializing syntax diagram ");
             serializeSyntaxDiagrams();
         }
+        return true;
+    }
+
+    private boolean checkGrammars(String args[]) throws Exception {
+        verbose = hasArgument(args, "-verbose");
+
+        String path = getArgumentValue(args, "-check");
+        if(path == null || path.equals("-check")) {
+            System.err.println("Grammar file or directory not specified (-check)");
+            return false;
+        }
+
+        String format = getArgumentValue(args, "-report");
+        if(format == null) {
+            format = GrammarCheckReport.FORMAT_JSON;
+        } else if(!GrammarCheckReport.isKnownFormat(format)) {
+            System.err.println("Unknown report format: "+format);
+            return false;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        String t = getArgumentValue(args, "-threads");
+        if(t != null) {
+            try {
+                threads = Integer.parseInt(t);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid number of threads: "+t);
+                return false;
+            }
+        }
+
+        ANTLRAnalysisCache cache = hasArgument(args, "-nocache") ? null : ANTLRAnalysisCache.shared();
+
+        List<File> grammars = GrammarBatchChecker.findGrammars(new File(path).getAbsoluteFile());
+        if(verbose) System.out.println("Checking "+grammars.size()+" grammars with "+threads+" threads");
+
+        long start = System.currentTimeMillis();
+        GrammarBatchChecker checker = new GrammarBatchChecker(threads, cache, AWPrefs.getANTLR3Options());
+        List<GrammarCheckResult> results = checker.check(grammars);
+        GrammarCheckReport report = new GrammarCheckReport(results, System.currentTimeMillis()-start);
+
+        if(verbose) {
+            for(GrammarCheckResult r : results) {
+                System.out.println((r.isSuccess()?"OK    ":"ERROR ")+r.file+" ("+r.time+" ms"+(r.cached?", cached":"")+")");
+            }
+        }
+
+        String reportFile = getArgumentValue(args, "-reportFile");
+        if(reportFile == null) {
+            System.out.print(report.format(format));
+        } else {
+            XJUtils.writeStringToFile(report.format(format), reportFile);
+        }
+
+        return report.isSuccess();
     }
 
     private void readArguments(String args[]) {
@@ -32,7 +32,6 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works;
 
 import org.antlr.Tool;
-import org.antlr.tool.ErrorManager;
 import org.antlr.works.components.GrammarDocument;
 import org.antlr.works.components.GrammarDocumentFactory;
 import org.antlr.works.components.GrammarWindow;
@@ -41,6 +40,7 @@ import org.antlr.works.dialog.AWPrefsDialog;
 import org.antlr.works.dialog.DialogAbout;
 import org.antlr.works.dialog.DialogPersonalInfo;
 import org.antlr.works.dialog.NewWizardDialog;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.stats.Statistics;
 import org.antlr.works.stats.StatisticsAW;
@@ -215,14 +215,14 @@ public class IDE extends XJApplicationDelegate implements XJMenuItemDelegate {
     public void checkEnvironment() {
         // todo give a hint in the message - like "check that no previous version of ANTLR is in your classpath..."
         // todo message for first-time user to go to tutorial
-        ErrorListener el = ErrorListener.getThreadInstance();
+        ErrorListener el = new ErrorListener();
+        ANTLRErrorContext context = null;
         CheckStream bos = new CheckStream(System.err);
         PrintStream ps = new PrintStream(bos);
         PrintStream os = System.err;
         System.setErr(ps);
         try {
-            ErrorManager.setTool(new Tool());
-            ErrorManager.setErrorListener(el);
+            context = ANTLRErrorContext.enter(el, new Tool());
         } catch (Throwable e) {
             XJAlert.display(null, "Fatal Error", "ANTLRWorks will quit now because ANTLR reported an error:\n"+bos.getMessage());
             System.exit(0);
@@ -234,7 +234,9 @@ public class IDE extends XJApplicationDelegate implements XJMenuItemDelegate {
         el.clear();
         System.setErr(os);
         ps.close();
-        ErrorManager.removeErrorListener();
+        if(context != null) {
+            context.exit();
+        }
     }
 
     private class CheckStream extends ByteArrayOutputStream {
@@ -35,7 +35,6 @@ import org.antlr.works.ate.folding.ATEFoldingEntity;
 import org.antlr.works.ate.gutter.ATEGutterColumnManager;
 import org.antlr.works.ate.gutter.ATEGutterItem;
 import org.antlr.works.ate.gutter.ATEGutterItemOverlay;
-import org.antlr.works.ate.syntax.misc.ATELine;
 import org.antlr.works.utils.IconManager;
 
 import javax.swing.*;
@@ -146,7 +145,12 @@ public class ATEGutter extends JComponent {
         // their position based on the changes done in the window.
         // The position might not be 100% accurate but at least it avoids
         // some ugly ui shift between a keystroke and the actual analysis
-        // of the items
+        // of the items.
+        // Note: when the engine re-lexes the text incrementally, the tokens located
+        // after the change are already shifted by the lexer and must not be moved here.
+        if(textEditor.engine != null && textEditor.engine.isIncremental()) {
+            return;
+        }
         if(textEditor.gutterColumnsManager != null) {
             ATEGutterColumnManager manager = textEditor.gutterColumnsManager;
             for(String column : manager.getColumns()) {
@@ -217,10 +221,7 @@ public class ATEGutter extends JComponent {
 
         offsetForLineNumber = 0;
         if(lineNumberEnabled) {
-            List<ATELine> lines = textEditor.getLines();
-            if(lines != null) {
-                offsetForLineNumber = lineNumberMetrics.stringWidth(String.valueOf(lines.size()));
-            }
+            offsetForLineNumber = lineNumberMetrics.stringWidth(String.valueOf(textEditor.getLineIndex().getLineCount()));
         }
 
         resize = resize || oldOffset != offsetForLineNumber;
@@ -310,7 +311,7 @@ public class ATEGutter extends JComponent {
         g.setFont(LINE_NUMBER_FONT);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_OFF);
 
-        int lineCount = textEditor.getLines().size();
+        int lineCount = textEditor.getLineIndex().getLineCount();
         int lineHeight = textEditor.textPane.getFontMetrics(textEditor.textPane.getFont()).getHeight();
         int number = Math.max(0, (Math.round(clip.y / lineHeight) - 1));
         int y = number*lineHeight;
@@ -9,6 +9,7 @@ import org.antlr.works.ate.swing.ATEKeyBindings;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngine;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.xjlib.appkit.frame.XJFrame;
 import org.antlr.xjlib.appkit.undo.XJUndo;
@@ -287,9 +288,10 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
     public void changeOccurred() {
         // Method called only when a change occurred in the document
         // which needs an immediate effect (in this case, the gutter
-        // has to be repainted)
+        // has to be repainted). The text is parsed in the background
+        // so the typing never waits for the parser.
         gutter.markDirty();
-        parse();
+        parseLater();
     }
 
     public int getSelectionStart() {
@@ -333,18 +335,12 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
             return getCaretPosition() - linePosition.x + 1;
     }
 
+    public ATELineIndex getLineIndex() {
+        return engine==null?ATELineIndex.EMPTY:engine.getLineIndex();
+    }
+
     public int getLineIndexAtTextPosition(int pos) {
-        List<ATELine> lines = getLines();
-        if(lines == null)
-            return -1;
-
-        for(int i=0; i<lines.size(); i++) {
-            ATELine line = lines.get(i);
-            if(line.position > pos) {
-                return i-1;
-            }
-        }
-        return lines.size()-1;
+        return getLineIndex().getLineIndexAtPosition(pos);
     }
 
     public Point getLineTextPositionsAtTextPosition(int pos) {
@@ -352,17 +348,15 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
     }
 
     public Point getLineTextPositionsAtLineIndex(int lineIndex) {
-        List<ATELine> lines = getLines();
-        if(lineIndex == -1 || lines == null)
+        ATELineIndex index = getLineIndex();
+        if(lineIndex == -1 || lineIndex >= index.getLineCount())
             return null;
 
-        ATELine startLine = lines.get(lineIndex);
-        int start = startLine.position;
-        if(lineIndex+1 >= lines.size()) {
+        int start = index.getLineStart(lineIndex);
+        if(lineIndex+1 >= index.getLineCount()) {
             return new Point(start, getTextPane().getDocument().getLength()-1);
         } else {
-            ATELine endLine = lines.get(lineIndex+1);
-            int end = endLine.position;
+            int end = index.getLineStart(lineIndex+1);
             return new Point(start, end-1);
         }
     }
@@ -513,6 +507,11 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
             engine.process();
     }
 
+    public void parseLater() {
+        if(engine != null)
+            engine.processLater(getText());
+    }
+
     public String getText() {
         return getTextPane().getText();
     }
@@ -523,6 +522,11 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
     }
 
     public void ateEngineAfterParsing() {
+        // Display the new tokens
+        textPane.repaint();
+        if(gutter != null)
+            gutter.markDirty();
+
         if(delegate != null)
             delegate.ateEngineAfterParsing();
     }
@@ -604,6 +608,11 @@ public class ATEPanel extends JPanel implements XJSmoothScrolling.ScrollingDeleg
         }
 
         public void changeUpdate(int offset, int length, boolean insert) {
+            // The engine needs to know about every change, even the ones not
+            // recorded, in order to re-lex only the modified region of the text
+            if(engine != null)
+                engine.changeUpdate(offset, length, insert);
+
             if(isEnable()) {
                 if(delegate != null)
                     delegate.ateChangeUpdate(offset, length, insert);
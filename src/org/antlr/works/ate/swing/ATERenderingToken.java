@@ -1,6 +1,7 @@
 package org.antlr.works.ate.swing;
 
-import javax.swing.text.AttributeSet;
+import org.antlr.works.ate.syntax.generic.ATESyntaxStyle;
+
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Segment;
@@ -50,7 +51,7 @@ public abstract class ATERenderingToken implements Comparable {
     }
 
     public abstract void drawToken(ATERenderingView view, ATERenderingToken t, Graphics g, FontMetrics metrics,
-                          int x, int y, char c, Document doc, AttributeSet attribute, Segment text) throws BadLocationException;
+                          int x, int y, char c, Document doc, ATESyntaxStyle style, Segment text) throws BadLocationException;
     
     public int compareTo(Object o) {
         if(!(o instanceof ATERenderingToken)) return 0;
@@ -4,11 +4,17 @@ import org.antlr.works.ate.ATEPanel;
 import org.antlr.works.ate.ATETextPane;
 import org.antlr.works.ate.ATEUtilities;
 import org.antlr.works.ate.syntax.generic.ATESyntaxEngine;
+import org.antlr.works.ate.syntax.generic.ATESyntaxSnapshot;
+import org.antlr.works.ate.syntax.generic.ATESyntaxStyle;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 
+import javax.swing.event.DocumentEvent;
 import javax.swing.text.*;
 import java.awt.*;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /*
 
@@ -55,11 +61,15 @@ public class ATERenderingView extends PlainView {
     private ATERenderingViewDelegate delegate;
     private ATEPanel textEditor;
     private ATETextPane textPane;
-    private List<ATEToken> tokens;
+    private ATESyntaxSnapshot snapshot;
 
     private DisplayOperation displayOp = new DisplayOperation();
-    private final ModelToViewOperation modelToViewOp = new ModelToViewOperation();
-    private final ViewToModel viewToModelOp = new ViewToModel();
+    private final LayoutOperation layoutOp = new LayoutOperation();
+
+    /** Layout of the lines used to map positions to locations (and vice versa). A line is
+     * removed from the cache when its text changes and is validated against the tokens of
+     * the snapshot when it is used. */
+    private final Map<Element,LineLayout> layouts = new WeakHashMap<Element,LineLayout>();
 
     private Graphics currentGraphics;
     private Color savedColor;
@@ -139,9 +149,12 @@ public class ATERenderingView extends PlainView {
         // Fetch the rectangle of the line
         final Rectangle posRect = lineToRect(a, lineIndex);
 
-        // Compute the location of the specified position using our renderText() method:
-        // it will take care of all characters attributes.
-        posRect.x += renderText(modelToViewOp, currentGraphics, 0, 0, p0, pos);
+        // Compute the location of the specified position using the layout of the line
+        // which takes care of all characters attributes.
+        final LineLayout layout = getLineLayout(line);
+        if(layout != null) {
+            posRect.x += layout.getX(pos - p0);
+        }
 
         // Default width
         posRect.width = 1;
@@ -199,18 +212,118 @@ public class ATERenderingView extends PlainView {
             return line.getEndOffset() - 1;
         }
 
-        // Fine. Now let's compute the exact location by using our custom rendering method
-        // that will take care of each token attribute.
+        // Fine. Now let's compute the exact location by using the layout of the line
+        // that takes care of each token attribute.
+        final int p0 = line.getStartOffset();
+        final LineLayout layout = getLineLayout(line);
+        if(layout == null) {
+            return p0;
+        } else {
+            return p0 + layout.getOffset((int)fx - bounds.x);
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent changes, Shape a, ViewFactory f) {
+        invalidateLineLayouts(changes);
+        super.insertUpdate(changes, a, f);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent changes, Shape a, ViewFactory f) {
+        invalidateLineLayouts(changes);
+        super.removeUpdate(changes, a, f);
+    }
+
+    /** Removes the layout of the lines touched by a change. The lines located after
+     * the change keep their layout because it is relative to the beginning of the line.
+     */
+    private void invalidateLineLayouts(DocumentEvent changes) {
+        final Element root = getElement();
+        final DocumentEvent.ElementChange ec = changes.getChange(root);
+        if(ec != null) {
+            for(Element e : ec.getChildrenRemoved()) {
+                layouts.remove(e);
+            }
+        }
+
+        final int first = root.getElementIndex(changes.getOffset());
+        final int last = root.getElementIndex(changes.getOffset() + changes.getLength());
+        for(int i = first; i <= last; i++) {
+            layouts.remove(root.getElement(i));
+        }
+    }
+
+    /** Returns the layout of the line, computing it if it is not in the cache or if it does not
+     * match the tokens anymore.
+     *
+     * @param line The line element
+     * @return The layout or null if it cannot be computed
+     */
+    private LineLayout getLineLayout(Element line) {
+        final ATESyntaxEngine engine = textEditor.getParserEngine();
+        final ATESyntaxSnapshot s = engine.getSnapshot();
+        if(currentGraphics == null || s == null)
+            return null;
+
         final int p0 = line.getStartOffset();
         final int p1 = line.getEndOffset() - 1;
+
+        LineLayout layout = layouts.get(line);
+        if(layout != null && layout.font == DEFAULT_FONT && layout.tabSize == getTabSize()
+                && layout.length == p1 - p0)
+        {
+            if(layout.revision == s.revision) {
+                return layout;
+            }
+            // The tokens have changed: the layout is still valid if the tokens of
+            // the line have the same position and the same font style
+            snapshot = s;
+            if(layout.signature == getLineSignature(engine, p0, p1)) {
+                layout.revision = s.revision;
+                return layout;
+            }
+        }
+
+        snapshot = s;
+        layout = new LineLayout(p1 - p0);
+        layout.font = DEFAULT_FONT;
+        layout.tabSize = getTabSize();
+        layout.revision = s.revision;
+        layout.signature = getLineSignature(engine, p0, p1);
         try {
-            viewToModelOp.setParameters((int)fx, p0);
-            renderText(viewToModelOp, currentGraphics, bounds.x, (int)fy, p0, p1);
-            return viewToModelOp.modelPos;
+            layoutOp.setLayout(layout, p0);
+            renderText(layoutOp, currentGraphics, 0, 0, p0, p1);
         } catch (BadLocationException e) {
-            // What should we do? Currently nothing because it should not happen.
-            return -1;
+            // Should not happen: the line is always in the document
+            return null;
+        } finally {
+            layoutOp.setLayout(null, 0);
         }
+        layout.complete();
+        layouts.put(line, layout);
+        return layout;
+    }
+
+    /** Returns a hash of the position and font style of the tokens of the line.
+     * The snapshot must be already set.
+     */
+    private int getLineSignature(ATESyntaxEngine engine, int p0, int p1) {
+        final List<ATEToken> tokens = snapshot.tokens;
+        final int count = snapshot.getTokenCount();
+        int signature = 1;
+        for(int i = findStartingTokenIndex(p0, 0, count, 0); i < count; i++) {
+            final int tstart = snapshot.getTokenStart(i);
+            final int tend = snapshot.getTokenEnd(i);
+            if(tstart > p1)
+                break;
+            if(tend < p0)
+                continue;
+            signature = 31*signature + Math.max(tstart, p0) - p0;
+            signature = 31*signature + Math.min(tend, p1) - p0;
+            signature = 31*signature + engine.getStyleForToken(tokens.get(i)).getFontStyle();
+        }
+        return signature;
     }
 
     @Override
@@ -274,31 +387,37 @@ public class ATERenderingView extends PlainView {
         // Note: the tokens are not contiguous (e.g. white spaces are ignored)
         final Document doc = getDocument();
         final ATESyntaxEngine engine = textEditor.getParserEngine();
-        tokens = engine.getTokens();
+        snapshot = engine.getSnapshot();
+        if(snapshot == null) {
+            return super.drawUnselectedText(g, x, y, p0, p1);
+        }
+
+        final List<ATEToken> tokens = snapshot.tokens;
+        final int count = snapshot.getTokenCount();
         int p = p0;
-        final int start = findStartingTokenIndex(p0, 0, tokens.size(), 0);
-        for (int i = start; i < tokens.size(); i++) {
-            ATEToken t = tokens.get(i);
-            AttributeSet attribute = engine.getAttributeForToken(t);
-            if(t.start >= p0 && t.start <= p1) {
+        final int start = findStartingTokenIndex(p0, 0, count, 0);
+        for (int i = start; i < count; i++) {
+            final int tstart = snapshot.getTokenStart(i);
+            final int tend = snapshot.getTokenEnd(i);
+            if(tstart >= p0 && tstart <= p1) {
                 // Fill any non-contiguous token with default color
-                if(t.start > p) {
-                    x = action.renderTextPortion(g, x, y, p, t.start, p1, doc, null);
+                if(tstart > p) {
+                    x = action.renderTextPortion(g, x, y, p, tstart, p1, doc, ATESyntaxStyle.DEFAULT);
                 }
 
-                x = action.renderTextPortion(g, x, y, t.start, t.end, p1, doc, attribute);
-                p = t.end;
-            } else if(t.end >= p0 && t.start < p0) {
-                x = action.renderTextPortion(g, x, y, p0, t.end, p1, doc, attribute);
-                p = t.end;
-            } else if(t.start > p1) {
+                x = action.renderTextPortion(g, x, y, tstart, tend, p1, doc, engine.getStyleForToken(tokens.get(i)));
+                p = tend;
+            } else if(tend >= p0 && tstart < p0) {
+                x = action.renderTextPortion(g, x, y, p0, tend, p1, doc, engine.getStyleForToken(tokens.get(i)));
+                p = tend;
+            } else if(tstart > p1) {
                 break;
             }
         }
 
         // Fill any remaining range with default color
         if(p < p1) {
-            x = action.renderTextPortion(g, x, y, p, p1, p1, doc, null);
+            x = action.renderTextPortion(g, x, y, p, p1, p1, doc, ATESyntaxStyle.DEFAULT);
         }
 
         return x;
@@ -317,50 +436,24 @@ public class ATERenderingView extends PlainView {
             return Math.min(candidate, low);
 
         final int middle = low + (high-low) / 2;
-        final ATEToken t = tokens.get(middle);
-        if(p0 >= t.startLineIndex && p0 <= t.endLineIndex) {
+        final int startLineIndex = snapshot.getTokenStartLineIndex(middle);
+        if(p0 >= startLineIndex && p0 <= snapshot.getTokenEndLineIndex(middle)) {
             return findStartingTokenIndex(p0, low, middle, middle);
         } else {
-            if(t.startLineIndex < p0)
+            if(startLineIndex < p0)
                 return findStartingTokenIndex(p0, middle, high, candidate);
             else
                 return findStartingTokenIndex(p0, low, middle, candidate);
         }
     }
 
-    /** This method applies an AttributeSet to a Graphics context
+    /** This method applies a style to a Graphics context
      *
      * @param g The graphic context
-     * @param attribute The attribute to apply
+     * @param style The style to apply
      */
-    protected void applyAttribute(Graphics g, AttributeSet attribute) {
-        if(attribute == null) {
-            g.setColor(Color.black);
-            g.setFont(DEFAULT_FONT);
-            return;
-        }
-
-        g.setFont(getFontForAttribute(attribute));
-
-        final Color c = StyleConstants.getForeground(attribute);
-        if(c == null)
-            g.setColor(Color.black);
-        else
-            g.setColor(c);
-    }
-
-    /** Return the font given the specified attributes
-     *
-     * @param attribute The font attributes
-     * @return The font given the specified attributes
-     */
-    protected Font getFontForAttribute(AttributeSet attribute) {
-        Font f = DEFAULT_FONT;
-        if(StyleConstants.isBold(attribute))
-            f = f.deriveFont(Font.BOLD);
-        if(StyleConstants.isItalic(attribute))
-            f = f.deriveFont(Font.ITALIC);
-        return f;
+    protected void applyStyle(Graphics g, ATESyntaxStyle style) {
+        style.apply(g, DEFAULT_FONT);
     }
 
     protected void save(Graphics g) {
@@ -374,7 +467,7 @@ public class ATERenderingView extends PlainView {
     public interface TextOperation {
         /**
          * Renders a portion of text at the specified location (x,y) and characters
-         * range (start, end) using the specified attribute (attribute).
+         * range (start, end) using the specified style (style).
          *
          * @param g The graphic context
          * @param x The x-coordinate where to start drawing the text
@@ -383,11 +476,11 @@ public class ATERenderingView extends PlainView {
          * @param end The ending index of the character
          * @param max The maximum length of the text
          * @param doc The document to display
-         * @param attribute The attributes to use
+         * @param style The style to use
          * @return The next x-coordinate
          * @throws BadLocationException If the location is incorrect, this exception is thrown
          */
-        int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, AttributeSet attribute) throws BadLocationException;
+        int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, ATESyntaxStyle style) throws BadLocationException;
     }
 
     /**
@@ -395,7 +488,7 @@ public class ATERenderingView extends PlainView {
      */
     public class DisplayOperation implements TextOperation {
 
-        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, AttributeSet attribute)
+        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, ATESyntaxStyle style)
                 throws BadLocationException
         {
             if(g == null)
@@ -406,7 +499,7 @@ public class ATERenderingView extends PlainView {
                 length = max - start;
 
             save(g);
-            applyAttribute(g, attribute);
+            applyStyle(g, style);
             Segment text = getLineBuffer();
             doc.getText(start, length, text);
 
@@ -424,10 +517,10 @@ public class ATERenderingView extends PlainView {
      */
     public class DisplayDelegateOperation extends DisplayOperation {
 
-        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, AttributeSet attribute) throws BadLocationException {
+        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, ATESyntaxStyle style) throws BadLocationException {
             ATERenderingToken[] tokens = delegate.getTokens();
             if(tokens == null || tokens.length == 0) {
-                return super.renderTextPortion(g, x, y, start, end, max, doc, attribute);
+                return super.renderTextPortion(g, x, y, start, end, max, doc, style);
             }
 
             // adjust length
@@ -441,28 +534,39 @@ public class ATERenderingView extends PlainView {
                 if(t.index >= start && t.index < start+length) {
                     // draw up to token
                     if(t.index > cursor) {
-                        x = super.renderTextPortion(g, x, y, cursor, t.index, max, doc, attribute);
+                        x = super.renderTextPortion(g, x, y, cursor, t.index, max, doc, style);
                         cursor = t.index;
                     }
                     doc.getText(t.index, 1, text);
                     final char c = text.first();
                     save(g);
                     t.drawToken(ATERenderingView.this, t, g, metrics, 
-                            x, y, c, doc, attribute, text);
+                            x, y, c, doc, style, text);
                     restore(g);
                 }
             }
             // draw remaining
             if(end > cursor) {
-                x = super.renderTextPortion(g, x, y, cursor, end, max, doc, attribute);
+                x = super.renderTextPortion(g, x, y, cursor, end, max, doc, style);
             }
             return x;
         }
     }
 
-    public class ModelToViewOperation implements TextOperation {
+    /**
+     * Class that computes the x-coordinate of each character of a line
+     */
+    public class LayoutOperation implements TextOperation {
+
+        private LineLayout layout;
+        private int lineStart;
+
+        public void setLayout(LineLayout layout, int lineStart) {
+            this.layout = layout;
+            this.lineStart = lineStart;
+        }
 
-        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, AttributeSet attribute)
+        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, ATESyntaxStyle style)
                 throws BadLocationException
         {
             if(g == null)
@@ -471,48 +575,89 @@ public class ATERenderingView extends PlainView {
             int length = end - start;
             if(start + length > max)
                 length = max - start;
+            if(length <= 0)
+                return x;
 
-            save(g);
-            applyAttribute(g, attribute);
             Segment text = getLineBuffer();
             doc.getText(start, length, text);
 
-            x += Utilities.getTabbedTextWidth(text, g.getFontMetrics(), x, ATERenderingView.this, start);
-            restore(g);
-            return x;
+            // Accumulate the width of each character and expand the tabs the same way
+            // Utilities.getTabbedTextWidth() does
+            final FontMetrics fm = style.getFontMetrics(g, DEFAULT_FONT);
+            final char[] chars = text.array;
+            final int offset = text.offset;
+            final int count = text.count;
+            int nextX = x;
+            for(int k = 0; k < count; k++) {
+                final char c = chars[offset + k];
+                if(c == '\t') {
+                    nextX = (int) nextTabStop(nextX, start + k);
+                } else if(c != '\n') {
+                    nextX += fm.charWidth(c);
+                }
+                layout.setX(start + k + 1 - lineStart, nextX);
+            }
+
+            // The end of the portion is measured as a whole, as it is drawn, so the
+            // next portion starts exactly where it is displayed
+            final int endX = x + Utilities.getTabbedTextWidth(text, fm, x, ATERenderingView.this, start);
+            layout.setX(start + count - lineStart, endX);
+            return endX;
         }
     }
 
-    public class ViewToModel implements TextOperation {
+    /**
+     * The x-coordinate of each position of a line relative to the beginning of the line
+     */
+    private static class LineLayout {
 
-        private int modelPos;
-        private int viewX;
+        private final int length;
+        private final int[] xs;
 
-        public void setParameters(int viewX, int modelPos) {
-            this.viewX = viewX;
-            this.modelPos = modelPos;
-        }
+        private Font font;
+        private int tabSize;
+        private int revision;
+        private int signature;
 
-        public int renderTextPortion(Graphics g, int x, int y, int start, int end, int max, Document doc, AttributeSet attribute)
-                throws BadLocationException
-        {
-            if(g == null)
-                return 0;
+        public LineLayout(int length) {
+            this.length = length;
+            this.xs = new int[length+1];
+            Arrays.fill(xs, 1, xs.length, -1);
+        }
 
-            int length = end - start;
-            if(start + length > max)
-                length = max - start;
+        public void setX(int index, int x) {
+            if(index > 0 && index < xs.length)
+                xs[index] = x;
+        }
 
-            save(g);
-            applyAttribute(g, attribute);
-            Segment text = getLineBuffer();
-            doc.getText(start, length, text);
+        /** Fills the positions not covered by the rendering */
+        public void complete() {
+            for(int i = 1; i < xs.length; i++) {
+                if(xs[i] < xs[i-1])
+                    xs[i] = xs[i-1];
+            }
+        }
 
-            modelPos += Utilities.getTabbedTextOffset(text, g.getFontMetrics(), x, viewX, ATERenderingView.this, start);
-            x +=Utilities.getTabbedTextWidth(text, g.getFontMetrics(), x, ATERenderingView.this, start);
+        public int getX(int index) {
+            return xs[Math.max(0, Math.min(index, length))];
+        }
 
-            restore(g);
-            return x;
+        /** Returns the position the closest to the x-coordinate
+         */
+        public int getOffset(int x) {
+            int low = 0;
+            int high = length;
+            while(low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if(xs[middle] <= x)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+            if(low < length && x - xs[low] >= xs[low+1] - x)
+                return low + 1;
+            else
+                return low;
         }
     }
 
@@ -31,14 +31,20 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.works.ate.syntax.generic;
 
+import org.antlr.works.ate.syntax.misc.ATEEdit;
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
+import org.antlr.works.ate.syntax.misc.ATEScheduler;
+import org.antlr.works.ate.syntax.misc.ATESymbolTable;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 
+import javax.swing.*;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -54,6 +60,35 @@ public abstract class ATESyntaxEngine {
     protected SimpleAttributeSet stringAttr;
     protected SimpleAttributeSet keywordAttr;
 
+    /** Changes that occurred in the text since the last time it has been processed */
+    protected ATEEdit edit;
+    protected boolean incremental = true;
+
+    /** Symbols of the keywords in the symbol table of the lexer */
+    private BitSet keywordSymbols;
+
+    /** Last tokens and lines produced by the engine. The snapshot is replaced
+     * as a whole so the readers never see a partially processed text.
+     */
+    private volatile ATESyntaxSnapshot snapshot;
+
+    /** Revision of the text: incremented each time a text is submitted for processing */
+    private int revision;
+    /** Revision of the text last processed by the lexer and the parser */
+    private int processedRevision;
+    /** Text submitted to the background processing (null if none or if the text
+     * has changed after being submitted) */
+    private String pendingText;
+
+    /** Lock held while the lexer and parser are running */
+    private final Object processLock = new Object();
+
+    /** Styles resolved from the attributes returned by getAttributeForToken(). The attributes
+     * are few and compared by identity so a linear scan is faster than a hash lookup. */
+    private AttributeSet[] styleAttributes = new AttributeSet[8];
+    private ATESyntaxStyle[] styles = new ATESyntaxStyle[8];
+    private int stylesCount;
+
     public ATESyntaxEngine() {
         lexer = createLexer();
         parser = createParser();
@@ -63,7 +98,15 @@ public abstract class ATESyntaxEngine {
     }
 
     public void close() {
-        parser.close();
+        ATEScheduler.shared().cancel(this);
+        synchronized(processLock) {
+            close_();
+        }
+    }
+
+    private void close_() {
+        if(parser != null)
+            parser.close();
         parser = null;
         lexer.close();
         lexer = null;
@@ -74,16 +117,71 @@ public abstract class ATESyntaxEngine {
         this.delegate = delegate;
     }
 
-    public synchronized List<ATEToken> getTokens() {
-        return tokens;
+    /** Returns the last published snapshot of the tokens and lines or null if the
+     * text has not been processed yet. The snapshot can be older than the text
+     * if a processing is still running in the background.
+     */
+    public ATESyntaxSnapshot getSnapshot() {
+        return snapshot;
     }
 
-    public synchronized List<ATELine> getLines() {
-        return lexer.getLines();
+    /** Returns the lock held while the lexer and the parser are running. The results of
+     * the parser must be read with this lock held because the next processing modifies them.
+     */
+    public Object getProcessLock() {
+        return processLock;
+    }
+
+    public List<ATEToken> getTokens() {
+        ATESyntaxSnapshot s = snapshot;
+        return s == null?null:s.tokens;
+    }
+
+    public List<ATELine> getLines() {
+        ATESyntaxSnapshot s = snapshot;
+        return s == null?Collections.<ATELine>emptyList():s.lines;
     }
 
-    public synchronized int getMaxLines() {
-        return lexer.getLineNumber();
+    public ATELineIndex getLineIndex() {
+        ATESyntaxSnapshot s = snapshot;
+        return s == null?ATELineIndex.EMPTY:s.lineIndex;
+    }
+
+    public int getMaxLines() {
+        ATESyntaxSnapshot s = snapshot;
+        return s == null?0:s.maxLines;
+    }
+
+    public void setIncremental(boolean flag) {
+        this.incremental = flag;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /** Records a change in the text so the next processing only re-lexes the affected region.
+     *
+     * @param offset The offset of the change
+     * @param length The length of the change (negative if the text has been removed)
+     * @param insert True if the text has been inserted
+     */
+    public synchronized void changeUpdate(int offset, int length, boolean insert) {
+        int removed = insert?0:-length;
+        int inserted = insert?length:0;
+        if(edit == null)
+            edit = new ATEEdit(offset, removed, inserted);
+        else
+            edit.merge(offset, removed, inserted);
+
+        // The submitted text does not match the edit anymore
+        pendingText = null;
+    }
+
+    private synchronized ATEEdit consumeEdit() {
+        ATEEdit e = edit;
+        edit = null;
+        return e;
     }
 
     public ATESyntaxLexer getLexer() {
@@ -115,22 +213,112 @@ public abstract class ATESyntaxEngine {
                 attr = stringAttr;
                 break;
             default:
-                Set<String> s = getKeywords();
-                if(s != null && s.contains(token.getAttribute()))
+                if(isKeyword(token))
                     attr = keywordAttr;
                 break;
         }
         return attr;
     }
 
+    /** Returns the style used to render the token. This method is called for each
+     * token painted and must be called from the event dispatch thread.
+     */
+    public ATESyntaxStyle getStyleForToken(ATEToken token) {
+        return getStyle(getAttributeForToken(token));
+    }
+
+    public ATESyntaxStyle getStyle(AttributeSet attribute) {
+        if(attribute == null)
+            return ATESyntaxStyle.DEFAULT;
+
+        for(int i=0; i<stylesCount; i++) {
+            if(styleAttributes[i] == attribute)
+                return styles[i];
+        }
+
+        if(stylesCount == styles.length) {
+            AttributeSet[] a = new AttributeSet[stylesCount*2];
+            System.arraycopy(styleAttributes, 0, a, 0, stylesCount);
+            styleAttributes = a;
+            ATESyntaxStyle[] s = new ATESyntaxStyle[stylesCount*2];
+            System.arraycopy(styles, 0, s, 0, stylesCount);
+            styles = s;
+        }
+        ATESyntaxStyle style = new ATESyntaxStyle(attribute);
+        styleAttributes[stylesCount] = attribute;
+        styles[stylesCount] = style;
+        stylesCount++;
+        return style;
+    }
+
+    /** Returns true if the token is a keyword. The identifiers are checked using their symbol
+     * to avoid looking up their text in the set of keywords each time a token is painted.
+     */
+    public boolean isKeyword(ATEToken token) {
+        BitSet symbols = getKeywordSymbols();
+        if(token.symbol == ATESymbolTable.NO_SYMBOL || symbols == null) {
+            Set<String> s = getKeywords();
+            return s != null && s.contains(token.getAttribute());
+        }
+        return symbols.get(token.symbol);
+    }
+
+    /** Returns the symbols of the keywords, or null if the engine has been closed before
+     * they have been created.
+     */
+    private BitSet getKeywordSymbols() {
+        if(keywordSymbols == null) {
+            ATESyntaxLexer l = lexer;
+            if(l == null)
+                return null;
+
+            BitSet symbols = new BitSet();
+            Set<String> s = getKeywords();
+            if(s != null) {
+                for(String keyword : s) {
+                    symbols.set(l.getSymbols().getPermanentSymbol(keyword));
+                }
+            }
+            keywordSymbols = symbols;
+        }
+        return keywordSymbols;
+    }
+
+    /** Processes the text of the delegate in the current thread.
+     */
     public void processSyntax() {
-        // First run the lexer
-        lexer.tokenize(delegate.getText());
-        tokens = new ArrayList<ATEToken>(lexer.getTokens());
+        synchronized(processLock) {
+            String text;
+            ATEEdit e;
+            int r;
+            synchronized(this) {
+                text = delegate.getText();
+                e = consumeEdit();
+                r = ++revision;
+                pendingText = null;
+            }
+            processSyntax(text, e);
+            publish(createSnapshot(r));
+        }
+    }
+
+    protected void processSyntax(String text, ATEEdit e) {
+        // First run the lexer (only on the modified region if possible)
+        boolean partial = incremental && e != null && tokens != null;
+        if(partial) {
+            lexer.tokenize(text, e);
+        } else {
+            lexer.tokenize(text);
+        }
+        tokens = lexer.getTokens();
 
-        // And then the parser if it exists
+        // And then the parser if it exists (again only on the modified tokens if possible)
         if(parser != null) {
-            parser.parse(tokens);
+            if(partial) {
+                parser.parse(tokens, lexer.getModifiedStartIndex(), lexer.getModifiedEndIndex());
+            } else {
+                parser.parse(tokens);
+            }
         }
     }
 
@@ -140,6 +328,89 @@ public abstract class ATESyntaxEngine {
         delegate.ateEngineAfterParsing();
     }
 
+    /** Processes the text in the background. This method must be called from the event
+     * dispatch thread: the delegate is notified on the same thread once the snapshot of the
+     * text is published. Several texts submitted before the processing starts are
+     * coalesced and the delegate is not notified for a text superseded by a newer one.
+     *
+     * @param text The current text
+     */
+    public void processLater(String text) {
+        synchronized(this) {
+            pendingText = text;
+            revision++;
+        }
+        delegate.ateEngineBeforeParsing();
+        ATEScheduler.shared().schedule(this, new ProcessJob(), 0);
+    }
+
+    protected ATESyntaxSnapshot createSnapshot(int revision) {
+        processedRevision = revision;
+        return new ATESyntaxSnapshot(revision, tokens, lexer.getLines(), lexer.getLineNumber(), snapshot);
+    }
+
+    /** Publishes the tokens again after they have been modified outside of the processing
+     * of the text. Must be called with the process lock held.
+     */
+    protected void republish() {
+        if(tokens != null && lexer != null)
+            publish(createSnapshot(processedRevision));
+    }
+
+    /** Replaces the current snapshot unless it is more recent than this one.
+     *
+     * @return True if the snapshot has been published
+     */
+    private synchronized boolean publish(ATESyntaxSnapshot s) {
+        if(snapshot != null && snapshot.revision > s.revision)
+            return false;
+
+        snapshot = s;
+        return true;
+    }
+
+    private synchronized boolean isCurrent(ATESyntaxSnapshot s) {
+        return s.revision == revision && snapshot.revision == s.revision;
+    }
+
+    private class ProcessJob implements Runnable {
+
+        public void run() {
+            final ATESyntaxSnapshot s;
+            synchronized(processLock) {
+                if(lexer == null)
+                    return;
+
+                String text;
+                ATEEdit e;
+                int r;
+                synchronized(ATESyntaxEngine.this) {
+                    // Already processed or modified since then (a new job is coming)
+                    if(pendingText == null)
+                        return;
+
+                    text = pendingText;
+                    e = consumeEdit();
+                    r = revision;
+                    pendingText = null;
+                }
+                processSyntax(text, e);
+                s = createSnapshot(r);
+            }
+
+            if(!publish(s))
+                return;
+
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    // Discard the result if a newer text has been submitted in the meantime
+                    if(delegate != null && isCurrent(s))
+                        delegate.ateEngineAfterParsing();
+                }
+            });
+        }
+    }
+
     public void applyCommentAttribute(SimpleAttributeSet commentAttr) {
         StyleConstants.setForeground(commentAttr, Color.lightGray);
         StyleConstants.setItalic(commentAttr, true);
@@ -155,7 +426,16 @@ public abstract class ATESyntaxEngine {
         StyleConstants.setBold(keywordAttr, true);
     }
 
+    /** Applies the colors of the preferences to the attributes. The styles are resolved again
+     * from the attributes the next time they are needed.
+     */
     public void refreshColoring() {
+        for(int i=0; i<stylesCount; i++) {
+            styleAttributes[i] = null;
+            styles[i] = null;
+        }
+        stylesCount = 0;
+
         applyCommentAttribute(commentAttr);
         applyStringAttribute(stringAttr);
         applyKeywordAttribute(keywordAttr);
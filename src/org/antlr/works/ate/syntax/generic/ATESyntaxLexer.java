@@ -31,10 +31,13 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.works.ate.syntax.generic;
 
+import org.antlr.works.ate.syntax.misc.ATEEdit;
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATESymbolTable;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 public class ATESyntaxLexer {
@@ -63,6 +66,18 @@ public class ATESyntaxLexer {
     protected int lineIndex;    // position of the line in characters
     protected List<ATELine> lines;
 
+    /** Symbols of the document: the table is kept for the lifetime of the lexer
+     * because the tokens are reused between two tokenizations. The symbols that are
+     * no longer used by the tokens are removed by compactSymbols().
+     */
+    protected final ATESymbolTable symbols = new ATESymbolTable();
+
+    /** Minimum number of symbols before the incremental tokenization compacts the table */
+    private static final int MIN_COMPACT_SYMBOLS = 256;
+
+    /** Number of symbols after the last compaction of the table */
+    private int compactedSymbols;
+
     /** True if the current character is a control character (that is preceeded by a \) */
     protected boolean controlCharacter;
 
@@ -72,6 +87,21 @@ public class ATESyntaxLexer {
     protected char c0;
     protected char c1;
 
+    /** Tokens and lines of the previous tokenization used by the incremental mode
+     * to detect when the token stream is synchronized again after the edited region.
+     */
+    private List<ATEToken> previousTokens;
+    private List<ATELine> previousLines;
+    private int previousIndex;
+    private int previousDelta;
+    private int previousEnd;
+
+    /** Range of the tokens (inclusive) created by the last tokenization. The tokens located
+     * outside of this range have been reused from the previous tokenization.
+     */
+    private int modifiedStartIndex;
+    private int modifiedEndIndex;
+
     public ATESyntaxLexer() {
         lines = new ArrayList<ATELine>();
         tokens = new ArrayList<ATEToken>();
@@ -90,57 +120,250 @@ public class ATESyntaxLexer {
         return lines;
     }
 
+    public ATESymbolTable getSymbols() {
+        return symbols;
+    }
+
     public int getLineNumber() {
         return lineNumber;
     }
 
+    public int getModifiedStartIndex() {
+        return modifiedStartIndex;
+    }
+
+    public int getModifiedEndIndex() {
+        return modifiedEndIndex;
+    }
+
     public void tokenize(String text) {
         this.text = text;
 
         position = -1;
         lineNumber = 0;
-        lines.clear();
+        lineIndex = 0;
+        // Use the previous tokenization as an estimate of the size of the lists
+        lines = new ArrayList<ATELine>(Math.max(10, lines.size()));
         lines.add(new ATELine(0));
 
-        tokens.clear();
+        tokens = new ArrayList<ATEToken>(Math.max(10, tokens.size()));
         tokenize();
+
+        modifiedStartIndex = 0;
+        modifiedEndIndex = tokens.size()-1;
+
+        compactSymbols(true);
+    }
+
+    /** Tokenizes the text by re-lexing only the region affected by the edit: the lexer restarts
+     * from the last stable token located before the edit and stops as soon as the token stream
+     * is synchronized with the previous one. The tokens and lines located after the edit
+     * are shifted instead of being created again.
+     *
+     * @param text The new text
+     * @param edit The change between the previously tokenized text and the new text
+     */
+    public void tokenize(String text, ATEEdit edit) {
+        if(this.text == null || tokens.isEmpty() || this.text.length() + edit.getDelta() != text.length()) {
+            tokenize(text);
+            return;
+        }
+
+        previousTokens = tokens;
+        previousLines = lines;
+        previousDelta = edit.getDelta();
+        previousEnd = edit.getNewEnd();
+
+        // Restart from the beginning of the last token that is not touching the edit
+        int restart = getRestartTokenIndex(edit.offset);
+
+        this.text = text;
+        tokens = new ArrayList<ATEToken>(previousTokens.size()+Math.max(0, previousDelta));
+        lines = new ArrayList<ATELine>(previousLines.size());
+        if(restart == -1) {
+            position = -1;
+            lineNumber = 0;
+            lineIndex = 0;
+            lines.add(new ATELine(0));
+            previousIndex = 0;
+        } else {
+            int start = previousTokens.get(restart).start;
+            position = start-1;
+            lineNumber = getLineIndexAtPosition(previousLines, start);
+            lineIndex = previousLines.get(lineNumber).position;
+            lines.addAll(previousLines.subList(0, lineNumber+1));
+            tokens.addAll(previousTokens.subList(0, restart));
+            previousIndex = restart;
+        }
+
+        modifiedStartIndex = Math.max(0, restart);
+        modifiedEndIndex = -1;
+        try {
+            tokenize();
+        } finally {
+            previousTokens = null;
+            previousLines = null;
+        }
+        if(modifiedEndIndex == -1) {
+            modifiedEndIndex = tokens.size()-1;
+        }
+
+        compactSymbols(false);
+    }
+
+    /** Removes from the table the symbols that are not used by the tokens anymore, like the
+     * partial identifiers created while the user is typing. The incremental tokenization
+     * compacts the table only when its size has doubled since the last compaction.
+     *
+     * @param full True if the whole text has been tokenized
+     */
+    protected void compactSymbols(boolean full) {
+        if(!full && symbols.size() < Math.max(MIN_COMPACT_SYMBOLS, compactedSymbols*2)) {
+            return;
+        }
+
+        BitSet used = new BitSet();
+        for(ATEToken token : tokens) {
+            if(token.symbol != ATESymbolTable.NO_SYMBOL) {
+                used.set(token.symbol);
+            }
+        }
+        symbols.retain(used);
+        compactedSymbols = symbols.size();
     }
 
     protected void tokenize() {
         while(nextCharacter()) {
-            ATEToken token = customMatch();
-
-            if(token != null) {
-                // custom match matched something
-            } else if(c0 == '\'')
-                token = matchSingleQuoteString();
-            else if(c0 == '\"')
-                token = matchDoubleQuoteString();
-            else if(c0 == '/' && c1 == '/')
-                token = matchSingleComment();
-            else if(c0 == '/' && c1 == '*')
-                token = matchComplexComment();
-            else if(isLetter())
-                token = matchID();
-            else if(c0 == '(')
-                token = createNewToken(TOKEN_LPAREN);
-            else if(c0 == ')')
-                token = createNewToken(TOKEN_RPAREN);
-            else if(c0 == '{')
-                token = createNewToken(TOKEN_LCURLY);
-            else if(c0 == '}')
-                token = createNewToken(TOKEN_RCURLY);
-            else if(c0 == '[')
-                token = createNewToken(TOKEN_LBRACK);
-            else if(c0 == ']')
-                token = createNewToken(TOKEN_RBRACK);
-            else if(c0 == ':')
-                token = createNewToken(TOKEN_COLON);
-            else if(c0 == ';')
-                token = createNewToken(TOKEN_SEMI);
-            else if(!isWhitespace())
-                token = createNewToken(TOKEN_CHAR);
+            ATEToken token = matchToken();
+            addToken(token);
+            if(token != null && previousTokens != null && synchronize(token)) {
+                break;
+            }
+        }
+    }
+
+    protected ATEToken matchToken() {
+        ATEToken token = customMatch();
+
+        if(token != null) {
+            // custom match matched something
+        } else if(c0 == '\'')
+            token = matchSingleQuoteString();
+        else if(c0 == '\"')
+            token = matchDoubleQuoteString();
+        else if(c0 == '/' && c1 == '/')
+            token = matchSingleComment();
+        else if(c0 == '/' && c1 == '*')
+            token = matchComplexComment();
+        else if(isLetter())
+            token = matchID();
+        else if(c0 == '(')
+            token = createNewToken(TOKEN_LPAREN);
+        else if(c0 == ')')
+            token = createNewToken(TOKEN_RPAREN);
+        else if(c0 == '{')
+            token = createNewToken(TOKEN_LCURLY);
+        else if(c0 == '}')
+            token = createNewToken(TOKEN_RCURLY);
+        else if(c0 == '[')
+            token = createNewToken(TOKEN_LBRACK);
+        else if(c0 == ']')
+            token = createNewToken(TOKEN_RBRACK);
+        else if(c0 == ':')
+            token = createNewToken(TOKEN_COLON);
+        else if(c0 == ';')
+            token = createNewToken(TOKEN_SEMI);
+        else if(!isWhitespace())
+            token = createNewToken(TOKEN_CHAR);
+
+        return token;
+    }
+
+    /** Returns the index of the token from which the incremental lexing can restart, or -1
+     * if it has to restart from the beginning of the text. One more token is taken before the
+     * last token ending before the edit because a token can depend on the character following it.
+     */
+    private int getRestartTokenIndex(int offset) {
+        int low = 0;
+        int high = previousTokens.size()-1;
+        int index = -1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            if(previousTokens.get(middle).end < offset) {
+                index = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        index = Math.max(index-1, -1);
+        // Do not restart on a token preceded by a control character
+        while(index >= 0) {
+            int start = previousTokens.get(index).start;
+            if(start == 0 || text.charAt(start-1) != '\\') break;
+            index--;
+        }
+        return index;
+    }
+
+    private static int getLineIndexAtPosition(List<ATELine> lines, int position) {
+        int low = 0;
+        int high = lines.size()-1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(lines.get(middle).position <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
 
+    /** Returns true if the token matches a token of the previous tokenization located after
+     * the edit. In this case, the remaining previous tokens and lines are shifted and
+     * appended because the lexer would produce the same tokens anyway.
+     */
+    private boolean synchronize(ATEToken token) {
+        if(token.start <= previousEnd) return false;
+
+        while(previousIndex < previousTokens.size()) {
+            ATEToken previous = previousTokens.get(previousIndex);
+            int start = previous.start + previousDelta;
+            if(start > token.start) {
+                return false;
+            }
+            if(start == token.start) {
+                if(previous.end + previousDelta == token.end && previous.lexerType == token.lexerType) {
+                    modifiedEndIndex = token.index;
+                    appendPrevious();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+            previousIndex++;
+        }
+        return false;
+    }
+
+    private void appendPrevious() {
+        // Lines located after the current position of the lexer
+        int firstLine = getLineIndexAtPosition(previousLines, position + 1 - previousDelta) + 1;
+        int lineDelta = lines.size() - firstLine;
+        for(int i=firstLine; i<previousLines.size(); i++) {
+            // The lines are not shifted in place because they can still be read from a snapshot
+            lines.add(new ATELine(previousLines.get(i).position + previousDelta));
+        }
+        lineNumber = lines.size()-1;
+        lineIndex = lines.get(lineNumber).position;
+
+        // Tokens located after the synchronized token
+        for(int i=previousIndex+1; i<previousTokens.size(); i++) {
+            ATEToken token = previousTokens.get(i);
+            token.shift(previousDelta, lineDelta, text);
+            token.startLineIndex = lines.get(token.startLineNumber).position;
+            token.endLineIndex = lines.get(token.endLineNumber).position;
             addToken(token);
         }
     }
@@ -151,6 +374,10 @@ public class ATESyntaxLexer {
 
     public void addToken(ATEToken token) {
         if(token != null) {
+            if(token.lexerType == TOKEN_ID && token.symbol == ATESymbolTable.NO_SYMBOL) {
+                int symbol = symbols.getSymbol(text, token.start, token.end);
+                token.setSymbol(symbol, symbols.getName(symbol));
+            }
             token.index = tokens.size();
             tokens.add(token);
         }
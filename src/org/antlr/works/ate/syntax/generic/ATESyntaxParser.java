@@ -41,6 +41,11 @@ public abstract class ATESyntaxParser {
     private Stack<Integer> marks = new Stack<Integer>();
     private int position;
 
+    /** Index of the first token that has not been reset yet. The tokens are reset lazily,
+     * right before the parser looks at them for the first time.
+     */
+    private int resetIndex;
+
     private ATEToken t0;
     private ATEToken t1;
 
@@ -55,11 +60,29 @@ public abstract class ATESyntaxParser {
     }
 
     public void parse(List<ATEToken> tokens) {
+        prepare(tokens, -1);
+        parseTokens();
+
+        // Make sure the tokens not visited by the parser do not keep any old information
+        resetTokens(tokens.size()-1);
+    }
+
+    /** Parses the tokens knowing that only the tokens between modifiedStart and modifiedEnd
+     * (inclusive) have been modified since the last parsing. By default, all the tokens are parsed again.
+     */
+    public void parse(List<ATEToken> tokens, int modifiedStart, int modifiedEnd) {
+        parse(tokens);
+    }
+
+    /** Prepares the parser to parse the tokens starting at the specified position. The tokens located
+     * before this position are left untouched.
+     */
+    protected void prepare(List<ATEToken> tokens, int position) {
         this.tokens = tokens;
+        this.position = position;
+        resetIndex = Math.max(0, position);
         marks.clear();
-        position = -1;
         clearTokenCache();
-        parseTokens();
     }
 
     public abstract void parseTokens();
@@ -72,6 +95,11 @@ public abstract class ATESyntaxParser {
         return position;
     }
 
+    /** Returns the index of the furthest token looked at by the parser so far */
+    public int getFurthestPosition() {
+        return resetIndex-1;
+    }
+
     public void mark() {
         marks.push(position);
     }
@@ -122,12 +150,26 @@ public abstract class ATESyntaxParser {
     }
 
     public ATEToken getToken(int index) {
-        if(position+index >= 0 && position+index < tokens.size())
-            return tokens.get(position+index);
-        else
+        int i = position+index;
+        if(i >= 0 && i < tokens.size()) {
+            if(i >= resetIndex)
+                resetTokens(i);
+            return tokens.get(i);
+        } else
             return null;
     }
 
+    private void resetTokens(int index) {
+        while(resetIndex <= index) {
+            resetToken(tokens.get(resetIndex++));
+        }
+    }
+
+    /** Resets the information assigned to the token by a previous parsing */
+    protected void resetToken(ATEToken token) {
+        token.reset();
+    }
+
     private void clearTokenCache() {
         t0 = null;
         t1 = null;
@@ -161,7 +203,7 @@ public abstract class ATESyntaxParser {
     }
 
     public boolean isChar(int index, String c) {
-        return isTokenType(index, ATESyntaxLexer.TOKEN_CHAR) && T(index).getAttribute().equals(c);
+        return isTokenType(index, ATESyntaxLexer.TOKEN_CHAR) && T(index).isAttribute(c);
     }
 
     public boolean isSingleComment(int index) {
@@ -177,7 +219,7 @@ public abstract class ATESyntaxParser {
     }
 
     public boolean isID(int index, String attribute) {
-        return isTokenType(index, ATESyntaxLexer.TOKEN_ID) && T(index).getAttribute().equals(attribute);
+        return isTokenType(index, ATESyntaxLexer.TOKEN_ID) && T(index).isAttribute(attribute);
     }
 
     public boolean isTokenType(int index, int type) {
@@ -0,0 +1,118 @@
+package org.antlr.works.ate.syntax.generic;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Immutable result of the processing of one revision of the text. The lexer and the parser
+ * modify their tokens in place when they process the next revision (the tokens located after
+ * an edit are shifted and the parser changes their type and scope), so the snapshot holds
+ * a copy of each token. The copy of a token left untouched by the processing is taken from
+ * the previous snapshot instead of being created again.
+ */
+public class ATESyntaxSnapshot {
+
+    public final int revision;
+    public final List<ATEToken> tokens;
+    public final List<ATELine> lines;
+    public final ATELineIndex lineIndex;
+    public final int maxLines;
+
+    /** Tokens of the lexer from which the copies have been made */
+    private final ATEToken[] sources;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] startLineIndexes;
+    private final int[] endLineIndexes;
+
+    public ATESyntaxSnapshot(int revision, List<ATEToken> tokens, List<ATELine> lines, int maxLines,
+                             ATESyntaxSnapshot previous)
+    {
+        this.revision = revision;
+        this.lines = Collections.unmodifiableList(new ArrayList<ATELine>(lines));
+        this.lineIndex = new ATELineIndex(lines);
+        this.maxLines = maxLines;
+
+        int size = tokens.size();
+        sources = tokens.toArray(new ATEToken[size]);
+        ATEToken[] copies = new ATEToken[size];
+        starts = new int[size];
+        ends = new int[size];
+        startLineIndexes = new int[size];
+        endLineIndexes = new int[size];
+        for(int i=0; i<size; i++) {
+            ATEToken t = sources[i];
+            ATEToken c = null;
+            if(previous != null && i < previous.sources.length && previous.sources[i] == t) {
+                c = previous.tokens.get(i);
+                if(!c.isCopyOf(t))
+                    c = null;
+            }
+            if(c == null)
+                c = t.copy();
+            copies[i] = c;
+            starts[i] = c.start;
+            ends[i] = c.end;
+            startLineIndexes[i] = c.startLineIndex;
+            endLineIndexes[i] = c.endLineIndex;
+        }
+        this.tokens = Collections.unmodifiableList(Arrays.asList(copies));
+    }
+
+    public int getTokenCount() {
+        return starts.length;
+    }
+
+    public int getTokenStart(int index) {
+        return starts[index];
+    }
+
+    public int getTokenEnd(int index) {
+        return ends[index];
+    }
+
+    public int getTokenStartLineIndex(int index) {
+        return startLineIndexes[index];
+    }
+
+    public int getTokenEndLineIndex(int index) {
+        return endLineIndexes[index];
+    }
+}
@@ -0,0 +1,106 @@
+package org.antlr.works.ate.syntax.generic;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+
+/** Font style and color resolved once from an AttributeSet so the text can be
+ * rendered without reading the attributes for each token.
+ */
+public class ATESyntaxStyle {
+
+    public static final ATESyntaxStyle DEFAULT = new ATESyntaxStyle(null);
+
+    private final Color color;
+    private final int fontStyle;
+
+    /** Font derived from the base font (the base font can change at any time) */
+    private Font baseFont;
+    private Font font;
+    private FontMetrics metrics;
+
+    public ATESyntaxStyle(AttributeSet attribute) {
+        Color c = null;
+        int style = Font.PLAIN;
+        if(attribute != null) {
+            c = StyleConstants.getForeground(attribute);
+            if(StyleConstants.isBold(attribute))
+                style = Font.BOLD;
+            if(StyleConstants.isItalic(attribute))
+                style = Font.ITALIC;
+        }
+        this.color = c == null?Color.black:c;
+        this.fontStyle = style;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public int getFontStyle() {
+        return fontStyle;
+    }
+
+    /** Returns the base font derived with this style. The derived font is computed
+     * only when the base font changes.
+     *
+     * @param base The base font
+     * @return The derived font
+     */
+    public Font getFont(Font base) {
+        if(base != baseFont) {
+            font = fontStyle == Font.PLAIN || base == null?base:base.deriveFont(fontStyle);
+            metrics = null;
+            baseFont = base;
+        }
+        return font;
+    }
+
+    /** Returns the metrics of the derived font in the given graphic context.
+     */
+    public FontMetrics getFontMetrics(Graphics g, Font base) {
+        Font f = getFont(base);
+        if(metrics == null || metrics.getFont() != f) {
+            metrics = g.getFontMetrics(f);
+        }
+        return metrics;
+    }
+
+    /** Applies the font and color of this style to the graphic context
+     */
+    public void apply(Graphics g, Font base) {
+        g.setFont(getFont(base));
+        g.setColor(color);
+    }
+}
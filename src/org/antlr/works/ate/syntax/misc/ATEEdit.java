@@ -0,0 +1,82 @@
+package org.antlr.works.ate.syntax.misc;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Describes a change in the text: the range [offset, offset+removedLength) of the
+ * previous text has been replaced by the range [offset, offset+insertedLength) of the
+ * current text. Consecutive changes can be merged into a single one covering all of them.
+ */
+public class ATEEdit {
+
+    public int offset;
+    public int removedLength;
+    public int insertedLength;
+
+    public ATEEdit(int offset, int removedLength, int insertedLength) {
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedLength = insertedLength;
+    }
+
+    /** Merges a change that occurred after this one. The offset of the
+     * new change is expressed in the coordinates of the current text.
+     */
+    public void merge(int offset, int removedLength, int insertedLength) {
+        int start = Math.min(this.offset, offset);
+        int end = Math.max(getNewEnd(), offset+removedLength);
+        int oldEnd = end + this.removedLength - this.insertedLength;
+        int newEnd = end + insertedLength - removedLength;
+
+        this.offset = start;
+        this.removedLength = oldEnd - start;
+        this.insertedLength = newEnd - start;
+    }
+
+    /** Returns the end of the change in the previous text */
+    public int getOldEnd() {
+        return offset + removedLength;
+    }
+
+    /** Returns the end of the change in the current text */
+    public int getNewEnd() {
+        return offset + insertedLength;
+    }
+
+    /** Returns the number of characters the text located after the change has been shifted by */
+    public int getDelta() {
+        return insertedLength - removedLength;
+    }
+
+    public String toString() {
+        return "offset="+offset+", removed="+removedLength+", inserted="+insertedLength;
+    }
+}
@@ -0,0 +1,82 @@
+package org.antlr.works.ate.syntax.misc;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.util.List;
+
+/** Index of the position of the beginning of each line of a text. The positions
+ * are stored in an array so a position can be converted to a line with a binary search.
+ */
+public class ATELineIndex {
+
+    public static final ATELineIndex EMPTY = new ATELineIndex(new int[0]);
+
+    private final int[] starts;
+
+    public ATELineIndex(List<ATELine> lines) {
+        starts = new int[lines.size()];
+        for(int i=0; i<starts.length; i++) {
+            starts[i] = lines.get(i).position;
+        }
+    }
+
+    public ATELineIndex(int[] starts) {
+        this.starts = starts;
+    }
+
+    public int getLineCount() {
+        return starts.length;
+    }
+
+    public int getLineStart(int lineIndex) {
+        return starts[lineIndex];
+    }
+
+    /** Returns the index of the line containing the position or -1 if the position
+     * is located before the first line.
+     */
+    public int getLineIndexAtPosition(int position) {
+        int low = 0;
+        int high = starts.length-1;
+        int line = -1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            if(starts[middle] <= position) {
+                line = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return line;
+    }
+}
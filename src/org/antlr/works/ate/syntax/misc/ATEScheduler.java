@@ -0,0 +1,209 @@
+package org.antlr.works.ate.syntax.misc;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/** Shared scheduler running the background jobs of all the editors on a small
+ * pool of threads.
+ *
+ * Jobs are identified by a key: scheduling a job replaces any pending job with the
+ * same key (coalescing) and restarts its delay (debouncing). Jobs with the same key
+ * never run concurrently: if a job becomes due while the previous one is still
+ * running, it is executed as soon as the running one completes. A running job can
+ * poll isCancelled() to find out if it has been superseded by a newer job or cancelled.
+ */
+public class ATEScheduler {
+
+    private static ATEScheduler shared;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Object,Job> jobs = new HashMap<Object,Job>();
+
+    public static synchronized ATEScheduler shared() {
+        if(shared == null) {
+            int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            shared = new ATEScheduler(threads);
+        }
+        return shared;
+    }
+
+    public ATEScheduler(int threads) {
+        this(threads, "ATEScheduler", Thread.NORM_PRIORITY);
+    }
+
+    /** Creates a scheduler whose threads run at the specified priority, for example to keep
+     * the jobs that can be deferred away from the threads of the shared scheduler.
+     */
+    public ATEScheduler(int threads, String name, int priority) {
+        executor = new ScheduledThreadPoolExecutor(threads, new SchedulerThreadFactory(name, priority));
+    }
+
+    /** Schedules the task to run after delay ms. Any pending task with the same key
+     * is discarded and the running one, if any, is flagged as cancelled.
+     */
+    public synchronized void schedule(Object key, Runnable task, int delay) {
+        Job job = jobs.get(key);
+        if(job == null) {
+            job = new Job(key);
+            jobs.put(key, job);
+        }
+        job.task = task;
+        job.revision++;
+        removePending(job);
+        job.pending = executor.schedule(job, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /** Discards the pending task of this key and flags the running one as cancelled.
+     */
+    public synchronized void cancel(Object key) {
+        Job job = jobs.get(key);
+        if(job == null)
+            return;
+
+        job.revision++;
+        job.rerun = false;
+        removePending(job);
+        if(!job.running)
+            jobs.remove(key);
+    }
+
+    /** Returns true if the task of this key currently running has been superseded
+     * by a newer task or cancelled.
+     */
+    public synchronized boolean isCancelled(Object key) {
+        Job job = jobs.get(key);
+        return job != null && job.revision != job.runningRevision;
+    }
+
+    public synchronized boolean isScheduled(Object key) {
+        Job job = jobs.get(key);
+        return job != null && (job.pending != null || job.rerun);
+    }
+
+    public synchronized boolean isRunning(Object key) {
+        Job job = jobs.get(key);
+        return job != null && job.running;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void removePending(Job job) {
+        if(job.pending != null) {
+            job.pending.cancel(false);
+            executor.remove((Runnable)job.pending);
+            job.pending = null;
+        }
+    }
+
+    private Runnable begin(Job job) {
+        synchronized(this) {
+            job.pending = null;
+            if(job.running) {
+                // Run again as soon as the current task completes
+                job.rerun = true;
+                return null;
+            }
+            job.running = true;
+            job.runningRevision = job.revision;
+            return job.task;
+        }
+    }
+
+    private void end(Job job) {
+        synchronized(this) {
+            job.running = false;
+            if(job.rerun) {
+                job.rerun = false;
+                job.pending = executor.schedule(job, 0, TimeUnit.MILLISECONDS);
+            } else if(job.pending == null && jobs.get(job.key) == job) {
+                jobs.remove(job.key);
+            }
+        }
+    }
+
+    private class Job implements Runnable {
+
+        private final Object key;
+        private Runnable task;
+        private ScheduledFuture<?> pending;
+        private boolean running;
+        private boolean rerun;
+        private int revision;
+        private int runningRevision;
+
+        public Job(Object key) {
+            this.key = key;
+        }
+
+        public void run() {
+            Runnable r = begin(this);
+            if(r == null)
+                return;
+
+            try {
+                r.run();
+            } catch(Throwable t) {
+                t.printStackTrace();
+            } finally {
+                end(this);
+            }
+        }
+    }
+
+    private static class SchedulerThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final int priority;
+        private int count = 0;
+
+        public SchedulerThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName(name+"-"+(++count));
+            thread.setPriority(priority);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.antlr.works.ate.syntax.misc;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.util.BitSet;
+
+/** Table of the symbols (identifiers) of a document. Each distinct identifier is stored
+ * only once and gets an integer identifier so identifiers can be compared without
+ * comparing their text. The lookup is done directly on the text of the document
+ * to avoid creating a string for each token.
+ *
+ * The identifiers that are no longer in the document (for example the partial identifiers
+ * created while the user is typing) are removed by retain(). Their symbol is reused only after
+ * the next call to retain() because older tokens can still refer to it.
+ */
+public class ATESymbolTable {
+
+    public static final int NO_SYMBOL = -1;
+
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+
+    /** Open addressing hash table containing the symbol + 1 (0 means empty slot) */
+    private int[] slots = new int[512];
+    /** Number of symbols created, including the removed ones */
+    private int count;
+
+    /** Symbols kept by retain() whatever the document contains */
+    private final BitSet permanent = new BitSet();
+    /** Symbols removed that can be reused */
+    private final BitSet free = new BitSet();
+    /** Symbols removed by the last retain() */
+    private final BitSet removed = new BitSet();
+
+    /** Returns the symbol of the text between start and end, creating it if needed */
+    public synchronized int getSymbol(String text, int start, int end) {
+        int hash = hash(text, start, end);
+        int index = find(hash, text, start, end);
+        if(slots[index] != 0) {
+            return slots[index]-1;
+        }
+
+        int symbol = free.nextSetBit(0);
+        if(symbol == -1) {
+            if(count == names.length) {
+                String[] newNames = new String[count*2];
+                System.arraycopy(names, 0, newNames, 0, count);
+                names = newNames;
+                int[] newHashes = new int[count*2];
+                System.arraycopy(hashes, 0, newHashes, 0, count);
+                hashes = newHashes;
+            }
+            symbol = count++;
+        } else {
+            free.clear(symbol);
+        }
+
+        names[symbol] = text.substring(start, end);
+        hashes[symbol] = hash;
+        slots[index] = symbol+1;
+        if(count*2 > slots.length) {
+            rehash(slots.length*2);
+        }
+        return symbol;
+    }
+
+    public int getSymbol(String name) {
+        return getSymbol(name, 0, name.length());
+    }
+
+    /** Returns the symbol of the name and keeps it in the table even if the document
+     * does not contain the name anymore (for example a keyword)
+     */
+    public synchronized int getPermanentSymbol(String name) {
+        int symbol = getSymbol(name);
+        permanent.set(symbol);
+        return symbol;
+    }
+
+    /** Returns the symbol of the name or NO_SYMBOL if the name is not in the table */
+    public synchronized int lookup(String name) {
+        int index = find(hash(name, 0, name.length()), name, 0, name.length());
+        return slots[index]-1;
+    }
+
+    public synchronized String getName(int symbol) {
+        return names[symbol];
+    }
+
+    /** Returns the number of symbols in the table */
+    public synchronized int size() {
+        return count - free.cardinality() - removed.cardinality();
+    }
+
+    /** Removes the symbols that are not used anymore. The symbols removed by the previous
+     * call can now be reused.
+     *
+     * @param used The symbols used by the document
+     */
+    public synchronized void retain(BitSet used) {
+        free.or(removed);
+        removed.clear();
+        for(int symbol=0; symbol<count; symbol++) {
+            if(names[symbol] != null && !used.get(symbol) && !permanent.get(symbol)) {
+                names[symbol] = null;
+                removed.set(symbol);
+            }
+        }
+        rehash(slots.length);
+    }
+
+    private int find(int hash, String text, int start, int end) {
+        int mask = slots.length-1;
+        int index = spread(hash) & mask;
+        while(slots[index] != 0) {
+            int symbol = slots[index]-1;
+            if(hashes[symbol] == hash && matches(names[symbol], text, start, end)) {
+                break;
+            }
+            index = (index+1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        int mask = slots.length-1;
+        for(int symbol=0; symbol<count; symbol++) {
+            if(names[symbol] == null) continue;
+
+            int index = spread(hashes[symbol]) & mask;
+            while(slots[index] != 0) {
+                index = (index+1) & mask;
+            }
+            slots[index] = symbol+1;
+        }
+    }
+
+    private static boolean matches(String name, String text, int start, int end) {
+        return name.length() == end-start && text.regionMatches(start, name, 0, end-start);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Same hash as String.hashCode() but computed on a portion of the text */
+    private static int hash(String text, int start, int end) {
+        int hash = 0;
+        for(int i=start; i<end; i++) {
+            hash = 31*hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+}
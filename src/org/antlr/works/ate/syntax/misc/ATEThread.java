@@ -31,16 +31,16 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.works.ate.syntax.misc;
 
+/** Background job executed by the shared ATEScheduler. Each call to awakeThread()
+ * (re)schedules threadRun() after a threshold: several calls within the threshold
+ * are coalesced into a single execution.
+ */
 public abstract class ATEThread implements Runnable {
 
-    protected int threadSleep = 100;
-    protected int threshold = 0;
+    protected int threadSleep = 0;
     protected int default_threshold = 250;
     protected boolean running = false;
     protected boolean run = false;
-    protected Thread thread = null;
-    protected boolean asleep = false;
-    protected boolean skip = false;
 
     public ATEThread() {
     }
@@ -58,55 +58,50 @@ public abstract class ATEThread implements Runnable {
     }
 
     protected synchronized void start() {
-        this.threadSleep = Integer.MAX_VALUE;
-        start_();
+        this.threadSleep = 0;
+        run = true;
     }
 
+    /** Starts the thread so it runs every threadSleep ms in addition to each awakeThread().
+     */
     protected synchronized void start(int threadSleep) {
         this.threadSleep = threadSleep;
-        start_();
-    }
-
-    private void start_() {
-        if(!run) {
-            run = true;
-            thread = new Thread(this);
-            thread.setName(getClass().toString());
-            thread.start();
-        }
+        run = true;
+        getScheduler().schedule(this, this, threadSleep);
     }
 
+    /** Discards the pending run, if any, and tells the running one to cancel.
+     */
     public synchronized void skip() {
-        skip = true;
-    }
-
-    private synchronized void resetSkip() {
-        skip = false;
+        getScheduler().cancel(this);
     }
 
     public synchronized void stop() {
-        threshold = 0;
         run = false;
-        thread.interrupt();
+        getScheduler().cancel(this);
     }
 
-    /** Interrupt the thread if it is sleeping. If threshold > 0, the thread will sleep an
-     * additionnal 'threshold' ms until no other awakeThread() is called
-     * before trying to compute something.
+    /** Schedules the thread to run after 'threshold' ms. The delay is restarted
+     * by each subsequent awakeThread() until it elapses.
      */
     public synchronized void awakeThread() {
         awakeThread(default_threshold);
     }
 
     public synchronized void awakeThread(int threshold) {
-        resetSkip();
-        this.threshold = threshold;
-        if(asleep)
-            thread.interrupt();
+        if(run)
+            getScheduler().schedule(this, this, threshold);
     }
 
+    /** Returns true if the thread has been stopped or if a newer run has been scheduled
+     * while this one is executing.
+     */
     public boolean cancel() {
-        return !run;
+        return !isRun() || getScheduler().isCancelled(this);
+    }
+
+    protected ATEScheduler getScheduler() {
+        return ATEScheduler.shared();
     }
 
     protected abstract void threadRun() throws Exception;
@@ -115,46 +110,27 @@ public abstract class ATEThread implements Runnable {
         e.printStackTrace();
     }
 
-    public boolean threadSleep(int ms) {
-        boolean interrupted = false;
-        asleep = true;
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            interrupted = true;
-        }
-        asleep = false;
-        return interrupted;
+    private synchronized boolean isRun() {
+        return run;
     }
 
     public void run() {
+        if(!isRun())
+            return;
+
         setRunning(true);
-        while(run) {
-            if(threadSleep(threadSleep)) {
-                // Sleep interrupted. If threshold is > 0, then wait
-                // this amount of time and loop until the thread is not
-                // anymore interrupted.
-                if(threshold>0) {
-                    while(threadSleep(threshold)) {
-                    }
-                }
-            }
-
-            if(!run)
-                break;
-
-            if(skip) {
-                resetSkip();
-                continue;
-            }
-
-            try {
-                threadRun();
-            } catch(Exception e) {
-                threadReportException(e);
-            }
+        try {
+            threadRun();
+        } catch(Exception e) {
+            threadReportException(e);
+        } finally {
+            setRunning(false);
+        }
+
+        synchronized(this) {
+            if(run && threadSleep > 0 && !getScheduler().isScheduled(this))
+                getScheduler().schedule(this, this, threadSleep);
         }
-        setRunning(false);
     }
 
 }
@@ -35,6 +35,11 @@ public class ATEToken implements Comparable {
 
     public int type;
 
+    /** The type assigned by the lexer. The parser is free to change the type of a token
+     * but the lexer needs the original one when the token is reused (see reset()).
+     */
+    public final int lexerType;
+
     public int startLineNumber; // starting line number
     public int endLineNumber; // ending line number
     public int startLineIndex; // starting line character index
@@ -48,7 +53,13 @@ public class ATEToken implements Comparable {
     public int start;
     public int end;
 
-    protected String attribute; // the portion of text covered by this token (subset of text)
+    /** The portion of text covered by this token (subset of text). It is created only when
+     * requested because most of the tokens are never asked for their text.
+     */
+    private String attribute;
+
+    /** Symbol of the token in the symbol table of the document (identifiers only) */
+    public int symbol = ATESymbolTable.NO_SYMBOL;
 
     public int index;   // index inside the tokens list
     public boolean modified;    // true if the token has been modified in the text window
@@ -60,6 +71,7 @@ public class ATEToken implements Comparable {
                     String text)
     {
         this.type = type;
+        this.lexerType = type;
 
         this.start = start;
         this.end = end;
@@ -70,7 +82,60 @@ public class ATEToken implements Comparable {
         this.endLineIndex = endLineIndex;
 
         this.text = text;
-        this.attribute = text.substring(start, end);
+    }
+
+    protected ATEToken(ATEToken other) {
+        this.type = other.type;
+        this.lexerType = other.lexerType;
+
+        this.start = other.start;
+        this.end = other.end;
+
+        this.startLineNumber = other.startLineNumber;
+        this.endLineNumber = other.endLineNumber;
+        this.startLineIndex = other.startLineIndex;
+        this.endLineIndex = other.endLineIndex;
+
+        this.text = other.text;
+        this.attribute = other.attribute;
+        this.symbol = other.symbol;
+        this.index = other.index;
+        this.modified = other.modified;
+        this.scope = other.scope;
+    }
+
+    /** Returns a copy of the token that is not modified when the lexer and the parser
+     * process the next revision of the text (see ATESyntaxSnapshot).
+     */
+    public ATEToken copy() {
+        return new ATEToken(this);
+    }
+
+    /** Returns true if this token is still identical to the token it has been copied from */
+    public boolean isCopyOf(ATEToken other) {
+        return type == other.type && start == other.start && end == other.end
+                && startLineNumber == other.startLineNumber && endLineNumber == other.endLineNumber
+                && startLineIndex == other.startLineIndex && endLineIndex == other.endLineIndex
+                && text == other.text && symbol == other.symbol && index == other.index
+                && scope == other.scope;
+    }
+
+    /** Resets the information assigned by the parser so the token can be parsed again */
+    public void reset() {
+        type = lexerType;
+        scope = null;
+    }
+
+    /** Moves the token by the specified amount of characters and lines. Note that the
+     * line indexes are not updated by this method because they depend on the lines
+     * located before the token.
+     */
+    public void shift(int offset, int lineOffset, String text) {
+        start += offset;
+        end += offset;
+        startLineNumber += lineOffset;
+        endLineNumber += lineOffset;
+        this.text = text;
     }
 
     public String getText() {
@@ -78,9 +143,36 @@ public class ATEToken implements Comparable {
     }
 
     public String getAttribute() {
+        if(attribute == null) {
+            attribute = text.substring(start, end);
+        }
         return attribute;
     }
 
+    /** Assigns the symbol of the token. The name of the symbol is shared by all the tokens
+     * having the same symbol and is used as the attribute of the token.
+     */
+    public void setSymbol(int symbol, String name) {
+        this.symbol = symbol;
+        this.attribute = name;
+    }
+
+    /** Returns true if the attribute of the token is equal to the specified string. The attribute
+     * is not created if it does not exist yet.
+     */
+    public boolean isAttribute(String s) {
+        if(attribute != null) {
+            return attribute.equals(s);
+        } else {
+            return end - start == s.length() && text.startsWith(s, start);
+        }
+    }
+
+    /** Returns the first character of the token without creating its attribute */
+    public char getFirstChar() {
+        return text.charAt(start);
+    }
+
     public int getStartLineIndex() {
         return startLineIndex;
     }
@@ -125,10 +217,14 @@ public class ATEToken implements Comparable {
         return getAttribute()+" <type="+type+", start="+start+", end="+end+">";
     }
 
+    public static boolean isLexerName(char c) {
+        return c == Character.toUpperCase(c);
+    }
+
     public static boolean isLexerName(String name) {
         if(name == null || name.length() < 1)
             return false;
         else
-            return name.charAt(0) == name.toUpperCase().charAt(0);
+            return isLexerName(name.charAt(0));
     }
 }
@@ -1,6 +1,6 @@
 package org.antlr.works.components;
 
-import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
 import org.antlr.works.debugger.api.DebuggerDelegate;
 import org.antlr.works.editor.ConsoleTab;
 import org.antlr.works.generate.CodeGenerate;
@@ -149,12 +149,11 @@ public class GrammarDebuggerDelegate implements DebuggerDelegate {
     }
 
     private int computeAbsoluteGrammarIndex(int lineIndex, int column) {
-        List<ATELine> lines = window.getLines();
-        if(lineIndex-1<0 || lineIndex-1 >= lines.size())
+        ATELineIndex index = window.getTextEditor().getLineIndex();
+        if(lineIndex-1<0 || lineIndex-1 >= index.getLineCount())
             return -1;
 
-        ATELine line = lines.get(lineIndex-1);
-        return line.position+column-1;
+        return index.getLineStart(lineIndex-1)+column-1;
     }
 
 }
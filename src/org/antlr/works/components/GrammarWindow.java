@@ -5,6 +5,7 @@ import org.antlr.works.ate.ATEPanel;
 import org.antlr.works.ate.ATEPanelDelegate;
 import org.antlr.works.ate.ATETextPane;
 import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATEScheduler;
 import org.antlr.works.ate.syntax.misc.ATEThread;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.debugger.DebuggerTab;
@@ -19,6 +20,7 @@ import org.antlr.works.find.FindAndReplace;
 import org.antlr.works.find.FindAndReplaceDelegate;
 import org.antlr.works.find.Usages;
 import org.antlr.works.grammar.GrammarAutoIndent;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisCache;
 import org.antlr.works.grammar.decisiondfa.DecisionDFAEngine;
 import org.antlr.works.grammar.element.ElementImport;
 import org.antlr.works.grammar.element.ElementReference;
@@ -27,6 +29,7 @@ import org.antlr.works.grammar.element.Jumpable;
 import org.antlr.works.grammar.engine.GrammarEngine;
 import org.antlr.works.grammar.engine.GrammarEngineDelegate;
 import org.antlr.works.grammar.engine.GrammarEngineImpl;
+import org.antlr.works.grammar.engine.GrammarEngineRegistry;
 import org.antlr.works.interpreter.InterpreterTab;
 import org.antlr.works.menu.*;
 import org.antlr.works.prefs.AWPrefs;
@@ -170,6 +173,18 @@ public class GrammarWindow
     private String lastSelectedRule;
 
     private AfterParseOperations afterParserOp;
+    private GrammarWarmUp grammarWarmUp;
+    /** Low priority thread creating the grammars in advance, outside of the shared scheduler
+     * used by the windows to parse their text */
+    private static final ATEScheduler warmUpScheduler = new ATEScheduler(1, "GrammarWarmUp", Thread.MIN_PRIORITY);
+    /** Threads running the jobs creating the ANTLR grammars (after parse operations, syntax diagram),
+     * which can take a while and must not delay the parsing of the other windows */
+    private static final ATEScheduler grammarScheduler = new ATEScheduler(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), "GrammarJobs", Thread.NORM_PRIORITY);
+
+    public static ATEScheduler getGrammarScheduler() {
+        return grammarScheduler;
+    }
 
     public GrammarWindow() {
         createTextEditor();
@@ -185,7 +200,9 @@ public class GrammarWindow
         menu = new GrammarWindowMenu(this);
         toolbar = new GrammarWindowToolbar(this);        
         afterParserOp = new AfterParseOperations();
+        grammarWarmUp = new GrammarWarmUp();
         grammarEngine = new GrammarEngineImpl(this);
+        grammarEngine.getANTLRGrammarEngine().setAnalysisCache(ANTLRAnalysisCache.shared());
         decisionDFAEngine = new DecisionDFAEngine(this);
         goToRule = new GoToRule(this, this, getTextPane());
         goToHistory = new GoToHistory();
@@ -347,6 +364,7 @@ public class GrammarWindow
         editorInspector.close();
 
         editorPersistence.close();
+        GrammarEngineRegistry.shared().unregister(grammarEngine);
         grammarEngine.close();
 
         editorRules.close();
@@ -355,6 +373,9 @@ public class GrammarWindow
         afterParserOp.stop();
         afterParserOp = null;
 
+        grammarWarmUp.stop();
+        grammarWarmUp = null;
+
         gutterColumnManager.close();
         foldingManager.close();
         underlyingManager.close();
@@ -1156,6 +1177,10 @@ public class GrammarWindow
         if(windowFirstDisplay) {
             windowFirstDisplay = false;
             afterParseOperations();
+            restoreCachedAnalysis();
+            // the window may have been closed in the meantime
+            if(grammarWarmUp != null)
+                grammarWarmUp.awakeThread();
             SwingUtilities.invokeLater(new Runnable() {
                 public void run() {
                     updateVisualization(true);
@@ -1167,12 +1192,30 @@ public class GrammarWindow
         }
     }
 
+    /** Displays the result of the last analysis of this grammar if the grammar did not change since then
+     */
+    private void restoreCachedAnalysis() {
+        try {
+            if(grammarEngine.getANTLRGrammarEngine().restoreCachedAnalysis()) {
+                engineAnalyzeCompleted();
+            }
+        } catch (Exception e) {
+            // the cache is only an optimization
+        }
+    }
+
     private void afterParseOperations() {
         editorPersistence.restore();
 
         grammarEngine.parserCompleted();
+        GrammarEngineRegistry.shared().grammarParsed(grammarEngine, getFilePath());
         grammarEngine.updateAll();
 
+        // Skip the update of the interface if the document has been parsed again
+        // in the meantime: the next run will take care of it
+        if(afterParserOp.cancel())
+            return;
+
         interpreterTab.setRules(getNaturalRules());
         editorRules.parserDidParse();
         decisionDFAEngine.reset();
@@ -1201,6 +1244,8 @@ public class GrammarWindow
     }
 
     private void grammarChanged() {
+        if(grammarWarmUp != null)
+            grammarWarmUp.stop();
         grammarEngine.markDirty();
     }
 
@@ -1485,6 +1530,15 @@ public class GrammarWindow
         progress.display();
     }
 
+    public void setProgress(String info, int value, int max) {
+        if(progress == null)
+            return;
+        progress.setIndeterminate(false);
+        progress.setInfo(info);
+        progress.setProgressMax(max);
+        progress.setProgress(value);
+    }
+
     public void hideProgress() {
         progress.close();
     }
@@ -1549,11 +1603,47 @@ public class GrammarWindow
             start();
         }
 
+        @Override
+        protected ATEScheduler getScheduler() {
+            return grammarScheduler;
+        }
+
         protected void threadRun() throws Exception {
             afterParseOperations();
         }
     }
 
+    /** This class is used to create the ANTLR grammars in the background once the grammar
+     * has been opened, so the first syntax diagram or interpreter run does not have to wait.
+     * It runs only once and is cancelled by any modification of the grammar.
+     */
+    protected class GrammarWarmUp extends ATEThread {
+
+        public GrammarWarmUp() {
+            setDefaultThreshold(1000);
+            start();
+        }
+
+        @Override
+        protected ATEScheduler getScheduler() {
+            return warmUpScheduler;
+        }
+
+        protected void threadRun() throws Exception {
+            try {
+                if(!cancel()) {
+                    grammarEngine.getANTLRGrammarEngine().warmUp();
+                }
+            } finally {
+                stop();
+            }
+        }
+
+        public void threadReportException(Exception e) {
+            // the grammars are created again by the next action, which reports the error
+        }
+    }
+
     protected class ConsoleStatus {
 
         public final Box box;
@@ -109,6 +109,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_DEBUG = 82;
     public static final int MI_DEBUG_AGAIN = 83;
     public static final int MI_DEBUG_REMOTE = 84;
+    public static final int MI_DEBUG_OPEN_TRACE = 85;
     public static final int MI_DEBUG_SHOW_INPUT_TOKENS = 86;
     public static final int MI_EDIT_TEST_RIG = 87;
 
@@ -125,6 +126,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
     public static final int MI_EXPORT_AS_DOT = 114;
     public static final int MI_EXPORT_EVENT = 115;
     public static final int MI_EXPORT_AS_XML = 116;
+    public static final int MI_EXPORT_EVENT_TRACE = 117;
 
     public static final int MI_PRIVATE_UNREGISTER = 200;
     public static final int MI_SERIALIZE_SD = 201;
@@ -174,6 +176,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         XJMenu exportMenu = new XJMenu();
         exportMenu.setTitle(resourceBundle.getString("menu.title.exportEvents"));
         exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.asText"), MI_EXPORT_EVENT, this));
+        exportMenu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.asTrace"), MI_EXPORT_EVENT_TRACE, this));
 
         menu.insertItemAfter(exportMenu, XJMainMenuBar.MI_SAVEAS);
 
@@ -226,6 +229,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debug"), KeyEvent.VK_D, MI_DEBUG, this));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debugAgain"), KeyEvent.VK_D, XJMenuItem.getKeyModifier() | Event.SHIFT_MASK, MI_DEBUG_AGAIN, this));
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.debugRemote"), MI_DEBUG_REMOTE, this));
+        menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.openTrace"), MI_DEBUG_OPEN_TRACE, this));
         menu.addSeparator();
         menu.addItem(new XJMenuItem(resourceBundle.getString("menu.item.showInputTokens"), MI_DEBUG_SHOW_INPUT_TOKENS, this));
         menu.addSeparator();
@@ -542,6 +546,7 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
             case MI_RUN:
             case MI_DEBUG:
             case MI_DEBUG_REMOTE:
+            case MI_DEBUG_OPEN_TRACE:
                 item.setEnabled(!isDebuggerRunning());
                 break;
 
@@ -789,6 +794,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
                 debugMenu.debugRemote();
                 break;
 
+            case MI_DEBUG_OPEN_TRACE:
+                debugMenu.openTrace();
+                break;
+
             case MI_DEBUG_SHOW_INPUT_TOKENS:
                 debugMenu.toggleInputTokens();
                 window.refreshMainMenuBar();
@@ -840,6 +849,10 @@ public class GrammarWindowMenu implements XJMenuItemDelegate {
             case MI_EXPORT_EVENT:
                 actionExport.exportEventsAsTextFile();
                 break;
+
+            case MI_EXPORT_EVENT_TRACE:
+                actionExport.exportEventsAsTraceFile();
+                break;
         }
     }
 
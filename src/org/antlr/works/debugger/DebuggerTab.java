@@ -44,8 +44,9 @@ import org.antlr.works.debugger.local.DBLocal;
 import org.antlr.works.debugger.panels.*;
 import org.antlr.works.debugger.remote.DBRemoteConnectDialog;
 import org.antlr.works.debugger.tivo.DBPlayer;
-import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
+import org.antlr.works.debugger.tivo.DBPlayerCheckpoint;
 import org.antlr.works.debugger.tivo.DBRecorder;
+import org.antlr.works.debugger.tivo.DBTraceReader;
 import org.antlr.works.debugger.tree.DBASTModel;
 import org.antlr.works.debugger.tree.DBASTPanel;
 import org.antlr.works.debugger.tree.DBParseTreeModel;
@@ -68,6 +69,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -159,6 +162,8 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         local = new DBLocal(this);
         recorder = new DBRecorder(this);
         player = new DBPlayer(this);
+        player.getCheckpoints().setMemoryBudget(AWPrefs.getDebuggerCheckpointMemory()*1024L*1024L);
+        eventsPanel.setCheckpoints(player.getCheckpoints());
 
         updateStatusInfo();
     }
@@ -487,6 +492,30 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         }
     }
 
+    /** Replays the events of a trace file saved during a previous session */
+    public boolean openTrace(File file) {
+        DBTraceReader trace;
+        try {
+            trace = new DBTraceReader(file);
+        } catch (IOException e) {
+            XJAlert.display(getWindowContainer(), "Error", "Cannot open the trace file:\n"+e.getMessage());
+            return false;
+        }
+
+        queryGrammarBreakpoints();
+        rootGrammarName = delegate.getGrammarName();
+        inputPanel.prepareForGrammar(delegate.getGrammarEngine());
+        player.setInputBuffer(inputPanel.getInputBuffer());
+
+        connectionSuccess();
+        recorder.openTrace(trace);
+        return true;
+    }
+
+    public void saveTrace(File file) throws IOException {
+        recorder.saveTrace(file);
+    }
+
     public boolean debuggerLaunch(String address, int port, boolean remote) {
         if(remote && !debuggerLaunchGrammar()) {
             XJAlert.display(getWindowContainer(), "Error",
@@ -518,6 +547,9 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         delegate.debuggerStarted();
 
         player.resetPlayEvents(true);
+
+        // The GUI does not display the events of the previous session anymore
+        recorder.closeReplacedEvents();
     }
 
     public void connectionFailed() {
@@ -559,12 +591,21 @@ public class DebuggerTab extends GrammarWindowTab implements DetachablePanelDele
         astPanel.clear();
     }
 
-    public void addEvent(DBEvent event, DBPlayerContextInfo info) {
-        eventsPanel.addEvent(event, info);
+    public void playerSaveState(DBPlayerCheckpoint checkpoint) {
+        checkpoint.stackState = stackPanel.saveState();
+        checkpoint.parseTreeState = parseTreePanel.saveState();
+        checkpoint.astState = astPanel.saveState();
+    }
+
+    public void playerRestoreState(DBPlayerCheckpoint checkpoint) {
+        stackPanel.restoreState(checkpoint.stackState);
+        parseTreePanel.restoreState(checkpoint.parseTreeState);
+        astPanel.restoreState(checkpoint.astState);
     }
 
-    public void playEvents(List events, int lastEventPosition, boolean reset) {
+    public void playEvents(List<DBEvent> events, int lastEventPosition, boolean reset) {
         player.playEvents(events, lastEventPosition, reset);
+        eventsPanel.setEvents(events, lastEventPosition);
         breaksOnEvent();
     }
 
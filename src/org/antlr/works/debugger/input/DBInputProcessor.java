@@ -2,6 +2,7 @@ package org.antlr.works.debugger.input;
 
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 /*
 
 [The "BSD licence"]
@@ -51,4 +52,7 @@ public interface DBInputProcessor {
 
     public int getCurrentTokenIndex();
     public DBInputTextTokenInfo getTokenInfoAtTokenIndex(int index);
+
+    public DBPlayerSnapshot saveState();
+    public void restoreState(DBPlayerSnapshot state);
 }
@@ -34,6 +34,7 @@ package org.antlr.works.debugger.input;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 import org.antlr.works.dialog.AWPrefsDialog;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.TextPane;
@@ -216,6 +217,28 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         }
     }
 
+    public DBPlayerSnapshot saveState() {
+        return new State(this);
+    }
+
+    /** Restores the state saved in a checkpoint. Like rewindAll(), the tokens
+     * received after the checkpoint are kept so they are still displayed.
+     */
+    public void restoreState(DBPlayerSnapshot state) {
+        State s = (State)state;
+
+        currentTokenIndex = s.currentTokenIndex;
+        locationEvent = s.locationEvent;
+
+        indexToTokenInfoMap.putAll(s.indexToTokenInfoMap);
+
+        indexToConsumeAttributeMap.clear();
+        indexToConsumeAttributeMap.putAll(s.indexToConsumeAttributeMap);
+
+        lookaheadTokenIndexes.clear();
+        lookaheadTokenIndexes.addAll(s.lookaheadTokenIndexes);
+    }
+
     public void addToken(Token token) {
         int index = token.getTokenIndex();
         if(index == -1) {
@@ -430,6 +453,28 @@ public class DBInputProcessorToken implements DBInputProcessor, TextPaneDelegate
         }
     }
 
+    protected static class State implements DBPlayerSnapshot {
+
+        protected final int currentTokenIndex;
+        protected final DBEventLocation locationEvent;
+
+        protected final Map<Integer,DBInputTextTokenInfo> indexToTokenInfoMap;
+        protected final Map<Integer,AttributeSet> indexToConsumeAttributeMap;
+        protected final Set<Integer> lookaheadTokenIndexes;
+
+        public State(DBInputProcessorToken processor) {
+            currentTokenIndex = processor.currentTokenIndex;
+            locationEvent = processor.locationEvent;
+            indexToTokenInfoMap = new HashMap<Integer, DBInputTextTokenInfo>(processor.indexToTokenInfoMap);
+            indexToConsumeAttributeMap = new HashMap<Integer, AttributeSet>(processor.indexToConsumeAttributeMap);
+            lookaheadTokenIndexes = new HashSet<Integer>(processor.lookaheadTokenIndexes);
+        }
+
+        public int getSize() {
+            return indexToTokenInfoMap.size()+indexToConsumeAttributeMap.size()+lookaheadTokenIndexes.size();
+        }
+    }
+
     protected class MyMouseListener extends MouseAdapter {
 
         public void mousePressed(MouseEvent e) {
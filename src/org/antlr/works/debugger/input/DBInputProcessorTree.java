@@ -3,6 +3,7 @@ package org.antlr.works.debugger.input;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 import org.antlr.works.debugger.tree.DBTreeNode;
 import org.antlr.works.debugger.tree.DBTreeToken;
 import org.antlr.works.dialog.AWPrefsDialog;
@@ -123,6 +124,26 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
         lastNode = currentNode;
     }
 
+    public DBPlayerSnapshot saveState() {
+        return new State(this);
+    }
+
+    /** Restores the state saved in a checkpoint. The nodes created after
+     * the checkpoint stay in the tree with the non-consumed color, like rewindAll().
+     */
+    public void restoreState(DBPlayerSnapshot state) {
+        State s = (State)state;
+
+        applyColor(nonConsumedColor);
+        for (Map.Entry<InputTreeNode, Color> entry : s.colors.entrySet()) {
+            entry.getKey().setColor(entry.getValue());
+        }
+
+        currentNode = s.currentNode;
+        lastNode = s.lastNode;
+        location = s.location;
+    }
+
     public void LT(Token token) {
         InputTreeNode node = processToken(token);
         if(node != null) {
@@ -231,6 +252,30 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
         return !(info == null || info.node == null) && info.node.breakpoint;
     }
 
+    public static class State implements DBPlayerSnapshot {
+
+        /** Color of the nodes: it is the only state of a node modified by the events */
+        public final Map<InputTreeNode,Color> colors = new HashMap<InputTreeNode, Color>();
+
+        public final InputTreeNode currentNode;
+        public final InputTreeNode lastNode;
+        public final DBEventLocation location;
+
+        public State(DBInputProcessorTree processor) {
+            for (NodeInfo info : processor.nodeInfoForToken.values()) {
+                if (info.node != null)
+                    colors.put(info.node, info.node.getTokenColor());
+            }
+            currentNode = processor.currentNode;
+            lastNode = processor.lastNode;
+            location = processor.location;
+        }
+
+        public int getSize() {
+            return colors.size();
+        }
+    }
+
     public static class NodeInfo {
 
         /** Token */
@@ -266,7 +311,12 @@ public class DBInputProcessorTree implements DBInputProcessor, XJNotificationObs
             if(breakpoint)
                 return Color.red;
             else
-                return super.getColor();
+                return getTokenColor();
+        }
+
+        /** Returns the color set by the player, ignoring the breakpoint */
+        public Color getTokenColor() {
+            return super.getColor();
         }
 
         public String toString() {
@@ -43,6 +43,7 @@ import org.antlr.works.debugger.tivo.DBRecorder;
 import org.antlr.works.dialog.DebuggerInputDialog;
 import org.antlr.works.dialog.DialogTestTemplate;
 import org.antlr.works.generate.CodeGenerate;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.grammar.element.ElementBlock;
 import org.antlr.works.grammar.element.ElementGrammarName;
 import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
@@ -212,7 +213,7 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
     }
 
     public void startThread() {
-        new Thread(this).start();
+        new Thread(ANTLRErrorContext.releasing(this)).start();
     }
 
     public void run() {
@@ -331,6 +332,8 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             testRigFullPath = XJUtils.getPathByDeletingPathExtension(qualifiedFileName) + testRigTemplateSuffix + ".st";
             grammarIdentifier = qualifiedFileName.toUpperCase();
         }
+        ErrorListener el = new ErrorListener();
+        ANTLRErrorContext context = ANTLRErrorContext.enter(el);
         try {
             testTemplateMode = AWPrefs.getTestRigTemplateMode(grammarIdentifier);
             testTemplateText = getTestRigTemplateFromFile(testRigFullPath);
@@ -346,7 +349,7 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             new File(outputFileDir).mkdirs();
         } catch(Exception e) {
             debuggerTab.getConsole().println(e);
-            String msg = ErrorListener.getThreadInstance().getFirstErrorMessage();
+            String msg = el.getFirstErrorMessage();
             StringBuilder sb = new StringBuilder("Error while preparing the grammar:\n");
             if(msg != null) {
                 sb.append(msg);
@@ -355,6 +358,8 @@ public class DBLocal implements Runnable, XJDialogProgressDelegate, StreamWatche
             sb.append(e.toString());
             reportError(sb.toString());
             return false;
+        } finally {
+            context.exit();
         }
         return true;
     }
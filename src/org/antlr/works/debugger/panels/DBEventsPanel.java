@@ -2,6 +2,8 @@ package org.antlr.works.debugger.panels;
 
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.tivo.DBPlayerCheckpoint;
+import org.antlr.works.debugger.tivo.DBPlayerCheckpoints;
 import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
 import org.antlr.works.utils.DetachablePanel;
 import org.antlr.xjlib.appkit.swing.XJTable;
@@ -10,8 +12,10 @@ import org.antlr.xjlib.appkit.swing.XJTableView;
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 /*
 
 [The "BSD licence"]
@@ -63,6 +67,7 @@ public class DBEventsPanel extends DetachablePanel {
 
         infoTableView = new XJTableView();
         infoTableView.setFocusable(true);
+        infoTableView.setAutoresizeVisibleRows(true);
         setInfoTableModel(infoTableView.getTable(), eventTableDataModel);
 
         mainPanel.add(infoTableView, BorderLayout.CENTER);
@@ -87,18 +92,22 @@ public class DBEventsPanel extends DetachablePanel {
         eventTableDataModel.clear();
     }
 
-    public void updateOnBreakEvent() {
-        eventTableDataModel.update();
+    public void setCheckpoints(DBPlayerCheckpoints checkpoints) {
+        eventTableDataModel.checkpoints = checkpoints;
+    }
 
+    public void updateOnBreakEvent() {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
                 selectLastInfoTableItem();
+                infoTableView.autoresizeColumns();
             }
         });
     }
 
-    public void addEvent(DBEvent event, DBPlayerContextInfo info) {
-        eventTableDataModel.add(event, info);
+    /** Displays the first <code>count</code> events, which have been played */
+    public void setEvents(List<DBEvent> events, int count) {
+        eventTableDataModel.setEvents(events, count);
     }
 
     public String getEventsAsString() {
@@ -106,37 +115,111 @@ public class DBEventsPanel extends DetachablePanel {
         sb.append(eventTableDataModel.getHeadersAsString());
         sb.append("\n");
 
-        List<EventTableDataModel.EventInfo> events = eventTableDataModel.events;
-        for(int i=0; i<events.size(); i++) {
+        List<DBEvent> events = eventTableDataModel.events;
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        for(int i=0; i<eventTableDataModel.getRowCount(); i++) {
+            DBEvent event = events.get(i);
+            info.apply(event);
             sb.append(i);
             sb.append(":\t");
-            sb.append(events.get(i).toString());
+            sb.append(event.toString());
+            for(int value : eventTableDataModel.getContextValues(info)) {
+                sb.append("\t");
+                sb.append(value == -1?"-":String.valueOf(value));
+            }
             sb.append("\n");
         }
         return sb.toString();
     }
 
+    /** Model backed by the events of the recorder. The rows are the events played
+     * so far and the context columns are computed when a row is displayed, from the
+     * context saved in the previous checkpoint of the player.
+     */
     public class EventTableDataModel extends AbstractTableModel {
 
-        protected List<EventInfo> events = new ArrayList<EventInfo>();
+        public static final int CACHED_ROWS = 512;
+
+        protected List<DBEvent> events = Collections.emptyList();
+        protected int count = 0;
+        protected DBPlayerCheckpoints checkpoints;
 
-        public void add(DBEvent event, DBPlayerContextInfo info) {
-            events.add(new EventInfo(event, info));
+        /** Context values of the last displayed rows */
+        protected final Map<Integer,int[]> contexts = new LinkedHashMap<Integer, int[]>(CACHED_ROWS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > CACHED_ROWS;
+            }
+        };
+
+        /** Context after the last computed row, used to compute the following rows */
+        protected DBPlayerContextInfo lastContext;
+        protected int lastContextRow = -1;
+
+        public void setEvents(List<DBEvent> events, int count) {
+            if(events != this.events) {
+                this.events = events;
+                resetContexts();
+                this.count = count;
+                fireTableDataChanged();
+                return;
+            }
+
+            int previous = this.count;
+            this.count = count;
+            if(count > previous) {
+                fireTableRowsInserted(previous, count-1);
+            } else if(count < previous) {
+                fireTableRowsDeleted(count, previous-1);
+            }
         }
 
         public void clear() {
-            events.clear();
+            events = Collections.emptyList();
+            count = 0;
+            resetContexts();
             fireTableDataChanged();
             infoTableView.autoresizeColumns();
         }
 
-        public void update() {
-            fireTableDataChanged();
-            infoTableView.autoresizeColumns();
+        protected void resetContexts() {
+            contexts.clear();
+            lastContext = null;
+            lastContextRow = -1;
+        }
+
+        /** Returns the context after the event at <code>row</code> has been played */
+        protected int[] getContext(int row) {
+            int[] values = contexts.get(row);
+            if(values != null)
+                return values;
+
+            /* Start from the closest of the previous computed row and of the
+            checkpoint before the row (a checkpoint at position p holds the
+            context after the first p events) */
+            DBPlayerCheckpoint checkpoint = checkpoints == null?null:checkpoints.getCheckpoint(row+1);
+            int start = checkpoint == null?0:checkpoint.position;
+            if(lastContext == null || lastContextRow >= row || lastContextRow+1 < start) {
+                lastContext = checkpoint == null?new DBPlayerContextInfo():checkpoint.contextInfo.copy();
+                lastContextRow = start-1;
+            }
+
+            for(int i=lastContextRow+1; i<=row; i++) {
+                lastContext.apply(events.get(i));
+            }
+            lastContextRow = row;
+
+            values = getContextValues(lastContext);
+            contexts.put(row, values);
+            return values;
+        }
+
+        protected int[] getContextValues(DBPlayerContextInfo info) {
+            return new int[] { info.getSubrule(), info.getDecision(), info.getMark(), info.getBacktrack() };
         }
 
         public int getRowCount() {
-            return events.size();
+            return count;
         }
 
         public int getColumnCount() {
@@ -168,14 +251,15 @@ public class DBEventsPanel extends DetachablePanel {
         }
 
         public Object getValueAt(int rowIndex, int columnIndex) {
-            EventInfo info = events.get(rowIndex);
             switch(columnIndex) {
                 case INFO_COLUMN_COUNT: return String.valueOf(rowIndex);
-                case INFO_COLUMN_EVENT: return info.event;
-                case INFO_COLUMN_SUBRULE: return info.getSubrule();
-                case INFO_COLUMN_DECISION: return info.getDecision();
-                case INFO_COLUMN_MARK: return info.getMark();
-                case INFO_COLUMN_BACKTRACK: return info.getBacktrack();
+                case INFO_COLUMN_EVENT: return events.get(rowIndex);
+                case INFO_COLUMN_SUBRULE:
+                case INFO_COLUMN_DECISION:
+                case INFO_COLUMN_MARK:
+                case INFO_COLUMN_BACKTRACK:
+                    int value = getContext(rowIndex)[columnIndex-INFO_COLUMN_SUBRULE];
+                    return value==-1?null:String.valueOf(value);
             }
             return null;
         }
@@ -183,60 +267,6 @@ public class DBEventsPanel extends DetachablePanel {
         public String getHeadersAsString() {
             return "#\tEvent\tSubrule\tDecision\tMark\tBacktrack";
         }
-
-        public class EventInfo {
-
-            public DBEvent event;
-            public int subrule;
-            public int decision;
-            public int mark;
-            public int backtrack;
-
-            public EventInfo(DBEvent event, DBPlayerContextInfo info) {
-                this.event = event;
-                this.subrule = info.getSubrule();
-                this.decision = info.getDecision();
-                this.mark = info.getMark();
-                this.backtrack = info.getBacktrack();
-            }
-
-            public Object getSubrule() {
-                return subrule==-1?null:String.valueOf(subrule);
-            }
-
-            public Object getDecision() {
-                return decision==-1?null:String.valueOf(decision);
-            }
-
-            public Object getMark() {
-                return mark==-1?null:String.valueOf(mark);
-            }
-
-            public Object getBacktrack() {
-                return backtrack==-1?null:String.valueOf(backtrack);
-            }
-
-            public String getTextForExport(int value) {
-                if(value == -1)
-                    return "-";
-                else
-                    return String.valueOf(value);
-            }
-
-            public String toString() {
-                StringBuilder sb = new StringBuilder();
-                sb.append(event.toString());
-                sb.append("\t");
-                sb.append(getTextForExport(subrule));
-                sb.append("\t");
-                sb.append(getTextForExport(decision));
-                sb.append("\t");
-                sb.append(getTextForExport(mark));
-                sb.append("\t");
-                sb.append(getTextForExport(backtrack));
-                return sb.toString();
-            }
-        }
     }
 
 }
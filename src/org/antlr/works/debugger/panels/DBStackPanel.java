@@ -2,6 +2,7 @@ package org.antlr.works.debugger.panels;
 
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventEnterRule;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 import org.antlr.works.utils.DetachablePanel;
 import org.antlr.xjlib.appkit.swing.XJTable;
 import org.antlr.xjlib.appkit.swing.XJTableView;
@@ -10,6 +11,7 @@ import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 /*
 
@@ -106,6 +108,33 @@ public class DBStackPanel extends DetachablePanel {
         }
     }
 
+    public DBPlayerSnapshot saveState() {
+        return new State(rules, ruleTableDataModel.rules);
+    }
+
+    public void restoreState(DBPlayerSnapshot state) {
+        State s = (State)state;
+        rules.clear();
+        rules.addAll(s.rules);
+        ruleTableDataModel.rules.clear();
+        ruleTableDataModel.rules.addAll(s.names);
+    }
+
+    protected static class State implements DBPlayerSnapshot {
+
+        protected final List<DBEventEnterRule> rules;
+        protected final List<String> names;
+
+        public State(List<DBEventEnterRule> rules, List<String> names) {
+            this.rules = new ArrayList<DBEventEnterRule>(rules);
+            this.names = new ArrayList<String>(names);
+        }
+
+        public int getSize() {
+            return rules.size()+names.size();
+        }
+    }
+
     public class RuleTableDataModel extends AbstractTableModel {
 
         protected java.util.List<String> rules = new ArrayList<String>();
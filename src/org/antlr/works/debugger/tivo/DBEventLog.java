@@ -0,0 +1,681 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.tree.DBTreeToken;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Append-only list of the events received from the remote parser.
+ *
+ * Each event is encoded in a record of four ints: a header (event type,
+ * flag and grammar name) followed by the arguments of the event. The records
+ * are stored in chunks mapped from a temporary file (or allocated outside of
+ * the heap if the file cannot be created) so the heap only contains the
+ * tokens, strings and exceptions, each of them stored once in a table
+ * and referenced from the records by their position in the table.
+ *
+ * An event is decoded each time it is read: get() returns a new DBEvent
+ * with the content of the record.
+ *
+ * The log can be written to a trace file (see DBTraceWriter), either at once
+ * or while the events are received, and read back with DBTraceReader.
+ */
+
+public class DBEventLog extends AbstractList<DBEvent> {
+
+    public static final int RECORD_SIZE = 16;
+    public static final int RECORDS_PER_CHUNK = 1 << 16;
+
+    private static final int CHUNK_SIZE = RECORD_SIZE*RECORDS_PER_CHUNK;
+
+    private static final int TYPE_MASK = 0xFF;
+    private static final int FLAG = 0x100;
+    private static final int GRAMMAR_NAME_SHIFT = 9;
+
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    protected int size = 0;
+
+    private File file;
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private boolean mapped = true;
+
+    /** Trace file receiving the events while they are added */
+    private DBTraceWriter trace;
+    private IOException traceError;
+
+    private final List<Token> tokens = new ArrayList<Token>();
+    private final Map<Integer,Integer> tokenIndexToTokenId = new HashMap<Integer, Integer>();
+    private final Map<Integer,Integer> treeNodeToTokenId = new HashMap<Integer, Integer>();
+
+    private final List<String> strings = new ArrayList<String>();
+    private final Map<String,Integer> stringToStringId = new HashMap<String, Integer>();
+
+    /** Events that cannot be encoded (recognition exceptions and unknown events) */
+    private final List<Object> objects = new ArrayList<Object>();
+
+    public synchronized void close() {
+        if(trace != null) {
+            trace.abort();
+            trace = null;
+        }
+        closeFile();
+        chunks.clear();
+        size = 0;
+        tokens.clear();
+        tokenIndexToTokenId.clear();
+        treeNodeToTokenId.clear();
+        strings.clear();
+        stringToStringId.clear();
+        objects.clear();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Returns the number of distinct tokens referenced by the events */
+    public synchronized int getTokenCount() {
+        return tokens.size();
+    }
+
+    public synchronized boolean add(DBEvent event) {
+        int header = event.getEventType() & TYPE_MASK;
+        int a = 0;
+        int b = 0;
+        int c = 0;
+
+        switch(event.getEventType()) {
+            case DBEvent.LOCATION: {
+                DBEventLocation e = (DBEventLocation)event;
+                a = e.line;
+                b = e.pos;
+                break;
+            }
+
+            case DBEvent.CONSUME_TOKEN:
+                a = getTokenId(((DBEventConsumeToken)event).token);
+                break;
+
+            case DBEvent.CONSUME_HIDDEN_TOKEN:
+                a = getTokenId(((DBEventConsumeHiddenToken)event).token);
+                break;
+
+            case DBEvent.LT: {
+                DBEventLT e = (DBEventLT)event;
+                a = e.index;
+                b = getTokenId(e.token);
+                break;
+            }
+
+            case DBEvent.ENTER_RULE: {
+                DBEventEnterRule e = (DBEventEnterRule)event;
+                a = getStringId(e.grammarFileName);
+                b = getStringId(e.name);
+                break;
+            }
+
+            case DBEvent.EXIT_RULE: {
+                DBEventExitRule e = (DBEventExitRule)event;
+                a = getStringId(e.grammarFileName);
+                b = getStringId(e.name);
+                break;
+            }
+
+            case DBEvent.ENTER_SUBRULE:
+                a = ((DBEventEnterSubRule)event).decision;
+                break;
+
+            case DBEvent.EXIT_SUBRULE:
+                a = ((DBEventExitSubRule)event).decision;
+                break;
+
+            case DBEvent.ENTER_DECISION:
+                a = ((DBEventEnterDecision)event).decision;
+                break;
+
+            case DBEvent.EXIT_DECISION:
+                a = ((DBEventExitDecision)event).decision;
+                break;
+
+            case DBEvent.ENTER_ALT:
+                a = ((DBEventEnterAlt)event).alt;
+                break;
+
+            case DBEvent.MARK:
+                a = ((DBEventMark)event).id;
+                break;
+
+            case DBEvent.REWIND:
+                a = ((DBEventRewind)event).id;
+                break;
+
+            case DBEvent.BEGIN_BACKTRACK:
+                a = ((DBEventBeginBacktrack)event).level;
+                break;
+
+            case DBEvent.END_BACKTRACK: {
+                DBEventEndBacktrack e = (DBEventEndBacktrack)event;
+                a = e.level;
+                if(e.successful)
+                    header |= FLAG;
+                break;
+            }
+
+            case DBEvent.NIL_NODE:
+                a = ((DBEventNilNode)event).id;
+                break;
+
+            case DBEvent.ERROR_NODE: {
+                DBEventErrorNode e = (DBEventErrorNode)event;
+                a = e.id;
+                b = getStringId(e.text);
+                c = e.type;
+                break;
+            }
+
+            case DBEvent.CREATE_NODE: {
+                DBEventCreateNode e = (DBEventCreateNode)event;
+                a = e.id;
+                if(e.tokenIndex == -1) {
+                    // Imaginary token: use the text and type instead of the token index
+                    b = getStringId(e.text);
+                    c = e.type;
+                } else {
+                    header |= FLAG;
+                    b = e.tokenIndex;
+                }
+                break;
+            }
+
+            case DBEvent.BECOME_ROOT: {
+                DBEventBecomeRoot e = (DBEventBecomeRoot)event;
+                a = e.newRootID;
+                b = e.oldRootID;
+                break;
+            }
+
+            case DBEvent.ADD_CHILD: {
+                DBEventAddChild e = (DBEventAddChild)event;
+                a = e.rootID;
+                b = e.childID;
+                break;
+            }
+
+            case DBEvent.SET_TOKEN_BOUNDARIES: {
+                DBEventSetTokenBoundaries e = (DBEventSetTokenBoundaries)event;
+                a = e.id;
+                b = e.startIndex;
+                c = e.stopIndex;
+                break;
+            }
+
+            case DBEvent.BEGIN_RESYNC:
+            case DBEvent.END_RESYNC:
+            case DBEvent.COMMENCE:
+            case DBEvent.TERMINATE:
+                break;
+
+            default:
+                // Recognition exception or unknown event: keep the object itself
+                header |= FLAG;
+                a = objects.size();
+                objects.add(event);
+                break;
+        }
+
+        header |= (getStringId(event.getGrammarName())+1) << GRAMMAR_NAME_SHIFT;
+
+        ByteBuffer chunk = getChunkForAppend();
+        int offset = (size % RECORDS_PER_CHUNK)*RECORD_SIZE;
+        chunk.putInt(offset, header);
+        chunk.putInt(offset+4, a);
+        chunk.putInt(offset+8, b);
+        chunk.putInt(offset+12, c);
+        size++;
+        modCount++;
+
+        if(trace != null && size % RECORDS_PER_CHUNK == 0) {
+            try {
+                trace.writeChunk(chunk, RECORDS_PER_CHUNK);
+            } catch (IOException e) {
+                trace.abort();
+                trace = null;
+                traceError = e;
+            }
+        }
+        return true;
+    }
+
+    public synchronized DBEvent get(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+
+        ByteBuffer chunk = getChunk(index / RECORDS_PER_CHUNK);
+        int offset = (index % RECORDS_PER_CHUNK)*RECORD_SIZE;
+        int header = chunk.getInt(offset);
+        int a = chunk.getInt(offset+4);
+        int b = chunk.getInt(offset+8);
+        int c = chunk.getInt(offset+12);
+
+        int type = header & TYPE_MASK;
+        boolean flag = (header & FLAG) != 0;
+
+        DBEvent event;
+        switch(type) {
+            case DBEvent.LOCATION:
+                event = new DBEventLocation(a, b);
+                break;
+
+            case DBEvent.CONSUME_TOKEN:
+                event = new DBEventConsumeToken(tokens.get(a));
+                break;
+
+            case DBEvent.CONSUME_HIDDEN_TOKEN:
+                event = new DBEventConsumeHiddenToken(tokens.get(a));
+                break;
+
+            case DBEvent.LT:
+                event = new DBEventLT(a, tokens.get(b));
+                break;
+
+            case DBEvent.ENTER_RULE:
+                event = new DBEventEnterRule(strings.get(a), strings.get(b));
+                break;
+
+            case DBEvent.EXIT_RULE:
+                event = new DBEventExitRule(strings.get(a), strings.get(b));
+                break;
+
+            case DBEvent.ENTER_SUBRULE:
+                event = new DBEventEnterSubRule(a);
+                break;
+
+            case DBEvent.EXIT_SUBRULE:
+                event = new DBEventExitSubRule(a);
+                break;
+
+            case DBEvent.ENTER_DECISION:
+                event = new DBEventEnterDecision(a);
+                break;
+
+            case DBEvent.EXIT_DECISION:
+                event = new DBEventExitDecision(a);
+                break;
+
+            case DBEvent.ENTER_ALT:
+                event = new DBEventEnterAlt(a);
+                break;
+
+            case DBEvent.MARK:
+                event = new DBEventMark(a);
+                break;
+
+            case DBEvent.REWIND:
+                event = new DBEventRewind(a);
+                break;
+
+            case DBEvent.BEGIN_BACKTRACK:
+                event = new DBEventBeginBacktrack(a);
+                break;
+
+            case DBEvent.END_BACKTRACK:
+                event = new DBEventEndBacktrack(a, flag);
+                break;
+
+            case DBEvent.NIL_NODE:
+                event = new DBEventNilNode(a);
+                break;
+
+            case DBEvent.ERROR_NODE:
+                event = new DBEventErrorNode(a, getString(b), c);
+                break;
+
+            case DBEvent.CREATE_NODE:
+                if(flag)
+                    event = new DBEventCreateNode(a, b);
+                else
+                    event = new DBEventCreateNode(a, getString(b), c);
+                break;
+
+            case DBEvent.BECOME_ROOT:
+                event = new DBEventBecomeRoot(a, b);
+                break;
+
+            case DBEvent.ADD_CHILD:
+                event = new DBEventAddChild(a, b);
+                break;
+
+            case DBEvent.SET_TOKEN_BOUNDARIES:
+                event = new DBEventSetTokenBoundaries(a, b, c);
+                break;
+
+            default:
+                if(flag)
+                    return (DBEvent)objects.get(a);
+                event = new DBEvent(type);
+                break;
+        }
+
+        if(type != DBEvent.ENTER_RULE)
+            event.setGrammarName(getString((header >>> GRAMMAR_NAME_SHIFT)-1));
+
+        return event;
+    }
+
+    /** Starts writing the events to a trace file. The events already in the log are
+     * written first, the following ones as soon as a chunk is full.
+     */
+    public synchronized void startTrace(File file) throws IOException {
+        closeTrace();
+        traceError = null;
+        trace = new DBTraceWriter(file);
+        int count = size / RECORDS_PER_CHUNK;
+        for(int index=0; index<count; index++) {
+            trace.writeChunk(chunks.get(index), RECORDS_PER_CHUNK);
+        }
+    }
+
+    /** Writes the remaining events and the tables and closes the trace file */
+    public synchronized void closeTrace() throws IOException {
+        if(traceError != null) {
+            IOException e = traceError;
+            traceError = null;
+            throw e;
+        }
+        if(trace == null)
+            return;
+
+        try {
+            int remaining = size % RECORDS_PER_CHUNK;
+            if(remaining > 0)
+                trace.writeChunk(chunks.get(size / RECORDS_PER_CHUNK), remaining);
+            trace.close(this);
+        } catch (IOException e) {
+            trace.abort();
+            throw e;
+        } finally {
+            trace = null;
+        }
+    }
+
+    /** Writes all the events to a trace file */
+    public synchronized void writeTrace(File file) throws IOException {
+        DBTraceWriter writer = new DBTraceWriter(file);
+        try {
+            for(int index=0; index*RECORDS_PER_CHUNK<size; index++) {
+                writer.writeChunk(chunks.get(index), Math.min(RECORDS_PER_CHUNK, size-index*RECORDS_PER_CHUNK));
+            }
+            writer.close(this);
+        } catch (IOException e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    protected ByteBuffer getChunk(int index) {
+        return chunks.get(index);
+    }
+
+    protected void writeTables(DataOutputStream out) throws IOException {
+        out.writeInt(tokens.size());
+        for (Token token : tokens) {
+            if(token instanceof DBTreeToken) {
+                DBTreeToken t = (DBTreeToken) token;
+                out.writeBoolean(true);
+                out.writeInt(t.ID);
+                out.writeInt(t.getTokenIndex());
+                out.writeInt(t.getType());
+                out.writeInt(t.getLine());
+                out.writeInt(t.getCharPositionInLine());
+            } else {
+                out.writeBoolean(false);
+                out.writeInt(token.getTokenIndex());
+                out.writeInt(token.getType());
+                out.writeInt(token.getChannel());
+                out.writeInt(token.getLine());
+                out.writeInt(token.getCharPositionInLine());
+            }
+            writeString(out, token.getText());
+        }
+
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+
+        out.writeInt(objects.size());
+        for (Object object : objects) {
+            DBEvent event = (DBEvent) object;
+            out.writeInt(event.getEventType());
+            if(event instanceof DBEventRecognitionException) {
+                // Only the fields sent by the remote parser
+                RecognitionException e = ((DBEventRecognitionException) event).e;
+                writeString(out, e.getClass().getName());
+                out.writeInt(e.index);
+                out.writeInt(e.line);
+                out.writeInt(e.charPositionInLine);
+            }
+            writeString(out, event.getGrammarName());
+        }
+    }
+
+    protected void readTables(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for(int i=0; i<count; i++) {
+            if(in.readBoolean()) {
+                int id = in.readInt();
+                int index = in.readInt();
+                int type = in.readInt();
+                int line = in.readInt();
+                int pos = in.readInt();
+                tokens.add(new DBTreeToken(new RemoteDebugEventSocketListener.ProxyTree(id, type, line, pos, index, readString(in))));
+            } else {
+                int index = in.readInt();
+                int type = in.readInt();
+                int channel = in.readInt();
+                int line = in.readInt();
+                int pos = in.readInt();
+                tokens.add(new RemoteDebugEventSocketListener.ProxyToken(index, type, channel, line, pos, readString(in)));
+            }
+        }
+
+        count = in.readInt();
+        for(int i=0; i<count; i++) {
+            strings.add(readString(in));
+        }
+
+        count = in.readInt();
+        for(int i=0; i<count; i++) {
+            int type = in.readInt();
+            DBEvent event;
+            if(type == DBEvent.RECOGNITION_EXCEPTION) {
+                RecognitionException e = createRecognitionException(readString(in));
+                e.index = in.readInt();
+                e.line = in.readInt();
+                e.charPositionInLine = in.readInt();
+                event = new DBEventRecognitionException(e);
+            } else {
+                event = new DBEvent(type);
+            }
+            event.setGrammarName(readString(in));
+            objects.add(event);
+        }
+    }
+
+    /** Creates the exception the same way the remote listener does */
+    private static RecognitionException createRecognitionException(String className) {
+        try {
+            return (RecognitionException)Class.forName(className).newInstance();
+        } catch (Exception e) {
+            return new RecognitionException();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if(s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length == -1)
+            return null;
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    /** Returns the position of the token in the table of tokens. A token already
+     * in the table (same index and content) is not added again.
+     */
+    private int getTokenId(Token token) {
+        Map<Integer,Integer> ids;
+        int key;
+        if(token instanceof DBTreeToken) {
+            ids = treeNodeToTokenId;
+            key = ((DBTreeToken)token).ID;
+        } else {
+            ids = tokenIndexToTokenId;
+            key = token.getTokenIndex();
+        }
+
+        Integer id = ids.get(key);
+        if(id != null && isSameToken(tokens.get(id), token))
+            return id;
+
+        id = tokens.size();
+        tokens.add(token);
+        ids.put(key, id);
+        return id;
+    }
+
+    private static boolean isSameToken(Token t1, Token t2) {
+        if(t1.getClass() != t2.getClass())
+            return false;
+
+        if(t1.getType() != t2.getType() || t1.getChannel() != t2.getChannel() ||
+                t1.getLine() != t2.getLine() || t1.getCharPositionInLine() != t2.getCharPositionInLine())
+            return false;
+
+        String text = t1.getText();
+        return text == null?t2.getText() == null:text.equals(t2.getText());
+    }
+
+    /** Returns the position of the string in the table of strings or -1 if the string is null */
+    private int getStringId(String s) {
+        if(s == null)
+            return -1;
+
+        Integer id = stringToStringId.get(s);
+        if(id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringToStringId.put(s, id);
+        }
+        return id;
+    }
+
+    private String getString(int id) {
+        return id == -1?null:strings.get(id);
+    }
+
+    private ByteBuffer getChunkForAppend() {
+        int index = size / RECORDS_PER_CHUNK;
+        if(index < chunks.size())
+            return chunks.get(index);
+
+        if(mapped && channel == null)
+            openFile();
+
+        ByteBuffer chunk = null;
+        if(channel != null) {
+            try {
+                chunk = channel.map(FileChannel.MapMode.READ_WRITE, (long)index*CHUNK_SIZE, CHUNK_SIZE);
+            } catch (IOException e) {
+                closeFile();
+            }
+        }
+        if(chunk == null)
+            chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+        chunks.add(chunk);
+        return chunk;
+    }
+
+    private void openFile() {
+        try {
+            file = File.createTempFile("antlrworks-events", ".log");
+            file.deleteOnExit();
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            channel = randomAccessFile.getChannel();
+        } catch (IOException e) {
+            // Use memory outside of the heap instead
+            closeFile();
+        }
+    }
+
+    private void closeFile() {
+        try {
+            if(randomAccessFile != null)
+                randomAccessFile.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        if(file != null)
+            file.delete();
+
+        randomAccessFile = null;
+        channel = null;
+        file = null;
+        mapped = false;
+    }
+
+}
@@ -0,0 +1,154 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.debugger.events.DBEvent;
+
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/** Single-producer single-consumer ring buffer used to hand the events received
+ * by the socket thread to the recorder thread without taking a lock.
+ *
+ * The producer only writes the tail and the consumer only writes the head: the
+ * volatile write of the tail publishes the slot it was written to. A thread
+ * parks when the ring is full (producer) or empty (consumer) and is unparked
+ * by the other one.
+ */
+
+public class DBEventRing {
+
+    private static final long PARK_NANOS = 10*1000*1000;
+
+    private final DBEvent[] buffer;
+    private final int mask;
+
+    /** Position of the next event written by the producer */
+    private volatile long tail = 0;
+    /** Position of the next event read by the consumer */
+    private volatile long head = 0;
+
+    private volatile boolean closed = false;
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+
+    public DBEventRing(int capacity) {
+        if(capacity <= 0 || (capacity & (capacity-1)) != 0)
+            throw new IllegalArgumentException("Capacity must be a power of two: "+capacity);
+
+        buffer = new DBEvent[capacity];
+        mask = capacity-1;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /** Adds an event, waiting while the ring is full. Must only be called by
+     * the producer thread. Returns false if the ring is closed.
+     */
+    public boolean put(DBEvent event) {
+        long t = tail;
+        while(t-head == buffer.length) {
+            if(closed)
+                return false;
+
+            waitingProducer = Thread.currentThread();
+            if(t-head == buffer.length && !closed)
+                LockSupport.parkNanos(PARK_NANOS);
+            waitingProducer = null;
+        }
+        if(closed)
+            return false;
+
+        buffer[(int)t & mask] = event;
+        tail = t+1;
+
+        Thread consumer = waitingConsumer;
+        if(consumer != null)
+            LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /** Moves up to max events to the batch, waiting until at least one is available.
+     * Must only be called by the consumer thread. Returns false if the ring is
+     * closed and empty.
+     */
+    public boolean drainTo(List<DBEvent> batch, int max) {
+        long h = head;
+        while(tail == h) {
+            if(closed)
+                return false;
+
+            waitingConsumer = Thread.currentThread();
+            if(tail == h && !closed)
+                LockSupport.parkNanos(PARK_NANOS);
+            waitingConsumer = null;
+        }
+
+        int count = (int)Math.min(tail-h, max);
+        for(int i=0; i<count; i++) {
+            int index = (int)(h+i) & mask;
+            batch.add(buffer[index]);
+            buffer[index] = null;
+        }
+        head = h+count;
+
+        Thread producer = waitingProducer;
+        if(producer != null)
+            LockSupport.unpark(producer);
+        return true;
+    }
+
+    /** Returns the number of events waiting in the ring */
+    public int size() {
+        return (int)(tail-head);
+    }
+
+    /** Closes the ring: the waiting threads return and the events put after
+     * are ignored. The events already in the ring can still be drained.
+     */
+    public void close() {
+        closed = true;
+
+        Thread thread = waitingProducer;
+        if(thread != null)
+            LockSupport.unpark(thread);
+        thread = waitingConsumer;
+        if(thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
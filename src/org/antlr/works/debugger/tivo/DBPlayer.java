@@ -51,6 +51,8 @@ public class DBPlayer {
     protected int resyncing = 0;
     protected int eventPlayedCount = 0;
 
+    protected DBPlayerCheckpoints checkpoints = new DBPlayerCheckpoints();
+
     public DBPlayer(DebuggerTab debuggerTab) {
         this.debuggerTab = debuggerTab;
         contextInfo = new DBPlayerContextInfo();
@@ -69,6 +71,10 @@ public class DBPlayer {
         return contextInfo;
     }
 
+    public DBPlayerCheckpoints getCheckpoints() {
+        return checkpoints;
+    }
+
     public synchronized void resetPlayEvents(boolean first) {
         debuggerTab.resetGUI();
 
@@ -76,9 +82,11 @@ public class DBPlayer {
          the events are reset (when the debugger starts).
          Then, keep rewinding the input text so already received
          tokens are displayed */
-        if(first)
+        if(first) {
             processor.reset();
-        else
+            /** The checkpoints belong to the previous events */
+            checkpoints.clear();
+        } else
             processor.rewindAll();
 
         contextInfo.clear();
@@ -88,12 +96,35 @@ public class DBPlayer {
         eventPlayedCount = 0;
     }
 
+    /** Restores the state of the player at the last checkpoint before
+     * <code>position</code> so only the events after the checkpoint have
+     * to be played again. Resets the player if there is no such checkpoint.
+     */
+    public synchronized void rewindPlayEvents(int position) {
+        DBPlayerCheckpoint checkpoint = checkpoints.getCheckpoint(position);
+        if(checkpoint == null) {
+            resetPlayEvents(false);
+            return;
+        }
+
+        debuggerTab.playerRestoreState(checkpoint);
+        processor.restoreState(checkpoint.processorState);
+
+        contextInfo = checkpoint.contextInfo.copy();
+        markStack = DBPlayerCheckpoint.copyStack(checkpoint.markStack);
+
+        resyncing = checkpoint.resyncing;
+        lastLocationEvent = checkpoint.lastLocationEvent;
+        eventPlayedCount = checkpoint.position;
+    }
+
     public void playEvents(List events, int lastEventPosition, boolean reset) {
         if(reset)
-            resetPlayEvents(false);
+            rewindPlayEvents(lastEventPosition);
 
+        int played = eventPlayedCount;
         int lastIndex = lastEventPosition - 1;
-        for(int i=eventPlayedCount; i< lastEventPosition; i++) {
+        for(int i=played; i< lastEventPosition; i++) {
             DBEvent event = (DBEvent)events.get(i);
 
             try {
@@ -102,15 +133,31 @@ public class DBPlayer {
                 debuggerTab.getConsole().println(e);
             }
 
-            debuggerTab.addEvent(event, contextInfo);
             if(i == lastIndex) {
                 // Last event, play the location
                 playLocation();
             }
+
+            if(checkpoints.shouldSave(i+1))
+                saveCheckpoint(i+1);
+        }
+
+        if(reset && played == lastEventPosition && lastEventPosition > 0) {
+            // Restored exactly at a checkpoint: no event has been played
+            // so the location has to be displayed again
+            playLocation();
         }
         eventPlayedCount = lastEventPosition;
     }
 
+    public void saveCheckpoint(int position) {
+        DBPlayerCheckpoint checkpoint = new DBPlayerCheckpoint(position, contextInfo, markStack,
+                resyncing, lastLocationEvent);
+        checkpoint.processorState = processor.saveState();
+        debuggerTab.playerSaveState(checkpoint);
+        checkpoints.add(checkpoint);
+    }
+
     public void playEvent(DBEvent event) {
         switch(event.getEventType()) {
             case DBEvent.ENTER_RULE:
@@ -0,0 +1,85 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.debugger.events.DBEventLocation;
+
+import java.util.Stack;
+
+/** State of the player after a given number of events. The
+ * player restores the nearest checkpoint and plays only the events
+ * following it instead of playing all the events from the beginning.
+ */
+
+public class DBPlayerCheckpoint {
+
+    /** Number of events played when the checkpoint was saved */
+    public final int position;
+
+    public final DBPlayerContextInfo contextInfo;
+    public final Stack<Integer> markStack;
+    public final int resyncing;
+    public final DBEventLocation lastLocationEvent;
+
+    public DBPlayerSnapshot processorState;
+    public DBPlayerSnapshot stackState;
+    public DBPlayerSnapshot parseTreeState;
+    public DBPlayerSnapshot astState;
+
+    public DBPlayerCheckpoint(int position, DBPlayerContextInfo contextInfo, Stack<Integer> markStack,
+                              int resyncing, DBEventLocation lastLocationEvent)
+    {
+        this.position = position;
+        this.contextInfo = contextInfo.copy();
+        this.markStack = copyStack(markStack);
+        this.resyncing = resyncing;
+        this.lastLocationEvent = lastLocationEvent;
+    }
+
+    /** Returns the number of elements copied in this checkpoint */
+    public int getSize() {
+        return contextInfo.size()+markStack.size()
+                +getSize(processorState)+getSize(stackState)
+                +getSize(parseTreeState)+getSize(astState);
+    }
+
+    public static Stack<Integer> copyStack(Stack<Integer> stack) {
+        Stack<Integer> copy = new Stack<Integer>();
+        copy.addAll(stack);
+        return copy;
+    }
+
+    private static int getSize(DBPlayerSnapshot snapshot) {
+        return snapshot == null?0:snapshot.getSize();
+    }
+
+}
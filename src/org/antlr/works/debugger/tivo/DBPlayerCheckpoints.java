@@ -0,0 +1,160 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Checkpoints saved by the player every <code>interval</code> events.
+ *
+ * The memory used by the checkpoints is estimated from the number of
+ * elements they contain. When it exceeds the budget, every other checkpoint
+ * is dropped and the interval is doubled: the checkpoints stay evenly
+ * spaced and the number of events to replay after a restore grows
+ * instead of the memory.
+ */
+
+public class DBPlayerCheckpoints {
+
+    public static final int DEFAULT_INTERVAL = 1000;
+    public static final long DEFAULT_MEMORY_BUDGET = 64*1024*1024;
+
+    /** Approximate number of bytes used by one element of a checkpoint */
+    public static final int ELEMENT_SIZE = 64;
+
+    private final List<DBPlayerCheckpoint> checkpoints = new ArrayList<DBPlayerCheckpoint>();
+
+    private int initialInterval = DEFAULT_INTERVAL;
+    private int interval = DEFAULT_INTERVAL;
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    private long memoryUsed = 0;
+
+    public void setInterval(int interval) {
+        this.initialInterval = Math.max(1, interval);
+        clear();
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public void setMemoryBudget(long budget) {
+        this.memoryBudget = budget;
+        reduce();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public int size() {
+        return checkpoints.size();
+    }
+
+    public DBPlayerCheckpoint get(int index) {
+        return checkpoints.get(index);
+    }
+
+    public void clear() {
+        checkpoints.clear();
+        interval = initialInterval;
+        memoryUsed = 0;
+    }
+
+    /** Returns true if a checkpoint should be saved after
+     * <code>position</code> events have been played.
+     */
+    public boolean shouldSave(int position) {
+        if(position <= 0 || position % interval != 0)
+            return false;
+
+        return checkpoints.isEmpty() || checkpoints.get(checkpoints.size()-1).position < position;
+    }
+
+    public void add(DBPlayerCheckpoint checkpoint) {
+        long size = getMemorySize(checkpoint);
+        if(size > memoryBudget) {
+            // Never keep a checkpoint larger than the whole budget
+            return;
+        }
+        checkpoints.add(checkpoint);
+        memoryUsed += size;
+        reduce();
+    }
+
+    /** Returns the last checkpoint saved at or before <code>position</code> or
+     * null if there is none.
+     */
+    public DBPlayerCheckpoint getCheckpoint(int position) {
+        int low = 0;
+        int high = checkpoints.size()-1;
+        DBPlayerCheckpoint found = null;
+        while(low <= high) {
+            int middle = (low+high) >>> 1;
+            DBPlayerCheckpoint c = checkpoints.get(middle);
+            if(c.position <= position) {
+                found = c;
+                low = middle+1;
+            } else {
+                high = middle-1;
+            }
+        }
+        return found;
+    }
+
+    private void reduce() {
+        while(memoryUsed > memoryBudget && checkpoints.size() > 1) {
+            List<DBPlayerCheckpoint> kept = new ArrayList<DBPlayerCheckpoint>();
+            memoryUsed = 0;
+            for(int index=1; index<checkpoints.size(); index+=2) {
+                DBPlayerCheckpoint c = checkpoints.get(index);
+                kept.add(c);
+                memoryUsed += getMemorySize(c);
+            }
+            checkpoints.clear();
+            checkpoints.addAll(kept);
+            interval *= 2;
+        }
+        if(memoryUsed > memoryBudget) {
+            clear();
+        }
+    }
+
+    private static long getMemorySize(DBPlayerCheckpoint checkpoint) {
+        return (long)checkpoint.getSize()*ELEMENT_SIZE;
+    }
+
+}
@@ -1,5 +1,7 @@
 package org.antlr.works.debugger.tivo;
 
+import org.antlr.works.debugger.events.*;
+
 import java.util.Stack;
 /*
 
@@ -104,4 +106,61 @@ public class DBPlayerContextInfo {
         mark.clear();
         backtrack.clear();
     }
+
+    /** Updates the context with an event the same way DBPlayer does when
+     * the event is played. Used to compute the context of any event from the
+     * context saved in the previous checkpoint.
+     */
+    public void apply(DBEvent event) {
+        switch(event.getEventType()) {
+            case DBEvent.ENTER_SUBRULE:
+                enterSubrule(((DBEventEnterSubRule)event).decision);
+                break;
+
+            case DBEvent.EXIT_SUBRULE:
+                if(!subrule.isEmpty())
+                    exitSubrule();
+                break;
+
+            case DBEvent.ENTER_DECISION:
+                enterDecision(((DBEventEnterDecision)event).decision);
+                break;
+
+            case DBEvent.EXIT_DECISION:
+                if(!decision.isEmpty())
+                    exitDecision();
+                break;
+
+            case DBEvent.MARK:
+                mark(((DBEventMark)event).id);
+                break;
+
+            case DBEvent.REWIND:
+                if(!((DBEventRewind)event).rewindToLastMark() && !mark.isEmpty())
+                    rewind();
+                break;
+
+            case DBEvent.BEGIN_BACKTRACK:
+                beginBacktrack(((DBEventBeginBacktrack)event).level);
+                break;
+
+            case DBEvent.END_BACKTRACK:
+                if(!backtrack.isEmpty())
+                    endBacktrack();
+                break;
+        }
+    }
+
+    public DBPlayerContextInfo copy() {
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        info.subrule.addAll(subrule);
+        info.decision.addAll(decision);
+        info.mark.addAll(mark);
+        info.backtrack.addAll(backtrack);
+        return info;
+    }
+
+    public int size() {
+        return subrule.size()+decision.size()+mark.size()+backtrack.size();
+    }
 }
@@ -45,6 +45,7 @@ import org.antlr.xjlib.appkit.utils.XJDialogProgressDelegate;
 import org.antlr.xjlib.foundation.XJUtils;
 
 import javax.swing.*;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -58,8 +59,11 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     public static final int MAX_RETRY = 12;
 
+    public static final int EVENT_RING_CAPACITY = 1 << 12;
+    public static final int EVENT_BATCH_SIZE = 256;
+
     protected DebuggerTab debuggerTab;
-    protected int status = STATUS_STOPPED;
+    protected volatile int status = STATUS_STOPPED;
     protected boolean cancelled;
 
 	public static class FixBugRemoteDebugEventSocketListener
@@ -90,9 +94,13 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     protected String address;
     protected int port;
 
-    protected List<DBEvent> events;
+    protected DBEventLog events;
+    /** Events replaced by reset() and still displayed by the GUI until it is reset */
+    protected DBEventLog replacedEvents;
+    protected File traceFile;
     protected int position;
     protected NumberSet breakEvents = new NumberSet();
+    protected volatile BitSet breakEventTypes = new BitSet();
     protected int stoppedOnEvent = DBEvent.NO_EVENT;
     protected boolean ignoreBreakpoints = false;
     protected StepOver stepOver = new StepOver();
@@ -104,6 +112,15 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     protected DBRecorderEventListener eventListener;
     protected RemoteDebugEventSocketListener listener;
 
+    /** Events received by the socket thread and not yet recorded */
+    protected volatile DBEventRing ring;
+
+    /** Number of recorded events visible to the event dispatch thread. The events
+     * are published by batch so the event dispatch thread never reads an event
+     * while it is being recorded.
+     */
+    protected volatile int published;
+
     protected XJDialogProgress progress;
 
     /** This flag is used to indicate that the debugger received the terminate event.
@@ -129,6 +146,8 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     public void close() {
         debuggerTab = null;
+        events.close();
+        closeReplacedEvents();
     }
 
     public void showProgress() {
@@ -156,51 +175,133 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     }
 
     public synchronized void reset() {
-        events = Collections.synchronizedList(new ArrayList<DBEvent>());
+        reset(new DBEventLog());
+    }
+
+    /** Replaces the events. The previous events are closed by closeReplacedEvents()
+     * because the event dispatch thread may display them until the GUI is reset.
+     */
+    protected void reset(DBEventLog log) {
+        if(events != null) {
+            closeReplacedEvents();
+            replacedEvents = events;
+        }
+        events = log;
+        published = 0;
         position = -1;
         currentTokenIndex = -1;
         remoteParserStateWarned = false;
     }
 
+    /** Sets the trace file receiving the events of the next session. If none is set,
+     * the trace file of the preferences is used, if any.
+     */
+    public void setTraceFile(File file) {
+        this.traceFile = file;
+    }
+
+    public File getTraceFile() {
+        if(traceFile != null)
+            return traceFile;
+
+        String path = AWPrefs.getDebuggerTraceFile();
+        if(path == null || path.length() == 0)
+            return null;
+        else
+            return new File(path);
+    }
+
+    public synchronized void startTrace() {
+        File file = getTraceFile();
+        if(file == null)
+            return;
+
+        try {
+            events.startTrace(file);
+        } catch (IOException e) {
+            debuggerTab.getConsole().println("Cannot write the trace file "+file+": "+e, Console.LEVEL_ERROR);
+        }
+    }
+
+    public synchronized void closeTrace() {
+        try {
+            events.closeTrace();
+        } catch (IOException e) {
+            debuggerTab.getConsole().println("Cannot write the trace file: "+e, Console.LEVEL_ERROR);
+        }
+    }
+
+    /** Writes the events received so far to a trace file */
+    public synchronized void saveTrace(File file) throws IOException {
+        events.writeTrace(file);
+    }
+
+    /** Replaces the events by the ones of a trace (see DBTraceReader) and breaks
+     * on the first event. The trace is played as if the remote parser had terminated.
+     */
+    public synchronized void openTrace(DBEventLog trace) {
+        reset(trace);
+        // Called from the event dispatch thread once the GUI has been reset
+        closeReplacedEvents();
+        published = trace.size();
+        grammarNamesStack.clear();
+        debuggerReceivedTerminateEvent = true;
+        position = 0;
+        setStoppedOnEvent(DBEvent.COMMENCE);
+        setStatus(STATUS_BREAK);
+        playEvents(true);
+    }
+
+    /** Closes the events replaced by the last reset. Must be called from the event
+     * dispatch thread after the GUI has been reset.
+     */
+    public synchronized void closeReplacedEvents() {
+        if(replacedEvents != null) {
+            replacedEvents.close();
+            replacedEvents = null;
+        }
+    }
+
     public synchronized DBEvent getEvent() {
-        if(position<0 || position>=events.size())
+        if(position<0 || position>=published)
             return null;
         else
             return events.get(position);
     }
 
     public synchronized DBEvent getLastEvent() {
-        return events.get(events.size()-1);
+        return events.get(published-1);
     }
 
     public synchronized List<DBEvent> getCurrentEvents() {
-        if(events.size() == 0)
-            return events;
-
-        int toIndex = position+1;
-        if(toIndex >= events.size())
-            toIndex = events.size();
-
-        return events.subList(0, toIndex);
+        return events.subList(0, getCurrentEventPosition());
     }
 
     public synchronized int getCurrentEventPosition() {
-        if(events.size() == 0)
+        if(published == 0)
             return 0;
 
         int toIndex = position+1;
-        if(toIndex >= events.size())
-            toIndex = events.size();
+        if(toIndex >= published)
+            toIndex = published;
 
         return(toIndex);
     }
 
     public void setPositionToEnd() {
-        position = events.size()-1;
+        position = published-1;
     }
 
     public void setBreakEvents(Set events) {
         this.breakEvents.replaceAll(events);
+
+        BitSet types = new BitSet();
+        for(Object type : events) {
+            int t = (Integer)type;
+            if(t >= 0)
+                types.set(t);
+        }
+        breakEventTypes = types;
     }
 
     public Set getBreakEvents() {
@@ -243,7 +344,10 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
 
     /** Return the event type that causes the break */
     public int getOnBreakEvent() {
-        DBEvent event = getEvent();
+        return getOnBreakEvent(getEvent());
+    }
+
+    public int getOnBreakEvent(DBEvent event) {
         if(event == null)
             return DBEvent.NO_EVENT;
 
@@ -259,7 +363,8 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         if(event.getEventType() == DBEvent.COMMENCE)
             return event.getEventType();
 
-        if(breakEvents.contains(DBEvent.convertToInteger(DBEvent.ALL)))
+        BitSet types = breakEventTypes;
+        if(types.get(DBEvent.ALL))
             return event.getEventType();
 
         // Stop on debugger breakpoints
@@ -273,11 +378,11 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             if(debuggerTab.isBreakpointAtToken(((DBEventConsumeToken)event).token))
                 return event.getEventType();
 
-        if(event.getEventType() == DBEvent.CONSUME_TOKEN && breakEvents.contains(DBEvent.convertToInteger(DBEvent.CONSUME_TOKEN))) {
+        if(event.getEventType() == DBEvent.CONSUME_TOKEN && types.get(DBEvent.CONSUME_TOKEN)) {
             // Breaks only on consume token from channel 0
             return ((DBEventConsumeToken)event).token.getChannel() == Token.DEFAULT_CHANNEL?event.getEventType() :DBEvent.NO_EVENT;
         } else
-            return breakEvents.contains(DBEvent.convertToInteger(event.getEventType()))?event.getEventType() :DBEvent.NO_EVENT;
+            return types.get(event.getEventType())?event.getEventType() :DBEvent.NO_EVENT;
     }
 
     public synchronized void setStatus(int status) {
@@ -348,8 +453,8 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             position = 0;
             return false;
         }
-        if(position >= events.size()) {
-            position = events.size()-1;
+        if(position >= published) {
+            position = published-1;
             return false;
         }
 
@@ -443,9 +548,13 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
             debuggerReceivedTerminateEvent = false;
 
             reset();
+            startTrace();
+            ring = new DBEventRing(EVENT_RING_CAPACITY);
             listener.start();
 
             connectionSuccess();
+
+            recordEvents();
         }
     }
 
@@ -486,6 +595,9 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
         // and this event can be ignored
         if(debuggerTab == null) return;
 
+        closeTrace();
+        if(ring != null)
+            ring.close();
         setStatus(STATUS_STOPPED);
         debuggerTab.recorderDidStop();
     }
@@ -565,13 +677,88 @@ public class DBRecorder implements Runnable, XJDialogProgressDelegate {
     }
 
     /** This method is called by DBRecorderEventListener for each event received from
-     * the remote parser. It is running on another thread than the event thread.
+     * the remote parser. It is running on the socket thread and only hands the event
+     * to the recorder thread (see recordEvents()).
      */
-    public synchronized void listenerEvent(DBEvent event) {
-        events.add(event);
+    public void listenerEvent(DBEvent event) {
+        DBEventRing r = ring;
+        if(r != null)
+            r.put(event);
+    }
+
+    /** This method runs on the recorder thread until the terminate event is received
+     * or the debugger is stopped. The events are drained from the ring by batch and
+     * published at the end of each batch, or before an event that changes the state
+     * of the recorder.
+     */
+    protected void recordEvents() {
+        DBEventRing r = ring;
+        List<DBEvent> batch = new ArrayList<DBEvent>(EVENT_BATCH_SIZE);
+        boolean terminated = false;
+        while(!terminated && r.drainTo(batch, EVENT_BATCH_SIZE)) {
+            for(DBEvent event : batch) {
+                recordEvent(event);
+                if(event.getEventType() == DBEvent.TERMINATE) {
+                    terminated = true;
+                    break;
+                }
+            }
+            batch.clear();
+            publishEvents();
+        }
+        r.close();
+    }
+
+    protected void recordEvent(DBEvent event) {
+        /* The grammar name is encoded with the event so it must be set before */
         handleGrammarName(event);
+        events.add(event);
         recordIndexes(event);
+
+        if(needsProcessing(event))
+            processEvent(event);
+    }
+
+    /** Makes the recorded events visible to the event dispatch thread */
+    protected synchronized void publishEvents() {
+        published = events.size();
         setPositionToEnd();
+    }
+
+    /** Returns true if the event can change the state of the recorder. This method
+     * does not need the lock: most of the events are only published with their batch.
+     */
+    protected boolean needsProcessing(DBEvent event) {
+        switch(status) {
+            case STATUS_LAUNCHING:
+            case STATUS_STOPPING:
+                return true;
+
+            case STATUS_RUNNING:
+                break;
+
+            default:
+                return false;
+        }
+
+        switch(event.getEventType()) {
+            case DBEvent.COMMENCE:
+            case DBEvent.TERMINATE:
+                return true;
+        }
+
+        /* The step over state is only changed with the lock */
+        if(stepOver.isSteppingOver())
+            return true;
+
+        if(!remoteParserStateWarned && listener != null && listener.tokenIndexesAreInvalid())
+            return true;
+
+        return getOnBreakEvent(event) != DBEvent.NO_EVENT;
+    }
+
+    protected synchronized void processEvent(DBEvent event) {
+        publishEvents();
 
         switch(getStatus()) {
             case STATUS_LAUNCHING:
@@ -0,0 +1,156 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.debugger.events.DBEvent;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** Read-only event log backed by a trace file written by DBTraceWriter.
+ *
+ * Opening a trace only reads the trailer, the index and the tables: the chunks
+ * are decompressed when an event they contain is requested, and only the most
+ * recently used ones are kept in memory.
+ */
+
+public class DBTraceReader extends DBEventLog {
+
+    public static final int CACHED_CHUNKS = 16;
+
+    private final RandomAccessFile file;
+    private final long[] offsets;
+    private final int[] lengths;
+
+    private final Map<Integer,ByteBuffer> cache = new LinkedHashMap<Integer, ByteBuffer>(CACHED_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+            return size() > CACHED_CHUNKS;
+        }
+    };
+
+    public DBTraceReader(File f) throws IOException {
+        file = new RandomAccessFile(f, "r");
+        try {
+            if(file.length() < 8+DBTraceWriter.TRAILER_SIZE || file.readInt() != DBTraceWriter.MAGIC)
+                throw new IOException("Not a trace file: "+f);
+            if(file.readInt() != DBTraceWriter.VERSION)
+                throw new IOException("Unsupported trace file version: "+f);
+
+            file.seek(file.length()-DBTraceWriter.TRAILER_SIZE);
+            long tablesOffset = file.readLong();
+            long indexOffset = file.readLong();
+            int events = file.readInt();
+            int recordsPerChunk = file.readInt();
+            if(file.readInt() != DBTraceWriter.MAGIC || recordsPerChunk != RECORDS_PER_CHUNK)
+                throw new IOException("Invalid trace file: "+f);
+
+            file.seek(indexOffset);
+            int count = file.readInt();
+            offsets = new long[count];
+            lengths = new int[count];
+            for(int index=0; index<count; index++) {
+                offsets[index] = file.readLong();
+                lengths[index] = file.readInt();
+            }
+
+            byte[] tables = new byte[(int)(indexOffset-tablesOffset)];
+            file.seek(tablesOffset);
+            file.readFully(tables);
+            readTables(new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(tables))));
+
+            size = events;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        cache.clear();
+        try {
+            file.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public synchronized boolean add(DBEvent event) {
+        throw new UnsupportedOperationException("A trace file is read-only");
+    }
+
+    @Override
+    protected ByteBuffer getChunk(int index) {
+        ByteBuffer chunk = cache.get(index);
+        if(chunk == null) {
+            try {
+                chunk = readChunk(index);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot read the trace file", e);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Cannot read the trace file", e);
+            }
+            cache.put(index, chunk);
+        }
+        return chunk;
+    }
+
+    private ByteBuffer readChunk(int index) throws IOException, DataFormatException {
+        byte[] compressed = new byte[lengths[index]];
+        file.seek(offsets[index]);
+        file.readFully(compressed);
+
+        byte[] records = new byte[RECORD_SIZE*RECORDS_PER_CHUNK];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while(!inflater.finished() && length < records.length) {
+                int count = inflater.inflate(records, length, records.length-length);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new DataFormatException("Truncated chunk "+index);
+                length += count;
+            }
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(records);
+    }
+}
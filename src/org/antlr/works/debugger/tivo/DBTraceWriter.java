@@ -0,0 +1,134 @@
+package org.antlr.works.debugger.tivo;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/** Writes the events of a DBEventLog to a trace file.
+ *
+ * The file starts with a header (magic and version) followed by the chunks of
+ * records, each of them compressed separately so a reader can decompress only
+ * the chunk containing the event it needs. The tables of the log are written
+ * after the last chunk, followed by the index giving the offset and length of
+ * each chunk. A trailer of fixed size ends the file with the offset of the
+ * tables and of the index and the number of events.
+ */
+
+public class DBTraceWriter {
+
+    public static final int MAGIC = 0x41575452; // "AWTR"
+    public static final int VERSION = 1;
+    public static final int TRAILER_SIZE = 8+8+4+4+4;
+
+    private final File file;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] input = new byte[DBEventLog.RECORD_SIZE*DBEventLog.RECORDS_PER_CHUNK];
+    private final byte[] output = new byte[64*1024];
+
+    private final List<Long> offsets = new ArrayList<Long>();
+    private final List<Integer> lengths = new ArrayList<Integer>();
+    private long offset = 0;
+    private int events = 0;
+
+    public DBTraceWriter(File file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        offset = 8;
+    }
+
+    /** Writes the first records of a chunk. Only the last chunk can be partial. */
+    public void writeChunk(ByteBuffer chunk, int records) throws IOException {
+        int length = records*DBEventLog.RECORD_SIZE;
+        ByteBuffer b = chunk.duplicate();
+        b.clear();
+        b.get(input, 0, length);
+
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int compressed = 0;
+        while(!deflater.finished()) {
+            int count = deflater.deflate(output);
+            out.write(output, 0, count);
+            compressed += count;
+        }
+
+        offsets.add(offset);
+        lengths.add(compressed);
+        offset += compressed;
+        events += records;
+    }
+
+    /** Writes the tables of the log, the index and the trailer and closes the file */
+    public void close(DBEventLog log) throws IOException {
+        long tablesOffset = offset;
+        deflater.reset();
+        DeflaterOutputStream tables = new DeflaterOutputStream(out, deflater);
+        DataOutputStream tablesOut = new DataOutputStream(tables);
+        log.writeTables(tablesOut);
+        tables.finish();
+        long indexOffset = tablesOffset+deflater.getBytesWritten();
+
+        out.writeInt(offsets.size());
+        for(int index=0; index<offsets.size(); index++) {
+            out.writeLong(offsets.get(index));
+            out.writeInt(lengths.get(index));
+        }
+
+        out.writeLong(tablesOffset);
+        out.writeLong(indexOffset);
+        out.writeInt(events);
+        out.writeInt(DBEventLog.RECORDS_PER_CHUNK);
+        out.writeInt(MAGIC);
+        out.close();
+        deflater.end();
+    }
+
+    /** Closes and removes the incomplete file */
+    public void abort() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        deflater.end();
+        file.delete();
+    }
+}
@@ -3,7 +3,9 @@ package org.antlr.works.debugger.tree;
 import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 
+import javax.swing.tree.TreeNode;
 import java.util.*;
 /*
 
@@ -165,6 +167,61 @@ public class DBASTModel {
         root.addChild(child);
     }
 
+    /* Methods used by the checkpoints */
+
+    public DBPlayerSnapshot saveState() {
+        State state = new State();
+        copy(rules, nodesMap, state.rules, state.nodesMap);
+        return state;
+    }
+
+    /** Restores a copy of the saved state: the state itself is never modified so it
+     * can be restored again.
+     */
+    public void restoreState(DBPlayerSnapshot state) {
+        State s = (State)state;
+        copy(s.rules, s.nodesMap, rules, nodesMap);
+    }
+
+    protected void copy(Stack<Rule> sourceRules, Map<Integer, ASTNode> sourceNodes,
+                        Stack<Rule> targetRules, Map<Integer, ASTNode> targetNodes)
+    {
+        Map<ASTNode, ASTNode> copies = new IdentityHashMap<ASTNode, ASTNode>();
+
+        targetRules.clear();
+        for (Rule rule : sourceRules) {
+            Stack<ASTNode> roots = new Stack<ASTNode>();
+            for (ASTNode root : rule.roots) {
+                roots.push(copyNode(root, copies));
+            }
+            targetRules.push(new Rule(rule.name, roots));
+        }
+
+        targetNodes.clear();
+        for (Map.Entry<Integer, ASTNode> entry : sourceNodes.entrySet()) {
+            targetNodes.put(entry.getKey(), copyNode(entry.getValue(), copies));
+        }
+    }
+
+    /** Copy the node with its parent and children (and so on) */
+    protected ASTNode copyNode(ASTNode node, Map<ASTNode, ASTNode> copies) {
+        ASTNode copy = copies.get(node);
+        if(copy != null)
+            return copy;
+
+        copy = new ASTNode(node);
+        copies.put(node, copy);
+
+        if(node.parentNode != null)
+            copy.parentNode = copyNode(node.parentNode, copies);
+        List<TreeNode> children = new ArrayList<TreeNode>(node.getChildCount());
+        for(int index=0; index<node.getChildCount(); index++) {
+            children.add(copyNode((ASTNode)node.getChildAt(index), copies));
+        }
+        copy.setChildren(children);
+        return copy;
+    }
+
     /* Utility methods */
 
 	protected ASTNode createNilTreeNode(int id) {
@@ -196,6 +253,17 @@ public class DBASTModel {
             return (rules.peek()).roots;
     }
 
+    /** State of the model saved in a checkpoint */
+    public static class State implements DBPlayerSnapshot {
+
+        protected Stack<Rule> rules = new Stack<Rule>();
+        protected Map<Integer, ASTNode> nodesMap = new HashMap<Integer, ASTNode>();
+
+        public int getSize() {
+            return nodesMap.size();
+        }
+    }
+
     public class Rule {
 
         public String name;
@@ -225,7 +293,16 @@ public class DBASTModel {
         public ASTNode(int id) {
             this.id = id;
             /** Children is defined in DefaultMutableTreeNode */
-            children = new Vector();
+            children = new Vector<TreeNode>();
+        }
+
+        /** Copy the node without its parent and children */
+        public ASTNode(ASTNode node) {
+            this(node.id);
+            this.nil = node.nil;
+            this.token = node.token;
+            this.location = node.location;
+            this.color = node.color;
         }
 
         /** Add a child */
@@ -243,6 +320,11 @@ public class DBASTModel {
             }
         }
 
+        /** Replace the children without changing their parent node */
+        public void setChildren(List<TreeNode> nodes) {
+            children = new Vector<TreeNode>(nodes);
+        }
+
         /** Remove a child */
         public void removeChild(ASTNode node) {
             children.remove(node);
@@ -3,6 +3,7 @@ package org.antlr.works.debugger.tree;
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 import org.antlr.works.dialog.AWPrefsDialog;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.awtree.AWTreeModel;
@@ -12,10 +13,8 @@ import org.antlr.xjlib.foundation.notification.XJNotificationObserver;
 
 import javax.swing.tree.TreeNode;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.*;
 import java.util.List;
-import java.util.Stack;
 /*
 
 [The "BSD licence"]
@@ -177,6 +176,70 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
         setLastNode(b.getLastNode());
     }
 
+    public DBPlayerSnapshot saveState() {
+        Map<TreeNode, ParseTreeNode> copies = new IdentityHashMap<TreeNode, ParseTreeNode>();
+        State state = new State();
+        copyRules(rules, state.rules, copies);
+        copyBacktracks(backtrackStack, state.backtrackStack, copies);
+        state.lastNode = lastNode == null?null:copyNode(lastNode, copies);
+        state.location = location;
+        state.size = copies.size();
+        return state;
+    }
+
+    /** Restores a copy of the saved state: the state itself is never modified so it
+     * can be restored again.
+     */
+    public void restoreState(DBPlayerSnapshot state) {
+        State s = (State)state;
+        Map<TreeNode, ParseTreeNode> copies = new IdentityHashMap<TreeNode, ParseTreeNode>();
+        clearNewNodes();
+        copyRules(s.rules, rules, copies);
+        copyBacktracks(s.backtrackStack, backtrackStack, copies);
+        setLastNode(s.lastNode == null?null:copyNode(s.lastNode, copies));
+        location = s.location;
+    }
+
+    protected static void copyRules(Stack<ParseTreeNode> source, Stack<ParseTreeNode> target, Map<TreeNode, ParseTreeNode> copies) {
+        target.clear();
+        for (ParseTreeNode node : source) {
+            target.push(copyNode(node, copies));
+        }
+    }
+
+    protected static void copyBacktracks(Stack<Backtrack> source, Stack<Backtrack> target, Map<TreeNode, ParseTreeNode> copies) {
+        target.clear();
+        for (Backtrack b : source) {
+            Backtrack copy = new Backtrack(b.level, b.lookaheadTokenColor);
+            for (DBTreeNode node : b.nodes) {
+                copy.nodes.add(copyNode(node, copies));
+            }
+            target.push(copy);
+        }
+    }
+
+    /** Copy the whole tree containing the node and returns the copy of the node */
+    protected static ParseTreeNode copyNode(TreeNode node, Map<TreeNode, ParseTreeNode> copies) {
+        ParseTreeNode copy = copies.get(node);
+        if(copy == null) {
+            TreeNode root = node;
+            while(root.getParent() != null)
+                root = root.getParent();
+            copyTree((ParseTreeNode)root, copies);
+            copy = copies.get(node);
+        }
+        return copy;
+    }
+
+    protected static ParseTreeNode copyTree(ParseTreeNode node, Map<TreeNode, ParseTreeNode> copies) {
+        ParseTreeNode copy = new ParseTreeNode(node);
+        copies.put(node, copy);
+        for(int index=0; index<node.getChildCount(); index++) {
+            copy.add(copyTree((ParseTreeNode)node.getChildAt(index), copies));
+        }
+        return copy;
+    }
+
     public void notificationFire(Object source, String name) {
         if(name.equals(AWPrefsDialog.NOTIF_PREFS_APPLIED)) {
             initColors();
@@ -202,6 +265,13 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
             super(token, location);
         }
 
+        public ParseTreeNode(ParseTreeNode node) {
+            super(node.token, node.location);
+            this.s = node.s;
+            this.e = node.e;
+            this.color = node.color;
+        }
+
         public String toString() {
             if(s != null)
                 return s;
@@ -213,6 +283,20 @@ public class DBParseTreeModel extends AWTreeModel implements XJNotificationObser
 
     }
 
+    /** State of the model saved in a checkpoint */
+    public static class State implements DBPlayerSnapshot {
+
+        protected Stack<ParseTreeNode> rules = new Stack<ParseTreeNode>();
+        protected Stack<Backtrack> backtrackStack = new Stack<Backtrack>();
+        protected TreeNode lastNode;
+        protected DBEventLocation location;
+        protected int size;
+
+        public int getSize() {
+            return size;
+        }
+    }
+
     public static class Backtrack {
 
         public int level;
@@ -2,6 +2,7 @@ package org.antlr.works.debugger.tree;
 
 import org.antlr.runtime.Token;
 import org.antlr.works.debugger.DebuggerTab;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
 import org.antlr.works.utils.DetachablePanel;
 import org.antlr.works.utils.awtree.AWTreePanel;
 import org.antlr.works.utils.awtree.AWTreePanelDelegate;
@@ -79,6 +80,15 @@ public class DBParseTreePanel extends DetachablePanel implements DBParseTreeMode
         treePanel.clear();
     }
 
+    public DBPlayerSnapshot saveState() {
+        return model.saveState();
+    }
+
+    public void restoreState(DBPlayerSnapshot state) {
+        model.restoreState(state);
+        treePanel.clear();
+    }
+
     public void updateOnBreakEvent() {
         model.fireDataChanged();
     }
@@ -3,6 +3,7 @@ package org.antlr.works.editor;
 import org.antlr.works.ate.swing.ATERenderingToken;
 import org.antlr.works.ate.swing.ATERenderingView;
 import org.antlr.works.ate.swing.ATERenderingViewDelegate;
+import org.antlr.works.ate.syntax.generic.ATESyntaxStyle;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.grammar.element.Jumpable;
 
@@ -131,7 +132,7 @@ public class GrammarEditorKit extends StyledEditorKit
         public void drawToken(ATERenderingView view, ATERenderingToken t,
                               Graphics g, FontMetrics metrics,
                               int x, int y, char c, Document doc,
-                              AttributeSet attribute, Segment text)
+                              ATESyntaxStyle style, Segment text)
         {
             g.setColor(Color.red);
             g.fillRect(x, y- metrics.getHeight()+metrics.getDescent(),
@@ -147,7 +148,7 @@ public class GrammarEditorKit extends StyledEditorKit
         public void drawToken(ATERenderingView view, ATERenderingToken t,
                               Graphics g, FontMetrics metrics,
                               int x, int y, char c, Document doc,
-                              AttributeSet attribute, Segment text)
+                              ATESyntaxStyle style, Segment text)
         {
             startX = x;
             startIndex = t.getIndex();
@@ -173,7 +174,7 @@ public class GrammarEditorKit extends StyledEditorKit
         public void drawToken(ATERenderingView view, ATERenderingToken t,
                               Graphics g, FontMetrics metrics,
                               int x, int y, char c, Document doc,
-                              AttributeSet attribute, Segment text)
+                              ATESyntaxStyle style, Segment text)
                 throws BadLocationException
         {
             g.setColor(Color.blue);
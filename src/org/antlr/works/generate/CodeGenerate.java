@@ -32,8 +32,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.generate;
 
 import org.antlr.Tool;
-import org.antlr.tool.ErrorManager;
 import org.antlr.works.components.GrammarWindow;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.ErrorListener;
@@ -89,8 +89,8 @@ public class CodeGenerate implements Runnable {
     }
 
     public boolean generate() {
-        ErrorListener el = ErrorListener.getThreadInstance();
-        ErrorManager.setErrorListener(el);
+        ErrorListener el = new ErrorListener();
+        ANTLRErrorContext context = ANTLRErrorContext.enter(el);
 
         String[] params;
         if(debug)
@@ -100,17 +100,19 @@ public class CodeGenerate implements Runnable {
 
         new File(getOutputPath()).mkdirs();
 
-        Tool antlr = new Tool(Utils.concat(params, AWPrefs.getANTLR3Options()));
-        antlr.process();
+        try {
+            Tool antlr = new Tool(Utils.concat(params, AWPrefs.getANTLR3Options()));
+            antlr.process();
 
-        boolean success = !el.hasErrors();
-        if(success) {
-            dateOfModificationOnDisk = window.getDocument().getDateOfModificationOnDisk();
+            boolean success = !el.hasErrors();
+            if(success) {
+                dateOfModificationOnDisk = window.getDocument().getDateOfModificationOnDisk();
+            }
+            lastError = el.getFirstErrorMessage();
+            return success;
+        } finally {
+            context.exit();
         }
-        lastError = el.getFirstErrorMessage();
-        el.clear();
-        ErrorManager.removeErrorListener();
-        return success;
     }
 
     public List<String> getGeneratedFileNames() throws Exception {
@@ -148,7 +150,7 @@ public class CodeGenerate implements Runnable {
         progress.setIndeterminate(true);
         progress.display();
 
-        new Thread(this).start();
+        new Thread(ANTLRErrorContext.releasing(this)).start();
     }
 
     public void generateInThreadDidTerminate() {
@@ -32,10 +32,14 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.grammar;
 
 import org.antlr.works.components.GrammarWindow;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisProgress;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.utils.Console;
 
-public class CheckGrammar implements Runnable {
+import javax.swing.*;
+
+public class CheckGrammar implements Runnable, ANTLRAnalysisProgress {
 
     private volatile CheckGrammarDelegate delegate;
     private volatile GrammarWindow window;
@@ -54,7 +58,7 @@ public class CheckGrammar implements Runnable {
     }
 
     public void check() {
-        new Thread(this).start();
+        new Thread(ANTLRErrorContext.releasing(this)).start();
     }
 
     public void cancel() {
@@ -67,7 +71,7 @@ public class CheckGrammar implements Runnable {
         delegate.checkGrammarDidBegin(this);
         GrammarResult result;
         try {
-            result = window.getGrammarEngine().analyze();
+            result = window.getGrammarEngine().analyze(this);
         } catch (Exception e) {
             window.getConsoleTab().println(e);
             // Result cannot be null, so report the exception
@@ -78,4 +82,16 @@ public class CheckGrammar implements Runnable {
         }
     }
 
+    public void analysisProgress(final int convertedDecisions, final int totalDecisions) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                GrammarWindow w = window;
+                if(w != null && !cancelled) {
+                    w.setProgress("Analyzing decision "+convertedDecisions+" of "+totalDecisions+"...",
+                            convertedDecisions, totalDecisions);
+                }
+            }
+        });
+    }
+
 }
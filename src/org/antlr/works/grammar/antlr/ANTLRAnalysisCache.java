@@ -0,0 +1,357 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.runtime.misc.Stats;
+import org.antlr.works.grammar.element.ElementImport;
+import org.antlr.works.grammar.engine.GrammarEngine;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/** Persistent cache of the analysis results of a grammar.
+ *
+ * The analysis of a large grammar can take several seconds: the cache stores on disk
+ * a compact summary of the last analysis (the errors and warnings together with the
+ * rule they belong to) so that reopening an unchanged grammar can display the rules
+ * with errors immediately, without running ANTLR again.
+ *
+ * Each entry is keyed by a digest of everything that can change the result of the
+ * analysis: the grammar text, the imported grammars, the token vocabulary and the
+ * ANTLR options. The least recently used entries are evicted when the total size of
+ * the cache exceeds its limit.
+ */
+public class ANTLRAnalysisCache {
+
+    public static final String CACHE_DIR = "cache";
+    public static final String CACHE_EXTENSION = ".analysis";
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 4*1024*1024;
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 256;
+
+    private static final int MAGIC = 0x414e4143;
+    private static final int VERSION = 2;
+
+    private static ANTLRAnalysisCache shared;
+
+    private final File directory;
+    private final long maximumSize;
+    private final int maximumEntries;
+
+    public static synchronized ANTLRAnalysisCache shared() {
+        if(shared == null) {
+            File dir = new File(System.getProperty("user.home")+File.separator+
+                    Stats.ANTLRWORKS_DIR+File.separator+CACHE_DIR);
+            shared = new ANTLRAnalysisCache(dir, DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_ENTRIES);
+        }
+        return shared;
+    }
+
+    public ANTLRAnalysisCache(File directory, long maximumSize, int maximumEntries) {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        this.maximumEntries = maximumEntries;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** Returns the key of the grammar of the engine, or null if the grammar has no text.
+     */
+    public static String computeKey(GrammarEngine engine, String[] options) {
+        String text = engine.getGrammarText();
+        if(text == null) return null;
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+
+        update(digest, String.valueOf(VERSION));
+        update(digest, String.valueOf(engine.getType()));
+        update(digest, text);
+
+        if(options != null) {
+            for(String option : options) {
+                update(digest, option);
+            }
+        }
+
+        // The imported grammars and the token vocabulary are resolved
+        // the same way ANTLR does, relative to the grammar file
+        for(ElementImport i : engine.getImports()) {
+            update(digest, i.getName());
+            updateWithFile(digest, engine.getTokenVocabFile(i.getName()+".g"));
+        }
+
+        String tokenVocab = engine.getTokenVocab();
+        if(tokenVocab != null) {
+            update(digest, tokenVocab);
+            updateWithFile(digest, engine.getTokenVocabFile(tokenVocab+".tokens"));
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        try {
+            digest.update(s.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            digest.update(s.getBytes());
+        }
+        // separator so that two consecutive strings cannot be confused with their concatenation
+        digest.update((byte)0);
+    }
+
+    private static void updateWithFile(MessageDigest digest, String path) {
+        if(path == null) {
+            digest.update((byte)0);
+            return;
+        }
+
+        byte[] buffer = new byte[8192];
+        InputStream is = null;
+        try {
+            is = new FileInputStream(path);
+            int n;
+            while((n = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            // the file is not readable: only its name is part of the key
+        } finally {
+            close(is);
+        }
+        update(digest, path);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for(byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** Returns the errors stored for the key or null if there is no entry. The
+     * errors are detached from ANTLR: only their line, message and rule are restored.
+     */
+    public synchronized Entry load(String key) {
+        if(key == null) return null;
+
+        File file = getFile(key);
+        if(!file.exists()) return null;
+
+        DataInputStream is = null;
+        try {
+            is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if(is.readInt() != MAGIC || is.readInt() != VERSION) {
+                file.delete();
+                return null;
+            }
+
+            Entry entry = new Entry();
+            int count = is.readInt();
+            for(int index=0; index<count; index++) {
+                GrammarError error = new GrammarError();
+                error.setLine(is.readInt());
+                error.setMessageText(is.readUTF());
+                entry.add(error, is.readUTF());
+            }
+            readStrings(is, entry.warningMessages);
+            readStrings(is, entry.errorMessages);
+            if(is.readBoolean()) {
+                entry.statistics = new ANTLRDecisionStatistics();
+                entry.statistics.decisions = is.readInt();
+                entry.statistics.cyclicDecisions = is.readInt();
+                entry.statistics.maxLookahead = is.readInt();
+            }
+
+            // mark the entry as recently used
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException e) {
+            // corrupted entry
+            close(is);
+            is = null;
+            file.delete();
+            return null;
+        } finally {
+            close(is);
+        }
+    }
+
+    public synchronized void store(String key, Entry entry) {
+        if(key == null) return;
+
+        if(!directory.exists() && !directory.mkdirs()) return;
+
+        File file = getFile(key);
+        File temp = new File(directory, key+".tmp");
+        DataOutputStream os = null;
+        boolean written = false;
+        try {
+            os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            os.writeInt(MAGIC);
+            os.writeInt(VERSION);
+            os.writeInt(entry.errors.size());
+            for(int index=0; index<entry.errors.size(); index++) {
+                GrammarError error = entry.errors.get(index);
+                os.writeInt(error.line);
+                os.writeUTF(error.messageText == null ? "" : error.messageText);
+                os.writeUTF(entry.ruleNames.get(index));
+            }
+            writeStrings(os, entry.warningMessages);
+            writeStrings(os, entry.errorMessages);
+            os.writeBoolean(entry.statistics != null);
+            if(entry.statistics != null) {
+                os.writeInt(entry.statistics.decisions);
+                os.writeInt(entry.statistics.cyclicDecisions);
+                os.writeInt(entry.statistics.maxLookahead);
+            }
+            os.close();
+            os = null;
+
+            file.delete();
+            written = temp.renameTo(file);
+        } catch (IOException e) {
+            // the cache is only an optimization
+        } finally {
+            close(os);
+            if(!written) {
+                temp.delete();
+            }
+        }
+
+        if(written) {
+            evict();
+        }
+    }
+
+    private static void readStrings(DataInputStream is, List<String> strings) throws IOException {
+        int count = is.readInt();
+        for(int index=0; index<count; index++) {
+            strings.add(is.readUTF());
+        }
+    }
+
+    private static void writeStrings(DataOutputStream os, List<String> strings) throws IOException {
+        os.writeInt(strings.size());
+        for(String s : strings) {
+            os.writeUTF(s);
+        }
+    }
+
+    public synchronized void clear() {
+        for(File file : getEntryFiles()) {
+            file.delete();
+        }
+    }
+
+    /** Removes the least recently used entries until the cache is within its limits.
+     */
+    public synchronized void evict() {
+        File[] files = getEntryFiles();
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 > m2 ? -1 : (m1 == m2 ? 0 : 1);
+            }
+        });
+
+        long size = 0;
+        for(int index=0; index<files.length; index++) {
+            size += files[index].length();
+            if(size > maximumSize || index >= maximumEntries) {
+                files[index].delete();
+            }
+        }
+    }
+
+    private File[] getEntryFiles() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(CACHE_EXTENSION);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private File getFile(String key) {
+        return new File(directory, key+CACHE_EXTENSION);
+    }
+
+    private static void close(Closeable c) {
+        if(c == null) return;
+        try {
+            c.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /** The errors of a grammar and the name of the rule each error belongs to
+     * (empty if the error is outside any rule), the messages printed by the
+     * analysis and the statistics of its decisions.
+     */
+    public static class Entry {
+
+        public final List<GrammarError> errors = new ArrayList<GrammarError>();
+        public final List<String> ruleNames = new ArrayList<String>();
+
+        public final List<String> warningMessages = new ArrayList<String>();
+        public final List<String> errorMessages = new ArrayList<String>();
+        public ANTLRDecisionStatistics statistics;
+
+        public void add(GrammarError error, String ruleName) {
+            errors.add(error);
+            ruleNames.add(ruleName == null ? "" : ruleName);
+        }
+
+        public List<GrammarError> getErrorsForRule(String name) {
+            List<GrammarError> ruleErrors = new ArrayList<GrammarError>();
+            for(int index=0; index<errors.size(); index++) {
+                if(ruleNames.get(index).equals(name)) {
+                    ruleErrors.add(errors.get(index));
+                }
+            }
+            return ruleErrors;
+        }
+    }
+}
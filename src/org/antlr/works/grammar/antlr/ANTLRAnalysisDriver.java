@@ -0,0 +1,251 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.analysis.NFAState;
+import org.antlr.tool.ErrorManager;
+import org.antlr.tool.Grammar;
+import org.antlr.tool.Message;
+import org.antlr.works.utils.ErrorListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/** Creates the lookahead DFAs of several grammars concurrently.
+ *
+ * ANTLR converts the decisions of one grammar sequentially: a decision can depend on the
+ * syntactic predicates discovered by the previous ones, so the decisions of a grammar
+ * cannot be split safely. Independent grammars (the parser and the lexer of a combined
+ * grammar) are however converted in parallel on a shared pool of threads.
+ *
+ * The calling thread waits for the conversion while reporting the number of converted
+ * decisions to the progress delegate. Cancelling the driver aborts the conversion of
+ * every grammar: ANTLR checks the abort flag before and during the conversion of each
+ * decision, so the analysis stops within the time needed to convert one decision.
+ */
+public class ANTLRAnalysisDriver {
+
+    /** Interval in ms at which the progress is reported and the cancellation checked */
+    public static final int POLL_INTERVAL = 100;
+
+    private static ExecutorService executor;
+
+    private final ANTLRAnalysisProgress progress;
+    private final List<Grammar> grammars = new ArrayList<Grammar>();
+
+    private volatile boolean cancelled;
+
+    private static synchronized ExecutorService getExecutor() {
+        if(executor == null) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new AnalysisThreadFactory());
+        }
+        return executor;
+    }
+
+    public ANTLRAnalysisDriver(ANTLRAnalysisProgress progress) {
+        this.progress = progress;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        synchronized(grammars) {
+            for(Grammar g : grammars) {
+                g.externallyAbortNFAToDFAConversion();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Creates the lookahead DFAs of the grammars and reports the messages emitted by ANTLR
+     * to the listener, in the order of the grammars. The NFAs must have been created.
+     */
+    public void createLookaheadDFAs(List<Grammar> grammarsToAnalyze, ErrorListener el) throws Exception {
+        synchronized(grammars) {
+            grammars.clear();
+            grammars.addAll(grammarsToAnalyze);
+            if(cancelled) {
+                cancel();
+            }
+        }
+
+        int total = 0;
+        List<Conversion> conversions = new ArrayList<Conversion>();
+        for(Grammar g : grammarsToAnalyze) {
+            Conversion c = new Conversion(g);
+            total += c.decisions.size();
+            conversions.add(c);
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for(Conversion c : conversions) {
+            futures.add(getExecutor().submit(c));
+        }
+
+        try {
+            for(Future<?> f : futures) {
+                while(true) {
+                    try {
+                        f.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        reportProgress(conversions, total);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            cancel();
+            if(e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            } else {
+                throw e;
+            }
+        } finally {
+            if(cancelled) {
+                // wait for the conversions to acknowledge the cancellation
+                for(Future<?> f : futures) {
+                    try {
+                        f.get();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        reportProgress(conversions, total);
+
+        for(Conversion c : conversions) {
+            c.replay(el);
+        }
+    }
+
+    private void reportProgress(List<Conversion> conversions, int total) {
+        if(progress == null) return;
+
+        int done = 0;
+        for(Conversion c : conversions) {
+            done += c.getConvertedDecisions();
+        }
+        progress.analysisProgress(done, total);
+    }
+
+    private static class Conversion implements Runnable {
+
+        private final Grammar grammar;
+        private final List<Integer> decisions = new ArrayList<Integer>();
+        private final ErrorListener listener = new ErrorListener();
+        private volatile ErrorManager.ErrorState state;
+
+        public Conversion(Grammar grammar) {
+            this.grammar = grammar;
+            this.listener.setPrintToConsole(false);
+
+            // only the decisions with more than one alternative are converted by ANTLR
+            for(int decision = 1; decision <= grammar.getNumberOfDecisions(); decision++) {
+                NFAState s = grammar.getDecisionNFAStartState(decision);
+                if(s != null && s.getNumberOfTransitions() > 1) {
+                    decisions.add(decision);
+                }
+            }
+        }
+
+        public int getConvertedDecisions() {
+            int count = 0;
+            for(Integer decision : decisions) {
+                if(grammar.getLookaheadDFA(decision) != null)
+                    count++;
+            }
+            return count;
+        }
+
+        public void run() {
+            // The listener and the error state of ANTLR are attached to the current thread
+            ANTLRErrorContext context = ANTLRErrorContext.enter(listener, grammar.getTool());
+            ErrorManager.ErrorState threadState = ANTLRErrorContext.resetErrorState();
+            try {
+                grammar.createLookaheadDFAs();
+            } finally {
+                context.exit();
+
+                // keep a copy: the thread may convert another grammar before the replay
+                state = new ErrorManager.ErrorState();
+                state.errors = threadState.errors;
+                state.warnings = threadState.warnings;
+                state.infos = threadState.infos;
+                state.errorMsgIDs.orInPlace(threadState.errorMsgIDs);
+                state.warningMsgIDs.orInPlace(threadState.warningMsgIDs);
+            }
+        }
+
+        public void replay(ErrorListener el) {
+            // ANTLR checks the error state of the current thread when a message is formatted
+            if(state != null) {
+                ErrorManager.ErrorState current = ErrorManager.getErrorState();
+                current.errors += state.errors;
+                current.warnings += state.warnings;
+                current.infos += state.infos;
+                current.errorMsgIDs.orInPlace(state.errorMsgIDs);
+                current.warningMsgIDs.orInPlace(state.warningMsgIDs);
+            }
+
+            for(String info : listener.infos) {
+                el.info(info);
+            }
+            for(Message warning : listener.warnings) {
+                el.warning(warning);
+            }
+            for(Message error : listener.errors) {
+                el.error(error);
+            }
+        }
+    }
+
+    private static class AnalysisThreadFactory implements ThreadFactory {
+
+        private int count = 0;
+
+        public synchronized Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("ANTLRAnalysis-"+(++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.grammar.element.ElementRule;
+
+import java.util.*;
+
+/** Immutable result of an analysis: the errors of the grammar and the errors of each rule.
+ *
+ * The snapshot is created by the analysis thread and then published to the rules: the
+ * analysis thread never waits for the user interface.
+ */
+public class ANTLRAnalysisSnapshot {
+
+    private final List<GrammarError> errors;
+
+    /** Name of the first rule containing each error, or an empty string */
+    private final List<String> ruleNames;
+
+    private final Map<String,List<GrammarError>> errorsByRule;
+
+    /** Creates the snapshot of errors already assigned to rules (e.g. read from the analysis cache).
+     */
+    public ANTLRAnalysisSnapshot(List<GrammarError> errors, List<String> ruleNames) {
+        this.errors = Collections.unmodifiableList(new ArrayList<GrammarError>(errors));
+        this.ruleNames = Collections.unmodifiableList(new ArrayList<String>(ruleNames));
+
+        Map<String,List<GrammarError>> map = new HashMap<String,List<GrammarError>>();
+        for(int index=0; index<errors.size(); index++) {
+            String rule = ruleNames.get(index);
+            if(rule.length() > 0) {
+                add(map, rule, errors.get(index));
+            }
+        }
+        this.errorsByRule = freeze(map);
+    }
+
+    private ANTLRAnalysisSnapshot(List<GrammarError> errors, List<String> ruleNames, Map<String,List<GrammarError>> errorsByRule) {
+        this.errors = Collections.unmodifiableList(errors);
+        this.ruleNames = Collections.unmodifiableList(ruleNames);
+        this.errorsByRule = freeze(errorsByRule);
+    }
+
+    /** Creates the snapshot of the errors by assigning each error to the rules whose
+     * lines contain the line of the error. The rules are indexed by their line range so
+     * that each error is assigned with a binary search.
+     */
+    public static ANTLRAnalysisSnapshot create(List<GrammarError> errors, List<ElementRule> rules) {
+        List<ElementRule> sortedRules = new ArrayList<ElementRule>(rules);
+        Collections.sort(sortedRules, new Comparator<ElementRule>() {
+            public int compare(ElementRule r1, ElementRule r2) {
+                return r1.start.startLineNumber - r2.start.startLineNumber;
+            }
+        });
+
+        int count = sortedRules.size();
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for(int index=0; index<count; index++) {
+            ElementRule rule = sortedRules.get(index);
+            starts[index] = rule.start.startLineNumber;
+            ends[index] = rule.end.startLineNumber;
+        }
+
+        List<GrammarError> snapshotErrors = new ArrayList<GrammarError>(errors);
+        List<String> ruleNames = new ArrayList<String>();
+        Map<String,List<GrammarError>> map = new HashMap<String,List<GrammarError>>();
+        for(GrammarError error : snapshotErrors) {
+            String firstRule = "";
+            // several rules can start on the line of the error: walk back over the rules that contain it
+            for(int index = lastRuleStartingBefore(starts, error.line); index >= 0 && ends[index] >= error.line; index--) {
+                String name = sortedRules.get(index).name;
+                add(map, name, error);
+                firstRule = name;
+            }
+            ruleNames.add(firstRule);
+        }
+
+        return new ANTLRAnalysisSnapshot(snapshotErrors, ruleNames, map);
+    }
+
+    /** Returns the index of the last rule starting at or before the line, or -1 */
+    private static int lastRuleStartingBefore(int[] starts, int line) {
+        int low = 0;
+        int high = starts.length-1;
+        int result = -1;
+        while(low <= high) {
+            int middle = (low+high) >>> 1;
+            if(starts[middle] <= line) {
+                result = middle;
+                low = middle+1;
+            } else {
+                high = middle-1;
+            }
+        }
+        return result;
+    }
+
+    private static void add(Map<String,List<GrammarError>> map, String rule, GrammarError error) {
+        List<GrammarError> ruleErrors = map.get(rule);
+        if(ruleErrors == null) {
+            ruleErrors = new ArrayList<GrammarError>();
+            map.put(rule, ruleErrors);
+        }
+        ruleErrors.add(error);
+    }
+
+    private static Map<String,List<GrammarError>> freeze(Map<String,List<GrammarError>> map) {
+        for(Map.Entry<String,List<GrammarError>> entry : map.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public List<GrammarError> getErrors() {
+        return errors;
+    }
+
+    public String getRuleName(int errorIndex) {
+        return ruleNames.get(errorIndex);
+    }
+
+    public List<GrammarError> getErrorsForRule(String name) {
+        List<GrammarError> ruleErrors = errorsByRule.get(name);
+        if(ruleErrors == null) {
+            return Collections.emptyList();
+        } else {
+            return ruleErrors;
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.analysis.DFA;
+import org.antlr.tool.Grammar;
+
+import java.util.List;
+
+/** Statistics of the lookahead DFAs created by the analysis of a grammar.
+ */
+public class ANTLRDecisionStatistics {
+
+    /** Number of decisions converted to a lookahead DFA */
+    public int decisions;
+
+    /** Number of decisions that need an arbitrary lookahead (cyclic DFA) */
+    public int cyclicDecisions;
+
+    /** Largest fixed lookahead depth of the acyclic decisions */
+    public int maxLookahead;
+
+    public static ANTLRDecisionStatistics compute(List<Grammar> grammars) {
+        ANTLRDecisionStatistics statistics = new ANTLRDecisionStatistics();
+        for(Grammar g : grammars) {
+            for(int decision = 1; decision <= g.getNumberOfDecisions(); decision++) {
+                DFA dfa = g.getLookaheadDFA(decision);
+                if(dfa == null) continue;
+
+                statistics.decisions++;
+                if(dfa.isCyclic()) {
+                    statistics.cyclicDecisions++;
+                } else {
+                    statistics.maxLookahead = Math.max(statistics.maxLookahead, dfa.getMaxLookaheadDepth());
+                }
+            }
+        }
+        return statistics;
+    }
+
+}
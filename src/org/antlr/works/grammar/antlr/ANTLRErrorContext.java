@@ -0,0 +1,229 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.Tool;
+import org.antlr.tool.ANTLRErrorListener;
+import org.antlr.tool.ErrorManager;
+import org.antlr.tool.Message;
+import org.antlr.tool.ToolMessage;
+import org.antlr.works.utils.ErrorListener;
+
+import java.util.LinkedList;
+import java.util.concurrent.ThreadFactory;
+
+/** Isolates the messages and the error state of ANTLR for each job.
+ *
+ * ANTLR keeps the error listener, the error state and the tool of each thread in static
+ * maps that are not synchronized. Installing and removing a listener for each job modifies
+ * these maps while other threads read them, and ErrorManager.resetErrorState() clears the
+ * listeners of all the threads. Instead, each thread is registered once, under a global lock,
+ * with a dispatcher that forwards the messages to the error listener of the job currently
+ * running on this thread. A job only resets the error state of its own thread.
+ *
+ * Jobs can be nested (for example the analysis creates the grammars): the inner job gets its
+ * own listener but shares the error state of the outer one, and the listener of the outer job
+ * is restored when the inner job exits.
+ *
+ * The threads stay registered between their jobs. A thread created for a few jobs must be
+ * released once they are done (see release(), releasing() and createThreadFactory()) so that
+ * ANTLR does not keep its listener and its tool.
+ */
+public class ANTLRErrorContext {
+
+    private static final Object lock = new Object();
+    private static final ThreadLocal<Dispatcher> threadDispatcher = new ThreadLocal<Dispatcher>();
+
+    private final Dispatcher dispatcher;
+    private final ErrorListener listener;
+
+    /** Starts a job on the current thread: the messages emitted by ANTLR are reported to the
+     * listener until exit() is invoked.
+     *
+     * @param listener the listener of the job
+     * @param tool the tool used by ANTLR to format the messages or null to keep the current one
+     * @return the context of the job
+     */
+    public static ANTLRErrorContext enter(ErrorListener listener, Tool tool) {
+        Dispatcher dispatcher = getDispatcher(tool);
+        if(tool != null) {
+            synchronized(lock) {
+                // the thread is already registered: only the value is replaced
+                ErrorManager.setTool(tool);
+            }
+        }
+        if(dispatcher.listeners.isEmpty()) {
+            resetErrorState();
+        }
+        dispatcher.listeners.addFirst(listener);
+        return new ANTLRErrorContext(dispatcher, listener);
+    }
+
+    public static ANTLRErrorContext enter(ErrorListener listener) {
+        return enter(listener, null);
+    }
+
+    /** Returns a new listener that prints its messages to the console unless the enclosing
+     * job, if any, does not print them.
+     */
+    public static ErrorListener createListener() {
+        ErrorListener listener = new ErrorListener();
+        Dispatcher dispatcher = threadDispatcher.get();
+        if(dispatcher != null && !dispatcher.listeners.isEmpty()) {
+            listener.setPrintToConsole(dispatcher.listeners.getFirst().printToConsole);
+        }
+        return listener;
+    }
+
+    /** Resets the error state of ANTLR for the current thread only.
+     *
+     * @return the error state of the current thread
+     */
+    public static ErrorManager.ErrorState resetErrorState() {
+        ErrorManager.ErrorState threadState = getDispatcher(null).state;
+        threadState.errors = 0;
+        threadState.warnings = 0;
+        threadState.infos = 0;
+        threadState.errorMsgIDs.clear();
+        threadState.warningMsgIDs.clear();
+        return threadState;
+    }
+
+    private static Dispatcher getDispatcher(Tool tool) {
+        Dispatcher dispatcher = threadDispatcher.get();
+        if(dispatcher == null) {
+            synchronized(lock) {
+                // register the thread once in the maps of ANTLR
+                dispatcher = new Dispatcher(ErrorManager.getErrorState());
+                ErrorManager.setErrorListener(dispatcher);
+                ErrorManager.setTool(tool == null ? new Tool() : tool);
+            }
+            threadDispatcher.set(dispatcher);
+        }
+        return dispatcher;
+    }
+
+    /** Unregisters the current thread from ANTLR. Must be invoked outside of any job. The error
+     * state of the thread cannot be removed from ANTLR: it is only dropped when the thread terminates.
+     */
+    public static void release() {
+        if(threadDispatcher.get() == null) return;
+
+        synchronized(lock) {
+            ErrorManager.removeErrorListener();
+            ErrorManager.setTool(null);
+        }
+        threadDispatcher.remove();
+    }
+
+    /** Returns a task that releases its thread once it is done, for a thread created to run this task only */
+    public static Runnable releasing(final Runnable task) {
+        return new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    release();
+                }
+            }
+        };
+    }
+
+    /** Returns a factory of threads that are released when they terminate, for the executors
+     * that are shut down after their jobs are done.
+     */
+    public static ThreadFactory createThreadFactory(final ThreadFactory factory) {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                return factory.newThread(releasing(r));
+            }
+        };
+    }
+
+    private ANTLRErrorContext(Dispatcher dispatcher, ErrorListener listener) {
+        this.dispatcher = dispatcher;
+        this.listener = listener;
+    }
+
+    public ErrorListener getListener() {
+        return listener;
+    }
+
+    /** Ends the job: the messages are reported again to the listener of the enclosing job.
+     */
+    public void exit() {
+        if(threadDispatcher.get() != dispatcher) {
+            throw new IllegalStateException("The context must exit on the thread that entered it");
+        }
+        dispatcher.listeners.remove(listener);
+    }
+
+    /** Listener registered once for each thread: forwards the messages to the current job.
+     */
+    private static class Dispatcher implements ANTLRErrorListener {
+
+        private final ErrorManager.ErrorState state;
+        private final LinkedList<ErrorListener> listeners = new LinkedList<ErrorListener>();
+
+        /** Prints the messages emitted outside of any job, without keeping them */
+        private final ErrorListener fallback = new ErrorListener();
+
+        public Dispatcher(ErrorManager.ErrorState state) {
+            this.state = state;
+        }
+
+        private ANTLRErrorListener getCurrent() {
+            if(listeners.isEmpty()) {
+                fallback.clear();
+                return fallback;
+            } else {
+                return listeners.getFirst();
+            }
+        }
+
+        public void info(String msg) {
+            getCurrent().info(msg);
+        }
+
+        public void error(Message msg) {
+            getCurrent().error(msg);
+        }
+
+        public void warning(Message msg) {
+            getCurrent().warning(msg);
+        }
+
+        public void error(ToolMessage msg) {
+            getCurrent().error(msg);
+        }
+    }
+}
@@ -3,7 +3,10 @@ package org.antlr.works.grammar.antlr;
 import org.antlr.analysis.NFAState;
 import org.antlr.tool.Grammar;
 import org.antlr.works.grammar.element.ElementRule;
-import org.antlr.works.grammar.engine.GrammarEngine;/*
+import org.antlr.works.grammar.engine.GrammarEngine;
+
+import java.util.List;
+/*
 
 [The "BSD licence"]
 Copyright (c) 2005-07 Jean Bovet
@@ -52,9 +55,20 @@ public interface ANTLRGrammarEngine {
     Grammar getGrammarForRule(String name) throws Exception;
 
     void createGrammars() throws Exception;
+    boolean warmUp() throws Exception;
+    long getWarmUpTime();
+    long getWarmUpSavedTime();
     void computeRuleErrors(ElementRule rule);
 
     GrammarResult analyze() throws Exception;
+    GrammarResult analyze(ANTLRAnalysisProgress progress) throws Exception;
     void cancel();
 
+    List<GrammarError> getErrors();
+    ANTLRAnalysisSnapshot getAnalysisSnapshot();
+    ANTLRDecisionStatistics getDecisionStatistics();
+
+    void setAnalysisCache(ANTLRAnalysisCache cache);
+    boolean restoreCachedAnalysis() throws Exception;
+
 }
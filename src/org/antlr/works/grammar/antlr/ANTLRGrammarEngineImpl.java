@@ -40,29 +40,59 @@ import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.element.ElementGrammarName;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.prefs.AWPrefs;
+import org.antlr.works.utils.Console;
 import org.antlr.works.utils.ErrorListener;
 
 import javax.swing.*;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
 
-    private Grammar parserGrammar;
-    private Grammar lexerGrammar;
+    private volatile Grammar parserGrammar;
+    private volatile Grammar lexerGrammar;
     private List<GrammarError> errors;
 
-    private boolean needsToCreateGrammar;
+    private volatile boolean needsToCreateGrammar;
     private boolean needsToAnalyzeGrammar;
 
+    /** Incremented each time the grammar is modified: grammars created from an older
+     * text are kept but not considered up-to-date */
+    private volatile int revision;
+
+    /** Time spent by the last warm-up to create the grammars (ms) or -1 if none.
+     * The saved time is accumulated each time grammars created by a warm-up are
+     * requested for the first time. */
+    private volatile long warmUpTime = -1;
+    private volatile long warmUpSavedTime;
+    private boolean warmUpPending;
+
+    /** Signature of the text of the current grammars and of the last complete analysis:
+     * an edit that does not change the signature does not need a new analysis */
+    private String grammarSignature;
+    private String analyzedSignature;
+
+    /** Messages of the last complete analysis, printed again when the analysis is skipped */
+    private final List<String> analyzeWarningMessages = new ArrayList<String>();
+    private final List<String> analyzeErrorMessages = new ArrayList<String>();
+    private List<? extends Collection<? extends Rule>> leftRecursiveRules = new ArrayList<Collection<? extends Rule>>();
+    private ANTLRDecisionStatistics decisionStatistics;
+    private volatile ANTLRAnalysisSnapshot analysisSnapshot;
+
     private final GrammarResult createGrammarResult = new GrammarResult();
     private final GrammarResult analyzeResult = new GrammarResult();
 
     private GrammarEngine engine;
 
+    private ANTLRAnalysisCache analysisCache;
+    private volatile boolean analysisCancelled;
+    private volatile boolean closed;
+    private volatile ANTLRAnalysisDriver analysisDriver;
+
     public ANTLRGrammarEngineImpl() {
         errors = new ArrayList<GrammarError>();
         markDirty();
@@ -77,10 +107,49 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
     }
 
     public void close() {
+        closed = true;
         errors = null;
     }
 
+    public void setAnalysisCache(ANTLRAnalysisCache cache) {
+        this.analysisCache = cache;
+    }
+
+    public boolean restoreCachedAnalysis() throws Exception {
+        if(analysisCache == null) return false;
+
+        ANTLRAnalysisCache.Entry entry = analysisCache.load(getAnalysisCacheKey());
+        if(entry == null) return false;
+
+        errors.clear();
+        errors.addAll(entry.errors);
+        decisionStatistics = entry.statistics;
+        analysisSnapshot = new ANTLRAnalysisSnapshot(entry.errors, entry.ruleNames);
+        applyErrorsToRules(analysisSnapshot);
+        return true;
+    }
+
+    private String getAnalysisCacheKey() {
+        return ANTLRAnalysisCache.computeKey(engine, AWPrefs.getANTLR3Options());
+    }
+
+    private void storeAnalysis(String key) {
+        ANTLRAnalysisSnapshot snapshot = analysisSnapshot;
+        if(snapshot == null) return;
+
+        ANTLRAnalysisCache.Entry entry = new ANTLRAnalysisCache.Entry();
+        List<GrammarError> snapshotErrors = snapshot.getErrors();
+        for (int index = 0; index < snapshotErrors.size(); index++) {
+            entry.add(snapshotErrors.get(index), snapshot.getRuleName(index));
+        }
+        entry.warningMessages.addAll(analyzeWarningMessages);
+        entry.errorMessages.addAll(analyzeErrorMessages);
+        entry.statistics = decisionStatistics;
+        analysisCache.store(key, entry);
+    }
+
     public void markDirty() {
+        revision++;
         needsToCreateGrammar = true;
         needsToAnalyzeGrammar = true;
     }
@@ -116,6 +185,14 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
         return errors;
     }
 
+    public ANTLRAnalysisSnapshot getAnalysisSnapshot() {
+        return analysisSnapshot;
+    }
+
+    public ANTLRDecisionStatistics getDecisionStatistics() {
+        return decisionStatistics;
+    }
+
     public boolean hasGrammar() {
         switch(engine.getType()) {
             case ElementGrammarName.COMBINED:
@@ -142,69 +219,200 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
         return null;
     }
 
-    public void createGrammars() throws Exception {
+    /** Creates the grammars and their NFAs in the background so the first action that needs
+     * them does not have to wait. The grammars are created without holding the lock of the engine
+     * so an action is never blocked by a warm-up: they are published only if the grammar has not
+     * been modified in the meantime and if they were created without any error or warning.
+     * Otherwise they are created again by the next action, which reports the messages as usual.
+     * The warm-up stops as soon as the grammar is modified.
+     *
+     * @return true if the grammars created by the warm-up are now available
+     */
+    public boolean warmUp() throws Exception {
+        int rev = revision;
+        long start = System.currentTimeMillis();
+        synchronized(this) {
+            if(isWarmUpCancelled(rev) || (!needsToCreateGrammar && createGrammarResult.isSuccess())) {
+                // modified or already created
+                return false;
+            }
+        }
+
+        String text = engine.getGrammarText();
+        String signature = ANTLRGrammarSignature.compute(engine, text);
+        synchronized(this) {
+            if(isWarmUpCancelled(rev)) {
+                return false;
+            }
+            if(reuseGrammars(signature)) {
+                return true;
+            }
+        }
+
+        Grammars grammars = new Grammars();
+        ErrorListener el = new ErrorListener();
+        el.setPrintToConsole(false);
+        ANTLRErrorContext context = ANTLRErrorContext.enter(el, engine.getANTLRTool());
+        try {
+            if(!createGrammars(text, grammars, rev)) {
+                return false;
+            }
+        } finally {
+            context.exit();
+        }
+
+        if(!el.errors.isEmpty() || !el.warnings.isEmpty() || !grammars.contains(engine.getType())) {
+            return false;
+        }
+
+        synchronized(this) {
+            // an action may have created the grammars in the meantime
+            if(isWarmUpCancelled(rev) || (!needsToCreateGrammar && createGrammarResult.isSuccess())) {
+                return false;
+            }
+
+            parserGrammar = grammars.parser;
+            lexerGrammar = grammars.lexer;
+            grammarSignature = signature;
+            analyzedSignature = null;
+            createGrammarResult.clear();
+            needsToCreateGrammar = false;
+
+            warmUpTime = System.currentTimeMillis()-start;
+            warmUpPending = true;
+        }
+        return true;
+    }
+
+    /** Returns true if the grammar has been modified since the warm-up started */
+    private boolean isWarmUpCancelled(int rev) {
+        return closed || rev != revision;
+    }
+
+    public long getWarmUpTime() {
+        return warmUpTime;
+    }
+
+    public long getWarmUpSavedTime() {
+        return warmUpSavedTime;
+    }
+
+    private void warmUpUsed() {
+        if(warmUpPending) {
+            warmUpPending = false;
+            warmUpSavedTime += warmUpTime;
+        }
+    }
+
+    /** Keeps the current grammars if only the actions or the comments have changed.
+     *
+     * @return true if the current grammars are still valid
+     */
+    private boolean reuseGrammars(String signature) {
+        if(signature != null && signature.equals(grammarSignature) && createGrammarResult.isSuccess() && hasGrammar()) {
+            needsToCreateGrammar = false;
+            if(signature.equals(analyzedSignature)) {
+                needsToAnalyzeGrammar = false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void createGrammars() throws Exception {
         if(!needsToCreateGrammar) {
             if(createGrammarResult.isSuccess()) {
+                warmUpUsed();
                 return;
             } else {
                 needsToCreateGrammar = true;
             }
         }
 
-        ErrorListener el = ErrorListener.getThreadInstance();
-        ErrorManager.setErrorListener(el);
+        String text = engine.getGrammarText();
+        String signature = ANTLRGrammarSignature.compute(engine, text);
+        if(reuseGrammars(signature)) {
+            warmUpUsed();
+            return;
+        }
+
+        int rev = revision;
+
+        ErrorListener el = ANTLRErrorContext.createListener();
+        ANTLRErrorContext context = ANTLRErrorContext.enter(el, engine.getANTLRTool());
 
         parserGrammar = null;
         lexerGrammar = null;
+        grammarSignature = null;
+        analyzedSignature = null;
+        warmUpPending = false;
 
         createGrammarResult.clear();
 
+        Grammars grammars = new Grammars();
         try {
-            switch(engine.getType()) {
-                case ElementGrammarName.COMBINED:
-                    createCombinedGrammar();
-                    break;
-                case ElementGrammarName.TREEPARSER:
-                case ElementGrammarName.PARSER:
-                    createParserGrammar();
-                    break;
-                case ElementGrammarName.LEXER:
-                    createLexerGrammar();
-                    break;
-            }
+            createGrammars(text, grammars, -1);
 
-            // if no exception, then assume create grammar was successful
-            needsToCreateGrammar = false;
+            // if no exception, then assume create grammar was successful,
+            // unless the grammar has been modified in the meantime
+            needsToCreateGrammar = rev != revision;
+            grammarSignature = signature;
         } finally {
+            parserGrammar = grammars.parser;
+            lexerGrammar = grammars.lexer;
+
             // store the result of creating the grammars
             createGrammarResult.setErrors(el.errors);
             createGrammarResult.setWarnings(el.warnings);
 
-            el.clear();
-            ErrorManager.removeErrorListener();
+            context.exit();
+        }
+    }
+
+    /** Creates the grammars of the text.
+     *
+     * @param rev the revision of the warm-up creating the grammars or -1 if the creation cannot be cancelled
+     * @return false if the creation has been cancelled because the grammar has been modified
+     */
+    private boolean createGrammars(String text, Grammars grammars, int rev) throws Exception {
+        switch(engine.getType()) {
+            case ElementGrammarName.COMBINED:
+                grammars.parser = createNewGrammar(text, rev);
+                if(grammars.parser == null) return false;
+                grammars.lexer = createLexerGrammarFromCombinedGrammar(grammars.parser, rev);
+                break;
+            case ElementGrammarName.TREEPARSER:
+            case ElementGrammarName.PARSER:
+                grammars.parser = createNewGrammar(text, rev);
+                if(grammars.parser == null) return false;
+                break;
+            case ElementGrammarName.LEXER:
+                grammars.lexer = createNewGrammar(text, rev);
+                if(grammars.lexer == null) return false;
+                break;
         }
+        return rev == -1 || !isWarmUpCancelled(rev);
     }
 
-    private Grammar createNewGrammar() throws TokenStreamException, RecognitionException, IOException {
+    private Grammar createNewGrammar(String text, int rev) throws TokenStreamException, RecognitionException, IOException {
         Grammar g = new Grammar();
         g.setTool(engine.getANTLRTool());
         g.setFileName(engine.getGrammarFileName());
-        g.setGrammarContent(engine.getGrammarText());
+        g.setGrammarContent(text);
+        if(rev != -1 && isWarmUpCancelled(rev))
+            return null;
+
         g.composite.createNFAs();
 
         // don't want errors from a previous grammar to interfere with this new grammar.
         // must reset error state otherwise analysis will not proceed if
-        // there were previous errors.
-        ErrorManager.resetErrorState();
+        // there were previous errors. Only the state of this thread is reset so that
+        // the grammars of other windows can be created or analyzed at the same time.
+        ANTLRErrorContext.resetErrorState();
         return g;
     }
 
-    private void createCombinedGrammar() throws Exception {
-        createParserGrammar();
-        lexerGrammar = createLexerGrammarFromCombinedGrammar(parserGrammar);
-    }
-
-    private Grammar createLexerGrammarFromCombinedGrammar(Grammar grammar) throws Exception {
+    private Grammar createLexerGrammarFromCombinedGrammar(Grammar grammar, int rev) throws Exception {
         String lexerGrammarStr = grammar.getLexerGrammar();
         if(lexerGrammarStr == null)
             return null;
@@ -216,19 +424,14 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
         lexerGrammar.importTokenVocabulary(grammar);
 
         lexerGrammar.setGrammarContent(lexerGrammarStr);
+        if(rev != -1 && isWarmUpCancelled(rev))
+            return null;
+
         lexerGrammar.composite.createNFAs();
 
         return lexerGrammar;
     }
 
-    private void createParserGrammar() throws TokenStreamException, RecognitionException, IOException {
-        parserGrammar = createNewGrammar();
-    }
-
-    private void createLexerGrammar() throws TokenStreamException, RecognitionException, IOException {
-        lexerGrammar = createNewGrammar();
-    }
-
     private void printLeftRecursionToConsole(List rules) {
         StringBuilder info = new StringBuilder();
         info.append("Aborting because the following rules are mutually left-recursive:");
@@ -255,89 +458,155 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
     }
 
     public GrammarResult analyze() throws Exception {
+        return analyze(null);
+    }
+
+    public GrammarResult analyze(ANTLRAnalysisProgress progress) throws Exception {
+        // the grammars know if only the actions or the comments have changed
+        // since the last analysis, in which case the analysis is still valid
+        if(needsToAnalyzeGrammar && analyzedSignature != null) {
+            createGrammars();
+        }
+
         // if there is no need to analyze the grammar, return the previous result
         if(!needsToAnalyzeGrammar) {
-            GrammarResult r = analyzeCompleted(null);
-            if(r.isSuccess()) {
-                return r;
-            } else {
-                needsToAnalyzeGrammar = true;
+            // the rules may have been parsed again since the last analysis
+            if(!leftRecursiveRules.isEmpty()) {
+                printLeftRecursionToConsole(leftRecursiveRules);
+                markLeftRecursiveRules(leftRecursiveRules);
             }
+            printAnalyzeMessages();
+            return analyzeCompleted(null, false, createSnapshot());
         }
 
-        // Set the error listener
-        ErrorListener el = ErrorListener.getThreadInstance();
-        ErrorManager.setErrorListener(el);
+        // Compute the cache key before the analysis: the text may change while ANTLR runs
+        String cacheKey = analysisCache == null ? null : getAnalysisCacheKey();
+        analysisCancelled = false;
+        decisionStatistics = null;
 
+        // The messages of this analysis are isolated from the other analyses
+        ErrorListener el = ANTLRErrorContext.createListener();
+        ANTLRErrorContext context = ANTLRErrorContext.enter(el, engine.getANTLRTool());
+        try {
+            return analyze(progress, el, cacheKey);
+        } finally {
+            context.exit();
+        }
+    }
+
+    private GrammarResult analyze(ANTLRAnalysisProgress progress, ErrorListener el, String cacheKey) throws Exception {
         createGrammars();
 
         Grammar g = getDefaultGrammar();
         if(g == null) {
-            return analyzeCompleted(el);
+            return analyzeCompleted(el, false, null);
         }
 
-        List rules = g.checkAllRulesForLeftRecursion();
+        List<? extends Collection<? extends Rule>> rules = g.checkAllRulesForLeftRecursion();
+        leftRecursiveRules = rules;
         if(!rules.isEmpty()) {
             printLeftRecursionToConsole(rules);
             markLeftRecursiveRules(rules);
         }
 
         if(ErrorManager.doNotAttemptAnalysis()) {
-            return analyzeCompleted(el);
+            return analyzeCompleted(el, false, null);
         }
 
+        boolean complete = false;
+        ANTLRAnalysisSnapshot snapshot = null;
         try {
+            List<Grammar> grammars = new ArrayList<Grammar>();
             if ( g.nfa==null ) {
                 g.composite.createNFAs();
             }
-            g.createLookaheadDFAs();
+            grammars.add(g);
             if(engine.isCombinedGrammar()) {
                 // If the grammar is combined, analyze also the lexer
                 if(lexerGrammar != null) {
                     lexerGrammar.composite.createNFAs();
-                    lexerGrammar.createLookaheadDFAs();
+                    grammars.add(lexerGrammar);
                 }
             }
 
+            ANTLRAnalysisDriver driver = new ANTLRAnalysisDriver(progress);
+            analysisDriver = driver;
+            if(analysisCancelled) {
+                driver.cancel();
+            }
+            try {
+                driver.createLookaheadDFAs(grammars, el);
+            } finally {
+                analysisDriver = null;
+            }
+            decisionStatistics = ANTLRDecisionStatistics.compute(grammars);
+
             buildNonDeterministicErrors(el);
-            markRulesWithWarningsOrErrors();
+            snapshot = createSnapshot();
+
+            complete = !analysisCancelled;
         } catch(Exception e) {
             // ignore
         }
 
-        return analyzeCompleted(el);
+        GrammarResult result = analyzeCompleted(el, complete, snapshot);
+        if(cacheKey != null && complete) {
+            // stored once the messages of the analysis have been formatted
+            storeAnalysis(cacheKey);
+        }
+        return result;
     }
 
-    private GrammarResult analyzeCompleted(ErrorListener el) throws InvocationTargetException, InterruptedException {
-        if(SwingUtilities.isEventDispatchThread()) {
-            engine.antlrGrammarEngineAnalyzeCompleted();
-        } else {
-            SwingUtilities.invokeAndWait(new Runnable() {
-                public void run() {
-                    engine.antlrGrammarEngineAnalyzeCompleted();
-                }
-            });
+    private void printAnalyzeMessages() {
+        ErrorListener el = ANTLRErrorContext.createListener();
+        for (String message : analyzeWarningMessages) {
+            el.print(message, Console.LEVEL_WARNING);
+        }
+        for (String message : analyzeErrorMessages) {
+            el.print(message, Console.LEVEL_ERROR);
+        }
+    }
+
+    /**
+     * Completes the analysis and publishes its snapshot to the rules. The publication is
+     * asynchronous if the analysis does not run on the event thread.
+     *
+     * @param el the listener of the analysis or null if the previous analysis is still valid
+     * @param complete true if the analysis of the grammar has completed
+     * @param snapshot the errors of the analysis or null if they have not been computed
+     * @return the result of the analysis
+     */
+    private GrammarResult analyzeCompleted(ErrorListener el, boolean complete, ANTLRAnalysisSnapshot snapshot) {
+        if(snapshot != null) {
+            analysisSnapshot = snapshot;
         }
+        publish(snapshot);
 
         if(el != null) {
-            // no need to analyze the grammar
-            needsToAnalyzeGrammar = false;
+            // no need to analyze the grammar again unless the analysis did not complete
+            needsToAnalyzeGrammar = !complete;
+            analyzedSignature = complete ? grammarSignature : null;
 
             // store the analyze result
             analyzeResult.clear();
             analyzeResult.setErrors(el.errors);
             analyzeResult.setWarnings(el.warnings);
 
-            if(el.hasErrors() || el.hasWarnings()) {
-                // in order to get the same error and warnings messages in the console
-                // next time the grammar is checked (if it is not touched), we need to
-                // turn this flag on again (see AW-182).
-                needsToAnalyzeGrammar = true;
+            // in order to get the same error and warnings messages in the console
+            // next time the grammar is checked (if it is not touched), keep their
+            // text (see AW-182). The messages are formatted by the thread that
+            // emitted them because ANTLR checks its error state when formatting.
+            analyzeWarningMessages.clear();
+            analyzeErrorMessages.clear();
+            for (Message warning : el.warnings) {
+                analyzeWarningMessages.add(warning.toString());
+            }
+            for (Message error : el.errors) {
+                analyzeErrorMessages.add(error.toString());
             }
 
             // clear the error listener
             el.clear();
-            ErrorManager.removeErrorListener();
         }
 
         return getCompleteResult();
@@ -357,9 +626,15 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
     }
 
     public void cancel() {
-        Grammar g = getDefaultGrammar();
-        if(g != null)
-            g.externallyAbortNFAToDFAConversion();
+        analysisCancelled = true;
+        ANTLRAnalysisDriver driver = analysisDriver;
+        if(driver != null) {
+            driver.cancel();
+        } else {
+            Grammar g = getDefaultGrammar();
+            if(g != null)
+                g.externallyAbortNFAToDFAConversion();
+        }
     }
 
     private void buildNonDeterministicErrors(ErrorListener el) {
@@ -415,29 +690,39 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
         return error;
     }
 
-    private void markRulesWithWarningsOrErrors() throws Exception {
-        for (ElementRule rule : engine.getRules()) {
-            updateRuleWithErrors(rule, fetchErrorsForRule(rule));
-        }
+    private ANTLRAnalysisSnapshot createSnapshot() {
+        return ANTLRAnalysisSnapshot.create(getErrors(), engine.getRules());
     }
 
-    private void updateRuleWithErrors(ElementRule rule, List<GrammarError> errors) throws Exception {
-        rule.setErrors(errors);
-        rule.setNeedsToBuildErrors(true);
+    private void publish(final ANTLRAnalysisSnapshot snapshot) {
+        Runnable publication = new Runnable() {
+            public void run() {
+                if(closed) return;
+                if(snapshot != null) {
+                    applyErrorsToRules(snapshot);
+                }
+                engine.antlrGrammarEngineAnalyzeCompleted();
+            }
+        };
+        if(SwingUtilities.isEventDispatchThread()) {
+            publication.run();
+        } else {
+            SwingUtilities.invokeLater(publication);
+        }
     }
 
-    private List<GrammarError> fetchErrorsForRule(ElementRule rule) {
-        List<GrammarError> errors = new ArrayList<GrammarError>();
-        for (GrammarError error : getErrors()) {
-            if (error.line >= rule.start.startLineNumber && error.line <= rule.end.startLineNumber)
-                errors.add(error);
+    private void applyErrorsToRules(ANTLRAnalysisSnapshot snapshot) {
+        for (ElementRule rule : engine.getRules()) {
+            rule.setErrors(snapshot.getErrorsForRule(rule.name));
+            rule.setNeedsToBuildErrors(true);
         }
-        return errors;
     }
 
     public void computeRuleErrors(ElementRule rule) {
         List<GrammarError> errors = rule.getErrors();
         for (GrammarError error : errors) {
+            // the errors are computed again if the rules are parsed again
+            error.clearPaths();
             Object o = error.getMessage();
             if (o instanceof GrammarUnreachableAltsMessage)
                 computeRuleError(error, (GrammarUnreachableAltsMessage) o);
@@ -499,4 +784,22 @@ public class ANTLRGrammarEngineImpl implements ANTLRGrammarEngine {
         }
     }
 
+    /** Grammars created from the text of the engine */
+    private static class Grammars {
+
+        public Grammar parser;
+        public Grammar lexer;
+
+        public boolean contains(int type) {
+            switch(type) {
+                case ElementGrammarName.COMBINED:
+                case ElementGrammarName.TREEPARSER:
+                case ElementGrammarName.PARSER:
+                    return parser != null;
+                case ElementGrammarName.LEXER:
+                    return lexer != null;
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,207 @@
+package org.antlr.works.grammar.antlr;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.grammar.element.ElementImport;
+import org.antlr.works.grammar.engine.GrammarEngine;
+
+import java.io.File;
+
+/** Computes the part of a grammar text that is relevant to the ANTLR analysis.
+ *
+ * The comments and the actions are replaced by blanks that preserve the line and the
+ * column of everything located after them: two texts having the same signature produce
+ * the same NFAs, the same DFAs and the same errors at the same positions. Semantic
+ * predicates, the options and the tokens blocks are kept because they change the analysis.
+ */
+public class ANTLRGrammarSignature {
+
+    /** Returns the signature of the text of the grammar of the engine. The imported grammars
+     * and the token vocabulary are read by ANTLR from the disk: their modification date is
+     * part of the signature.
+     */
+    public static String compute(GrammarEngine engine, String text) {
+        String signature = compute(text);
+        if(signature == null) return null;
+
+        StringBuilder sb = new StringBuilder(signature);
+        for(ElementImport i : engine.getImports()) {
+            appendFile(sb, engine.getTokenVocabFile(i.getName()+".g"));
+        }
+        String tokenVocab = engine.getTokenVocab();
+        if(tokenVocab != null) {
+            appendFile(sb, engine.getTokenVocabFile(tokenVocab+".tokens"));
+        }
+        return sb.toString();
+    }
+
+    private static void appendFile(StringBuilder sb, String path) {
+        sb.append('\0').append(path);
+        if(path != null) {
+            File file = new File(path);
+            sb.append(':').append(file.lastModified()).append(':').append(file.length());
+        }
+    }
+
+    public static String compute(String text) {
+        if(text == null) return null;
+
+        StringBuilder sb = new StringBuilder(text.length());
+        String lastWord = null;
+        int length = text.length();
+        int index = 0;
+        while(index < length) {
+            char c = text.charAt(index);
+            if(c == '/' && index+1 < length && text.charAt(index+1) == '/') {
+                // single line comment: nothing can follow it on the same line
+                index = skipLine(text, index);
+            } else if(c == '/' && index+1 < length && text.charAt(index+1) == '*') {
+                int end = skipComment(text, index);
+                appendBlank(sb, text, index, end);
+                index = end;
+            } else if(c == '\'' || c == '"') {
+                int end = skipString(text, index);
+                sb.append(text, index, end);
+                index = end;
+                lastWord = null;
+            } else if(c == '{') {
+                int end = skipAction(text, index);
+                if(isPredicate(text, end) || "options".equals(lastWord) || "tokens".equals(lastWord)) {
+                    sb.append(text, index, end);
+                } else {
+                    appendBlank(sb, text, index, end);
+                }
+                index = end;
+                lastWord = null;
+            } else if(Character.isJavaIdentifierStart(c)) {
+                int end = index+1;
+                while(end < length && Character.isJavaIdentifierPart(text.charAt(end))) {
+                    end++;
+                }
+                lastWord = text.substring(index, end);
+                sb.append(lastWord);
+                index = end;
+            } else {
+                if(!Character.isWhitespace(c)) {
+                    lastWord = null;
+                }
+                sb.append(c);
+                index++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Appends the lines of the region and blanks up to the column where it ends, unless
+     * nothing follows the region on its last line.
+     */
+    private static void appendBlank(StringBuilder sb, String text, int start, int end) {
+        int lineStart = start;
+        for(int index=start; index<end; index++) {
+            if(text.charAt(index) == '\n') {
+                sb.append('\n');
+                lineStart = index+1;
+            }
+        }
+        if(isEndOfLine(text, end)) return;
+
+        for(int index=lineStart; index<end; index++) {
+            sb.append(' ');
+        }
+    }
+
+    private static boolean isEndOfLine(String text, int index) {
+        while(index < text.length()) {
+            char c = text.charAt(index);
+            if(c == '\n') return true;
+            if(!Character.isWhitespace(c)) return false;
+            index++;
+        }
+        return true;
+    }
+
+    private static boolean isPredicate(String text, int index) {
+        while(index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index < text.length() && text.charAt(index) == '?';
+    }
+
+    private static int skipLine(String text, int index) {
+        int end = text.indexOf('\n', index);
+        return end == -1 ? text.length() : end;
+    }
+
+    private static int skipComment(String text, int index) {
+        int end = text.indexOf("*/", index+2);
+        return end == -1 ? text.length() : end+2;
+    }
+
+    private static int skipString(String text, int index) {
+        char quote = text.charAt(index);
+        int end = index+1;
+        while(end < text.length()) {
+            char c = text.charAt(end);
+            if(c == '\\') {
+                end += 2;
+                continue;
+            }
+            end++;
+            if(c == quote || c == '\n') break;
+        }
+        return Math.min(end, text.length());
+    }
+
+    private static int skipAction(String text, int index) {
+        int depth = 0;
+        int end = index;
+        while(end < text.length()) {
+            char c = text.charAt(end);
+            if(c == '\'' || c == '"') {
+                end = skipString(text, end);
+            } else if(c == '/' && end+1 < text.length() && text.charAt(end+1) == '/') {
+                end = skipLine(text, end);
+            } else if(c == '/' && end+1 < text.length() && text.charAt(end+1) == '*') {
+                end = skipComment(text, end);
+            } else {
+                end++;
+                if(c == '{') {
+                    depth++;
+                } else if(c == '}') {
+                    depth--;
+                    if(depth == 0) break;
+                }
+            }
+        }
+        return end;
+    }
+}
@@ -68,6 +68,13 @@ public class GrammarError {
         this.pathsDisabled.add(disabled);
     }
 
+    public void clearPaths() {
+        this.paths.clear();
+        this.pathsDisabled.clear();
+        this.unreachableAlts.clear();
+        this.states.clear();
+    }
+
     public void addUnreachableAlt(NFAState state, Integer alt) {
         this.unreachableAlts.add(new Object[] { state, alt});
     }
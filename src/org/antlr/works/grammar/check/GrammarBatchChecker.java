@@ -0,0 +1,300 @@
+package org.antlr.works.grammar.check;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.Tool;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisCache;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
+import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.grammar.element.ElementGrammarName;
+import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngineDelegate;
+import org.antlr.works.grammar.engine.GrammarEngineImpl;
+import org.antlr.works.utils.Console;
+import org.antlr.works.utils.ConsoleHelper;
+import org.antlr.works.utils.Utils;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Checks grammar files without any window: each grammar is parsed, its properties updated
+ * and then analyzed by ANTLR, exactly like the Check Grammar command does.
+ *
+ * The grammars are checked in parallel by a fixed number of workers. The messages printed
+ * by ANTLR during the check of a grammar are collected in the result of that grammar. If an
+ * analysis cache is specified, the grammars that did not change since the previous run are
+ * not analyzed again.
+ */
+public class GrammarBatchChecker {
+
+    private final int workers;
+    private final ANTLRAnalysisCache cache;
+    private final String[] options;
+
+    /** Result of the grammar checked by the current thread */
+    private final ThreadLocal<GrammarCheckResult> currentResult = new ThreadLocal<GrammarCheckResult>();
+
+    /**
+     * @param workers the number of grammars checked at the same time
+     * @param cache the analysis cache or null to always analyze the grammars
+     * @param options the options of ANTLR
+     */
+    public GrammarBatchChecker(int workers, ANTLRAnalysisCache cache, String[] options) {
+        this.workers = Math.max(1, workers);
+        this.cache = cache;
+        this.options = options == null ? new String[0] : options;
+    }
+
+    /** Returns the grammar files (*.g) in the specified directory and its sub-directories,
+     * sorted by path, or the file itself if it is not a directory.
+     */
+    public static List<File> findGrammars(File file) {
+        List<File> grammars = new ArrayList<File>();
+        if(file.isDirectory()) {
+            File[] files = file.listFiles(new FileFilter() {
+                public boolean accept(File f) {
+                    return f.isDirectory() || f.getName().endsWith(".g");
+                }
+            });
+            if(files != null) {
+                Arrays.sort(files);
+                for(File f : files) {
+                    grammars.addAll(findGrammars(f));
+                }
+            }
+        } else if(file.exists()) {
+            grammars.add(file);
+        }
+        return grammars;
+    }
+
+    /** Checks the grammars and returns their results in the same order.
+     */
+    public List<GrammarCheckResult> check(List<File> files) throws InterruptedException {
+        Console previousConsole = ConsoleHelper.getCurrent();
+        ConsoleHelper.setCurrent(new CheckConsole(previousConsole));
+
+        // the workers are released when the executor is shut down
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, files.size())),
+                ANTLRErrorContext.createThreadFactory(Executors.defaultThreadFactory()));
+        try {
+            List<Future<GrammarCheckResult>> futures = new ArrayList<Future<GrammarCheckResult>>();
+            for(final File file : files) {
+                futures.add(executor.submit(new Callable<GrammarCheckResult>() {
+                    public GrammarCheckResult call() {
+                        return checkGrammar(file);
+                    }
+                }));
+            }
+
+            List<GrammarCheckResult> results = new ArrayList<GrammarCheckResult>();
+            for(int index=0; index<files.size(); index++) {
+                try {
+                    results.add(futures.get(index).get());
+                } catch (ExecutionException e) {
+                    GrammarCheckResult result = new GrammarCheckResult(files.get(index).getPath());
+                    result.exception = e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            ConsoleHelper.setCurrent(previousConsole);
+        }
+    }
+
+    private GrammarCheckResult checkGrammar(File file) {
+        GrammarCheckResult result = new GrammarCheckResult(file.getPath());
+        currentResult.set(result);
+        long start = System.currentTimeMillis();
+        GrammarEngine engine = null;
+        try {
+            CheckDelegate delegate = new CheckDelegate(file, XJUtils.getStringFromFile(file.getPath()), result);
+            engine = new GrammarEngineImpl(delegate);
+            engine.getSyntaxEngine().setDelegate(delegate);
+            engine.getSyntaxEngine().processSyntax();
+            engine.parserCompleted();
+            engine.updateAll();
+
+            result.name = engine.getGrammarName();
+            int type = engine.getType();
+            if(type >= 0 && type < ElementGrammarName.types.size()) {
+                result.type = ElementGrammarName.types.get(type);
+            }
+
+            ANTLRGrammarEngine antlrEngine = engine.getANTLRGrammarEngine();
+            ANTLRAnalysisCache.Entry entry = null;
+            if(cache != null) {
+                entry = cache.load(ANTLRAnalysisCache.computeKey(engine, options));
+            }
+            if(entry != null) {
+                // the grammars are still created to report their own messages
+                antlrEngine.createGrammars();
+                result.cached = true;
+                result.warnings.addAll(entry.warningMessages);
+                result.errors.addAll(entry.errorMessages);
+                result.statistics = entry.statistics;
+            } else {
+                antlrEngine.setAnalysisCache(cache);
+                engine.analyze();
+                result.statistics = antlrEngine.getDecisionStatistics();
+            }
+
+            for(ElementRule rule : engine.getRules()) {
+                if(rule.getLeftRecursiveRulesSet() != null || rule.hasLeftRecursion()) {
+                    result.leftRecursiveRules.add(rule.name);
+                }
+            }
+        } catch (Exception e) {
+            result.exception = e;
+        } finally {
+            if(engine != null) {
+                engine.close();
+            }
+            result.time = System.currentTimeMillis()-start;
+            currentResult.remove();
+        }
+        return result;
+    }
+
+    /** Collects the messages printed while a grammar is checked into its result */
+    private class CheckConsole implements Console {
+
+        private final Console forward;
+
+        public CheckConsole(Console forward) {
+            this.forward = forward;
+        }
+
+        public void setMode(int mode) {
+            // ignore
+        }
+
+        public void println(String s) {
+            println(s, LEVEL_NORMAL);
+        }
+
+        public void println(String s, int level) {
+            GrammarCheckResult result = currentResult.get();
+            if(result == null) {
+                if(forward != null) forward.println(s, level);
+                return;
+            }
+            if(level == LEVEL_ERROR) {
+                result.errors.add(s);
+            } else if(level == LEVEL_WARNING) {
+                result.warnings.add(s);
+            }
+        }
+
+        public void println(Throwable e) {
+            GrammarCheckResult result = currentResult.get();
+            if(result == null) {
+                if(forward != null) forward.println(e);
+                return;
+            }
+            result.errors.add(e.toString());
+        }
+
+        public void print(String string, int level) {
+            println(string, level);
+        }
+
+        public void print(Throwable e) {
+            println(e);
+        }
+    }
+
+    private class CheckDelegate implements GrammarEngineDelegate, ATESyntaxEngineDelegate {
+
+        private final File file;
+        private final String text;
+        private final GrammarCheckResult result;
+
+        public CheckDelegate(File file, String text, GrammarCheckResult result) {
+            this.file = file;
+            this.text = text;
+            this.result = result;
+        }
+
+        public String getGrammarFileName() {
+            return file.getName();
+        }
+
+        public String getGrammarText() {
+            return text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getTokenVocabFile(String name) {
+            File vocab = new File(file.getAbsoluteFile().getParentFile(), name);
+            return vocab.exists()?vocab.getPath():null;
+        }
+
+        public Tool getANTLRTool() {
+            return new Tool(Utils.concat(options, new String[] { "-lib", file.getAbsoluteFile().getParent() }));
+        }
+
+        public void reportError(String error) {
+            result.errors.add(error);
+        }
+
+        public void reportError(Exception e) {
+            result.errors.add(e.toString());
+        }
+
+        public void gotoToRule(String grammar, String name) {
+        }
+
+        public void engineAnalyzeCompleted() {
+        }
+
+        public void ateEngineBeforeParsing() {
+        }
+
+        public void ateEngineAfterParsing() {
+        }
+    }
+
+}
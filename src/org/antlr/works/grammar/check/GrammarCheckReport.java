@@ -0,0 +1,242 @@
+package org.antlr.works.grammar.check;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.util.List;
+
+/** Formats the results of a batch check as JSON or as a JUnit XML report.
+ */
+public class GrammarCheckReport {
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_JUNIT = "junit";
+
+    private final List<GrammarCheckResult> results;
+    private final long time;
+
+    /**
+     * @param results the results of the grammars
+     * @param time the total time in ms of the check
+     */
+    public GrammarCheckReport(List<GrammarCheckResult> results, long time) {
+        this.results = results;
+        this.time = time;
+    }
+
+    public static boolean isKnownFormat(String format) {
+        return FORMAT_JSON.equals(format) || FORMAT_JUNIT.equals(format);
+    }
+
+    public String format(String format) {
+        if(FORMAT_JUNIT.equals(format)) {
+            return toJUnitXML();
+        } else {
+            return toJSON();
+        }
+    }
+
+    public int getErrorCount() {
+        int count = 0;
+        for(GrammarCheckResult r : results) {
+            count += r.errors.size();
+            if(r.exception != null) count++;
+        }
+        return count;
+    }
+
+    public int getWarningCount() {
+        int count = 0;
+        for(GrammarCheckResult r : results) {
+            count += r.warnings.size();
+        }
+        return count;
+    }
+
+    public boolean isSuccess() {
+        for(GrammarCheckResult r : results) {
+            if(!r.isSuccess()) return false;
+        }
+        return true;
+    }
+
+    public String toJSON() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"grammars\": [");
+        for(int index=0; index<results.size(); index++) {
+            GrammarCheckResult r = results.get(index);
+            sb.append(index == 0 ? "\n" : ",\n");
+            sb.append("    {\n");
+            sb.append("      \"file\": ").append(jsonString(r.file)).append(",\n");
+            sb.append("      \"name\": ").append(jsonString(r.name)).append(",\n");
+            sb.append("      \"type\": ").append(jsonString(r.type)).append(",\n");
+            sb.append("      \"success\": ").append(r.isSuccess()).append(",\n");
+            sb.append("      \"cached\": ").append(r.cached).append(",\n");
+            sb.append("      \"time\": ").append(r.time).append(",\n");
+            sb.append("      \"errors\": ").append(jsonArray(r.errors)).append(",\n");
+            sb.append("      \"warnings\": ").append(jsonArray(r.warnings)).append(",\n");
+            sb.append("      \"leftRecursiveRules\": ").append(jsonArray(r.leftRecursiveRules)).append(",\n");
+            sb.append("      \"decisions\": ");
+            if(r.statistics == null) {
+                sb.append("null");
+            } else {
+                sb.append("{ \"total\": ").append(r.statistics.decisions);
+                sb.append(", \"cyclic\": ").append(r.statistics.cyclicDecisions);
+                sb.append(", \"maxLookahead\": ").append(r.statistics.maxLookahead).append(" }");
+            }
+            sb.append(",\n");
+            sb.append("      \"exception\": ").append(r.exception == null ? "null" : jsonString(r.exception.toString())).append("\n");
+            sb.append("    }");
+        }
+        sb.append(results.isEmpty() ? "],\n" : "\n  ],\n");
+        sb.append("  \"errors\": ").append(getErrorCount()).append(",\n");
+        sb.append("  \"warnings\": ").append(getWarningCount()).append(",\n");
+        sb.append("  \"time\": ").append(time).append("\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public String toJUnitXML() {
+        int failures = 0;
+        int errors = 0;
+        for(GrammarCheckResult r : results) {
+            if(r.exception != null) {
+                errors++;
+            } else if(!r.errors.isEmpty()) {
+                failures++;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<testsuite name=\"antlrworks\" tests=\"").append(results.size());
+        sb.append("\" failures=\"").append(failures);
+        sb.append("\" errors=\"").append(errors);
+        sb.append("\" time=\"").append(seconds(time)).append("\">\n");
+        for(GrammarCheckResult r : results) {
+            sb.append("  <testcase classname=\"").append(xml(r.name == null ? "grammar" : r.name));
+            sb.append("\" name=\"").append(xml(r.file));
+            sb.append("\" time=\"").append(seconds(r.time)).append("\">\n");
+            if(r.exception != null) {
+                sb.append("    <error message=\"").append(xml(r.exception.toString())).append("\"/>\n");
+            } else if(!r.errors.isEmpty()) {
+                sb.append("    <failure message=\"").append(xml(r.errors.get(0))).append("\">");
+                sb.append(xml(join(r.errors))).append("</failure>\n");
+            }
+
+            StringBuilder out = new StringBuilder();
+            for(String warning : r.warnings) {
+                out.append(warning).append("\n");
+            }
+            if(!r.leftRecursiveRules.isEmpty()) {
+                out.append("left-recursive rules: ").append(r.leftRecursiveRules).append("\n");
+            }
+            if(r.statistics != null) {
+                out.append("decisions: ").append(r.statistics.decisions);
+                out.append(", cyclic: ").append(r.statistics.cyclicDecisions);
+                out.append(", max lookahead: ").append(r.statistics.maxLookahead);
+                out.append(r.cached ? " (cached)" : "").append("\n");
+            }
+            if(out.length() > 0) {
+                sb.append("    <system-out>").append(xml(out.toString())).append("</system-out>\n");
+            }
+            sb.append("  </testcase>\n");
+        }
+        sb.append("</testsuite>\n");
+        return sb.toString();
+    }
+
+    private static String join(List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        for(String line : lines) {
+            sb.append(line).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String seconds(long ms) {
+        return String.valueOf(ms/1000.0);
+    }
+
+    private static String jsonArray(List<String> strings) {
+        StringBuilder sb = new StringBuilder("[");
+        for(int index=0; index<strings.size(); index++) {
+            if(index > 0) sb.append(", ");
+            sb.append(jsonString(strings.get(index)));
+        }
+        return sb.append("]").toString();
+    }
+
+    private static String jsonString(String s) {
+        if(s == null) return "null";
+
+        StringBuilder sb = new StringBuilder("\"");
+        for(int index=0; index<s.length(); index++) {
+            char c = s.charAt(index);
+            switch(c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if(c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append("\"").toString();
+    }
+
+    private static String xml(String s) {
+        StringBuilder sb = new StringBuilder();
+        for(int index=0; index<s.length(); index++) {
+            char c = s.charAt(index);
+            switch(c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '"': sb.append("&quot;"); break;
+                default:
+                    if(c < 0x20 && c != '\n' && c != '\r' && c != '\t') {
+                        sb.append(' ');
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+}
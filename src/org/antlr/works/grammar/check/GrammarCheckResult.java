@@ -0,0 +1,72 @@
+package org.antlr.works.grammar.check;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.works.grammar.antlr.ANTLRDecisionStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Result of the headless check of one grammar file.
+ */
+public class GrammarCheckResult {
+
+    public final String file;
+
+    public String name;
+    public String type;
+
+    /** Time in ms taken to check the grammar */
+    public long time;
+
+    /** True if the analysis has been read from the analysis cache */
+    public boolean cached;
+
+    public final List<String> errors = new ArrayList<String>();
+    public final List<String> warnings = new ArrayList<String>();
+    public final List<String> leftRecursiveRules = new ArrayList<String>();
+
+    /** Statistics of the decisions or null if the grammar could not be analyzed */
+    public ANTLRDecisionStatistics statistics;
+
+    /** Exception thrown while checking the grammar, if any */
+    public Exception exception;
+
+    public GrammarCheckResult(String file) {
+        this.file = file;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty() && exception == null;
+    }
+
+}
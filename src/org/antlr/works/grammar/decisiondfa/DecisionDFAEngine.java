@@ -5,6 +5,7 @@ import org.antlr.analysis.NFAState;
 import org.antlr.tool.Grammar;
 import org.antlr.tool.Rule;
 import org.antlr.works.ate.ATEOverlayManager;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 
@@ -84,9 +85,15 @@ public class DecisionDFAEngine {
     }
 
     private void discover(int start, int end) throws Exception {
+        // Collect the lines located between start and end
         Set<Integer> lineIndexes = new HashSet<Integer>();
-        for(int index = start; index < end; index++) {
-            lineIndexes.add(window.getTextEditor().getLineIndexAtTextPosition(index));
+        if(start < end) {
+            ATELineIndex index = window.getTextEditor().getLineIndex();
+            int first = index.getLineIndexAtPosition(start);
+            int last = index.getLineIndexAtPosition(end-1);
+            for(int line = first; line <= last; line++) {
+                lineIndexes.add(line);
+            }
         }
 
         ANTLRGrammarEngine antlrEngineGrammar = window.getGrammarEngine().getANTLRGrammarEngine();
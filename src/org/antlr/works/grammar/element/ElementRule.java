@@ -11,6 +11,7 @@ import org.antlr.works.utils.IconManager;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -83,6 +84,16 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
 
     private GrammarEngine engine;
 
+    /* Tokens of the rule, copied when the rule is completed. The token list of the parser is
+    replaced by each parse while the rules of the previous parse can still be in use. */
+    private List<ATEToken> tokens;
+
+    /* Data derived from the tokens of the rule, computed on-demand. A rule that is modified is
+    parsed again, so the data is valid until then. The positions are relative to the start token
+    because an edit located before the rule shifts the index of its tokens. */
+    private int colonOffset;
+    private int[] alternativeBounds;
+
     public ElementRule(String name) {
         this.name = name;
         this.lexer = ATEToken.isLexerName(name);
@@ -97,10 +108,12 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
         this.lexer = ATEToken.isLexerName(name);
     }
 
-    public void completed() {
+    public synchronized void completed() {
         // Called when the rule has been completely parsed
         // Do not analyze the left recursion now, but on-demand.
         leftRecursionAnalyzed = false;
+        alternativeBounds = null;
+        tokens = Collections.unmodifiableList(new ArrayList<ATEToken>(parser.getTokens().subList(start.index, end.index)));
     }
 
     public void resetHierarchy() {
@@ -151,6 +164,24 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
             return null;
     }
 
+    /** Shifts the indexes of the references, blocks and actions when the lists of the parser
+     * have been modified before this rule (used by the incremental parsing).
+     */
+    public void shiftIndexes(int refsOffset, int blocksOffset, int actionsOffset) {
+        if(refsStartIndex != -1 && refsEndIndex != -1) {
+            refsStartIndex += refsOffset;
+            refsEndIndex += refsOffset;
+        }
+        if(blocksStartIndex != -1 && blocksEndIndex != -1) {
+            blocksStartIndex += blocksOffset;
+            blocksEndIndex += blocksOffset;
+        }
+        if(actionsStartIndex != -1 && actionsEndIndex != -1) {
+            actionsStartIndex += actionsOffset;
+            actionsEndIndex += actionsOffset;
+        }
+    }
+
     public int getStartIndex() {
         return start.getStartIndex();
     }
@@ -164,59 +195,79 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
     }
 
     public int getInternalTokensStartIndex() {
-        for(Iterator<ATEToken> iter = getTokens().iterator(); iter.hasNext(); ) {
-            ATEToken token = iter.next();
-            if(token.getAttribute().equals(":")) {
-                token = iter.next();
-                return token.getStartIndex();
-            }
+        analyzeTokens();
+        List<ATEToken> tokens = getTokens();
+        if(colonOffset == -1 || colonOffset+1 >= tokens.size()) {
+            return -1;
         }
-        return -1;
+        return tokens.get(colonOffset+1).getStartIndex();
     }
 
     public int getInternalTokensEndIndex() {
-        ATEToken token = parser.getTokens().get(end.index-1);
-        return token.getEndIndex();
+        List<ATEToken> tokens = getTokens();
+        return tokens.get(tokens.size()-1).getEndIndex();
     }
 
-    public List<ATEToken> getTokens() {
-        List<ATEToken> t = new ArrayList<ATEToken>();
-        for(int index=start.index; index<end.index; index++) {
-            t.add(parser.getTokens().get(index));
+    /** Returns the read-only list of the tokens of the rule (the ending semicolon excluded).
+     */
+    public synchronized List<ATEToken> getTokens() {
+        if(tokens == null) {
+            return Collections.unmodifiableList(new ArrayList<ATEToken>(parser.getTokens().subList(start.index, end.index)));
         }
-        return t;
+        return tokens;
     }
 
+    /** Returns the alternatives of the rule as views of its tokens.
+     */
     public List<List<ATEToken>> getAlternatives() {
-        List<List<ATEToken>> alts = new ArrayList<List<ATEToken>>();
-        List<ATEToken> alt = null;
-        boolean findColon = true;
+        analyzeTokens();
+        List<ATEToken> tokens = getTokens();
+        List<List<ATEToken>> alts = new ArrayList<List<ATEToken>>(alternativeBounds.length/2);
+        for(int index=0; index<alternativeBounds.length; index+=2) {
+            alts.add(tokens.subList(alternativeBounds[index], alternativeBounds[index+1]));
+        }
+        return alts;
+    }
+
+    /** Locates the colon and the bounds of the alternatives at the top level of the rule.
+     */
+    private synchronized void analyzeTokens() {
+        if(alternativeBounds != null) return;
+
+        List<ATEToken> tokens = getTokens();
+        List<Integer> bounds = new ArrayList<Integer>();
+        int colon = -1;
+        int altStart = -1;
         int level = 0;
-        for (ATEToken token : getTokens()) {
-            if (findColon) {
-                if (token.getAttribute().equals(":")) {
-                    findColon = false;
-                    alt = new ArrayList<ATEToken>();
-                }
-            } else {
-                if (token.getAttribute().equals("("))
-                    level++;
-                else if (token.getAttribute().equals(")"))
-                    level--;
-                else if (level == 0) { // removed token.type != GrammarSyntaxLexer.TOKEN_BLOCK &&
-                    if (token.getAttribute().equals("|")) {
-                        alts.add(alt);
-                        alt = new ArrayList<ATEToken>();
-                        continue;
-                    }
+        for (int index = 0; index < tokens.size(); index++) {
+            String attribute = tokens.get(index).getAttribute();
+            if (colon == -1) {
+                if (attribute.equals(":")) {
+                    colon = index;
+                    altStart = index+1;
                 }
-                alt.add(token);
+            } else if (attribute.equals("(")) {
+                level++;
+            } else if (attribute.equals(")")) {
+                level--;
+            } else if (level == 0 && attribute.equals("|")) { // removed token.type != GrammarSyntaxLexer.TOKEN_BLOCK &&
+                bounds.add(altStart);
+                bounds.add(index);
+                altStart = index+1;
             }
         }
-        if(alt != null && !alt.isEmpty()) {
-            alts.add(alt);
+        // the last alternative is ignored if empty
+        if(colon != -1 && altStart < tokens.size()) {
+            bounds.add(altStart);
+            bounds.add(tokens.size());
         }
-        return alts;
+
+        int[] b = new int[bounds.size()];
+        for(int index=0; index<b.length; index++) {
+            b[index] = bounds.get(index);
+        }
+        colonOffset = colon;
+        alternativeBounds = b;
     }
 
     public void setErrors(List<GrammarError> errors) {
@@ -243,7 +294,7 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
         return leftRecursiveRulesSet;
     }
 
-    public boolean hasLeftRecursion() {
+    public synchronized boolean hasLeftRecursion() {
         if(!leftRecursionAnalyzed) {
             leftRecursionAnalyzed = true;
             hasLeftRecursion = detectLeftRecursion();
@@ -252,11 +303,13 @@ public class ElementRule extends ElementScopable implements Comparable, EditorPe
     }
 
     public boolean detectLeftRecursion() {
-        for (List<ATEToken> alts : getAlternatives()) {
-            if (alts.isEmpty())
+        analyzeTokens();
+        List<ATEToken> tokens = getTokens();
+        for (int index = 0; index < alternativeBounds.length; index += 2) {
+            if (alternativeBounds[index] == alternativeBounds[index+1])
                 continue;
 
-            ATEToken firstTokenInAlt = alts.get(0);
+            ATEToken firstTokenInAlt = tokens.get(alternativeBounds[index]);
             if (firstTokenInAlt.getAttribute().equals(name))
                 return true;
         }
@@ -42,7 +42,22 @@ public class ElementToken extends ATEToken {
                         String text)
     {
         super(type, start, end, startLineNumber,  endLineNumber, startLineIndex, endLineIndex, text);
-        this.lexer = isLexerName(attribute);
+        this.lexer = end > start && isLexerName(getFirstChar());
+    }
+
+    protected ElementToken(ElementToken other) {
+        super(other);
+        this.lexer = other.lexer;
+    }
+
+    @Override
+    public ATEToken copy() {
+        return new ElementToken(this);
+    }
+
+    @Override
+    public boolean isCopyOf(ATEToken other) {
+        return super.isCopyOf(other) && lexer == ((ElementToken)other).lexer;
     }
 
 }
@@ -2,6 +2,7 @@ package org.antlr.works.grammar.engine;
 
 import org.antlr.Tool;
 import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisProgress;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.grammar.element.*;
@@ -42,9 +43,11 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 public interface GrammarEngine {
 
-    void setParent(GrammarEngine parent);
-    GrammarEngine getParent();
+    void addParent(GrammarEngine parent);
+    void removeParent(GrammarEngine parent);
+    List<GrammarEngine> getParents();
     GrammarEngine getRootEngine();
+    List<GrammarEngine> getRootEngines();
 
     void close();
 
@@ -92,6 +95,7 @@ public interface GrammarEngine {
     void updateHierarchy(Map<String, GrammarEngine> engines, Set<GrammarEngine> alreadyVisitedEngines);
 
     GrammarResult analyze() throws Exception;
+    GrammarResult analyze(ANTLRAnalysisProgress progress) throws Exception;
     void cancelAnalyze();
 
     void computeRuleErrors(ElementRule rule);
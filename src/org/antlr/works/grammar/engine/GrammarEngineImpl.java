@@ -3,16 +3,17 @@ package org.antlr.works.grammar.engine;
 import org.antlr.Tool;
 import org.antlr.tool.Grammar;
 import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisProgress;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngineImpl;
 import org.antlr.works.grammar.antlr.GrammarResult;
 import org.antlr.works.grammar.element.*;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
 
@@ -49,8 +50,17 @@ public class GrammarEngineImpl implements GrammarEngine {
 
     private GrammarEngineDelegate delegate;
 
-    private GrammarEngine parent;
-    private final List<GrammarEngine> importedEngines = new ArrayList<GrammarEngine>();
+    /** Grammars importing this grammar: an imported grammar is shared by all the grammars importing it */
+    private final List<GrammarEngine> parents = new CopyOnWriteArrayList<GrammarEngine>();
+    private final List<GrammarEngine> importedEngines = new CopyOnWriteArrayList<GrammarEngine>();
+
+    /** Revision of the declarations and of the hierarchy of all the grammars: the results
+     * of the override lookups are memoized until it changes */
+    private static final AtomicInteger hierarchyRevision = new AtomicInteger();
+
+    private final Map<String,List<String>> overriddenByRule = new ConcurrentHashMap<String,List<String>>();
+    private final Map<String,List<String>> overridingRule = new ConcurrentHashMap<String,List<String>>();
+    private int overrideCachesRevision = -1;
 
     private final GrammarProperties properties = new GrammarPropertiesImpl();
     private final ANTLRGrammarEngine antlrEngine = new ANTLRGrammarEngineImpl();
@@ -65,20 +75,41 @@ public class GrammarEngineImpl implements GrammarEngine {
         antlrEngine.setGrammarEngine(this);
     }
 
-    public void setParent(GrammarEngine parent) {
+    public void addParent(GrammarEngine parent) {
         //System.out.println(getGrammarName()+" is child of "+parent.getGrammarName());
-        this.parent = parent;
+        if(!parents.contains(parent)) {
+            parents.add(parent);
+        }
+        hierarchyRevision.incrementAndGet();
+    }
+
+    public void removeParent(GrammarEngine parent) {
+        parents.remove(parent);
+        hierarchyRevision.incrementAndGet();
     }
 
-    public GrammarEngine getParent() {
-        return parent;
+    public List<GrammarEngine> getParents() {
+        return Collections.unmodifiableList(parents);
     }
 
+    /** Returns the root of the first grammar importing this grammar */
     public GrammarEngine getRootEngine() {
-        if(parent == null) {
+        if(parents.isEmpty()) {
             return this;
         }
-        return parent.getRootEngine();
+        return parents.get(0).getRootEngine();
+    }
+
+    /** Returns the roots of all the grammars importing this grammar */
+    public List<GrammarEngine> getRootEngines() {
+        if(parents.isEmpty()) {
+            return Collections.<GrammarEngine>singletonList(this);
+        }
+        Set<GrammarEngine> roots = new LinkedHashSet<GrammarEngine>();
+        for(GrammarEngine parent : parents) {
+            roots.addAll(parent.getRootEngines());
+        }
+        return new ArrayList<GrammarEngine>(roots);
     }
 
     public void close() {
@@ -264,15 +295,18 @@ public class GrammarEngineImpl implements GrammarEngine {
      * of a parent grammar is declared again in one or more child grammar.
      */
     public List<String> getGrammarsOverriddenByRule(String name) {
-        List<String> grammars = new ArrayList<String>();
-        for(GrammarEngine child : importedEngines) {
-            for(ATEToken decl : child.getDecls()) {
-                if(decl.getAttribute().equals(name)) {
+        validateOverrideCaches();
+        List<String> grammars = overriddenByRule.get(name);
+        if(grammars == null) {
+            grammars = new ArrayList<String>();
+            for(GrammarEngine child : importedEngines) {
+                if(child.getFirstDeclarationPosition(name) != -1) {
                     grammars.add(child.getGrammarName());
-                    break;
                 }
+                grammars.addAll(child.getGrammarsOverriddenByRule(name));
             }
-            grammars.addAll(child.getGrammarsOverriddenByRule(name));
+            grammars = Collections.unmodifiableList(grammars);
+            overriddenByRule.put(name, grammars);
         }
         return grammars;
     }
@@ -281,26 +315,45 @@ public class GrammarEngineImpl implements GrammarEngine {
      * Returns the list of grammars that this rule overrides.
      */
     public List<String> getGrammarsOverridingRule(String name) {
-        List<String> grammars = new ArrayList<String>();
-        if(parent != null) {
-            for(ATEToken decl : parent.getDecls()) {
-                if(decl.getAttribute().equals(name)) {
-                    grammars.add(parent.getGrammarName());
-                    break;
+        validateOverrideCaches();
+        List<String> grammars = overridingRule.get(name);
+        if(grammars == null) {
+            Set<String> names = new LinkedHashSet<String>();
+            for(GrammarEngine parent : parents) {
+                if(parent.getFirstDeclarationPosition(name) != -1) {
+                    names.add(parent.getGrammarName());
                 }
+                names.addAll(parent.getGrammarsOverridingRule(name));
             }
-            grammars.addAll(parent.getGrammarsOverridingRule(name));
+            grammars = Collections.unmodifiableList(new ArrayList<String>(names));
+            overridingRule.put(name, grammars);
         }
         return grammars;
     }
 
+    /** Clears the override caches if any grammar has been parsed again or if
+     * the hierarchy of the grammars has changed since they were filled.
+     */
+    private void validateOverrideCaches() {
+        int revision = hierarchyRevision.get();
+        if(overrideCachesRevision != revision) {
+            overriddenByRule.clear();
+            overridingRule.clear();
+            overrideCachesRevision = revision;
+        }
+    }
+
     public List<ATEToken> getTokens() {
         return syntaxEngine.getTokens();
     }
 
     public void updateHierarchy(Map<String, GrammarEngine> engines,
                                 Set<GrammarEngine> alreadyVisitedEngines) {
+        for(GrammarEngine d : importedEngines) {
+            d.removeParent(this);
+        }
         importedEngines.clear();
+        hierarchyRevision.incrementAndGet();
         // traverse all the imports for this grammar
         for(ElementImport element : properties.getImports()) {
             GrammarEngine d = engines.get(element.getName());
@@ -309,8 +362,8 @@ public class GrammarEngineImpl implements GrammarEngine {
 
             // add the engine that is visited
             alreadyVisitedEngines.add(d);
-            if(parent != d) {
-                d.setParent(this);                
+            if(!parents.contains(d)) {
+                d.addParent(this);
             }
             importedEngines.add(d);
             d.updateHierarchy(engines, alreadyVisitedEngines);
@@ -325,6 +378,10 @@ public class GrammarEngineImpl implements GrammarEngine {
         return antlrEngine.analyze();
     }
 
+    public GrammarResult analyze(ANTLRAnalysisProgress progress) throws Exception {
+        return antlrEngine.analyze(progress);
+    }
+
     public void cancelAnalyze() {
         antlrEngine.cancel();
     }
@@ -335,6 +392,7 @@ public class GrammarEngineImpl implements GrammarEngine {
 
     public void parserCompleted() {
         properties.parserCompleted();
+        hierarchyRevision.incrementAndGet();
     }
 
     public void updateAll() {
@@ -343,7 +401,7 @@ public class GrammarEngineImpl implements GrammarEngine {
 
     public void markDirty() {
         antlrEngine.markDirty();
-        if(parent != null) {
+        for(GrammarEngine parent : parents) {
             parent.markDirty();
         }
     }
@@ -0,0 +1,316 @@
+package org.antlr.works.grammar.engine;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import org.antlr.Tool;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.grammar.element.ElementImport;
+import org.antlr.works.utils.Console;
+import org.antlr.works.utils.ConsoleHelper;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Registry of the grammar engines shared by all the windows. A grammar opened in a window
+ * is registered with its engine; an imported grammar that is not opened is parsed once
+ * from the disk and its engine is shared by all the grammars importing it, until the file
+ * is modified.
+ *
+ * Each time a grammar is parsed, the registry links it to the engines of its imports and
+ * marks as dirty the grammars that import it, directly or not.
+ */
+public class GrammarEngineRegistry {
+
+    private static final GrammarEngineRegistry shared = new GrammarEngineRegistry();
+
+    /** Engines of the grammars opened in a window, by path */
+    private final Map<String,GrammarEngine> openedEngines = new HashMap<String,GrammarEngine>();
+
+    /** Engines of the imported grammars parsed from the disk, by path */
+    private final Map<String,FileEngine> fileEngines = new HashMap<String,FileEngine>();
+
+    /** Paths of the grammars imported directly or indirectly by each linked engine */
+    private final Map<GrammarEngine,Set<String>> importedPaths = new HashMap<GrammarEngine,Set<String>>();
+
+    public static GrammarEngineRegistry shared() {
+        return shared;
+    }
+
+    /**
+     * Registers the engine of a grammar that has just been parsed, links it to its imports
+     * and updates the grammars that import it.
+     *
+     * @param engine the engine of the grammar
+     * @param path the path of the grammar or null if the grammar has not been saved yet
+     */
+    public synchronized void grammarParsed(GrammarEngine engine, String path) {
+        // the path of the engine can change if the grammar has been saved under another name
+        removeOpenedEngine(engine);
+
+        String key = getKey(path);
+        if(key != null) {
+            openedEngines.put(key, engine);
+        }
+
+        link(engine);
+
+        if(key != null) {
+            for(GrammarEngine dependent : getDependents(key)) {
+                if(dependent == engine) continue;
+                dependent.markDirty();
+                link(dependent);
+            }
+        }
+
+        pruneFileEngines();
+    }
+
+    /**
+     * Removes the engine of a grammar that is closed. The grammars importing it
+     * are linked again to the version of the grammar on the disk.
+     */
+    public synchronized void unregister(GrammarEngine engine) {
+        String key = removeOpenedEngine(engine);
+        importedPaths.remove(engine);
+        unlink(engine);
+
+        if(key != null) {
+            for(GrammarEngine dependent : getDependents(key)) {
+                link(dependent);
+            }
+        }
+
+        pruneFileEngines();
+    }
+
+    /**
+     * Returns the engine of the grammar at the specified path: the engine of the window
+     * if the grammar is opened, otherwise an engine parsed from the disk.
+     *
+     * @param path the path of the grammar
+     * @return the engine or null if the grammar does not exist
+     */
+    public synchronized GrammarEngine getEngine(String path) {
+        String key = getKey(path);
+        if(key == null) return null;
+
+        GrammarEngine engine = openedEngines.get(key);
+        if(engine != null) {
+            return engine;
+        }
+
+        File file = new File(key);
+        FileEngine fileEngine = fileEngines.get(key);
+        if(fileEngine != null && fileEngine.isUpToDate()) {
+            return fileEngine.engine;
+        }
+
+        if(fileEngine != null) {
+            removeFileEngine(key);
+        }
+
+        if(!file.isFile()) {
+            return null;
+        }
+
+        try {
+            fileEngine = new FileEngine(file);
+        } catch (IOException e) {
+            ConsoleHelper.getCurrent().println("Cannot read the grammar "+key+": "+e, Console.LEVEL_ERROR);
+            return null;
+        }
+
+        // register the engine before linking it in case the imports are cyclic
+        fileEngines.put(key, fileEngine);
+        link(fileEngine.engine);
+        fileEngine.engine.updateAll();
+
+        return fileEngine.engine;
+    }
+
+    private void link(GrammarEngine engine) {
+        Map<String,GrammarEngine> engines = new HashMap<String,GrammarEngine>();
+        Set<String> paths = new HashSet<String>();
+        collectImports(engine, engines, paths);
+        importedPaths.put(engine, paths);
+        engine.updateHierarchy(engines, new HashSet<GrammarEngine>());
+    }
+
+    /** Removes the engine from the grammars importing its imports */
+    private void unlink(GrammarEngine engine) {
+        engine.updateHierarchy(Collections.<String,GrammarEngine>emptyMap(), new HashSet<GrammarEngine>());
+    }
+
+    private void collectImports(GrammarEngine engine, Map<String,GrammarEngine> engines, Set<String> paths) {
+        for(ElementImport element : engine.getImports()) {
+            String name = element.getName();
+            if(engines.containsKey(name)) continue;
+
+            // imported grammars are resolved the same way as the token vocabulary files
+            String path = engine.getTokenVocabFile(name+".g");
+            GrammarEngine imported = getEngine(path);
+            if(imported == null) continue;
+
+            engines.put(name, imported);
+            paths.add(getKey(path));
+            collectImports(imported, engines, paths);
+        }
+    }
+
+    private List<GrammarEngine> getDependents(String key) {
+        List<GrammarEngine> dependents = new ArrayList<GrammarEngine>();
+        for(Map.Entry<GrammarEngine,Set<String>> entry : importedPaths.entrySet()) {
+            if(entry.getValue().contains(key)) {
+                dependents.add(entry.getKey());
+            }
+        }
+        return dependents;
+    }
+
+    private String removeOpenedEngine(GrammarEngine engine) {
+        for(Iterator<Map.Entry<String,GrammarEngine>> iterator = openedEngines.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String,GrammarEngine> entry = iterator.next();
+            if(entry.getValue() == engine) {
+                iterator.remove();
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private void removeFileEngine(String key) {
+        FileEngine fileEngine = fileEngines.remove(key);
+        if(fileEngine != null) {
+            importedPaths.remove(fileEngine.engine);
+            unlink(fileEngine.engine);
+            fileEngine.engine.close();
+        }
+    }
+
+    /** Closes the engines parsed from the disk that are no longer imported by an opened grammar */
+    private void pruneFileEngines() {
+        Set<String> used = new HashSet<String>();
+        for(GrammarEngine engine : openedEngines.values()) {
+            Set<String> paths = importedPaths.get(engine);
+            if(paths != null) {
+                used.addAll(paths);
+            }
+        }
+        for(String key : new ArrayList<String>(fileEngines.keySet())) {
+            if(!used.contains(key) && !openedEngines.containsKey(key)) {
+                removeFileEngine(key);
+            }
+        }
+    }
+
+    private static String getKey(String path) {
+        if(path == null) return null;
+        File file = new File(path);
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /** Engine of a grammar parsed from the disk */
+    private static class FileEngine implements GrammarEngineDelegate, ATESyntaxEngineDelegate {
+
+        private final File file;
+        private final long modified;
+        private final long length;
+        private final String text;
+        private final GrammarEngine engine;
+
+        public FileEngine(File file) throws IOException {
+            this.file = file;
+            this.modified = file.lastModified();
+            this.length = file.length();
+            this.text = XJUtils.getStringFromFile(file.getPath());
+
+            engine = new GrammarEngineImpl(this);
+            engine.getSyntaxEngine().setDelegate(this);
+            engine.getSyntaxEngine().processSyntax();
+            engine.parserCompleted();
+        }
+
+        public boolean isUpToDate() {
+            return file.lastModified() == modified && file.length() == length;
+        }
+
+        public String getGrammarFileName() {
+            return file.getName();
+        }
+
+        public String getGrammarText() {
+            return text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getTokenVocabFile(String name) {
+            File vocab = new File(file.getParentFile(), name);
+            return vocab.exists()?vocab.getPath():null;
+        }
+
+        public Tool getANTLRTool() {
+            // the imported grammars are analyzed by ANTLR as part of the grammar importing them
+            return null;
+        }
+
+        public void reportError(String error) {
+            ConsoleHelper.getCurrent().println(error, Console.LEVEL_ERROR);
+        }
+
+        public void reportError(Exception e) {
+            ConsoleHelper.getCurrent().println(e);
+        }
+
+        public void gotoToRule(String grammar, String name) {
+        }
+
+        public void engineAnalyzeCompleted() {
+        }
+
+        public void ateEngineBeforeParsing() {
+        }
+
+        public void ateEngineAfterParsing() {
+        }
+    }
+
+}
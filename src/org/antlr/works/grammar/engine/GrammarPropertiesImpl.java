@@ -1,15 +1,11 @@
 package org.antlr.works.grammar.engine;
 
 import org.antlr.tool.Grammar;
-import org.antlr.works.ate.syntax.generic.ATESyntaxLexer;
-import org.antlr.works.ate.syntax.generic.ATESyntaxParser;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.element.*;
 import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
-import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
 import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
-import org.antlr.xjlib.foundation.XJUtils;
 
 import java.io.IOException;
 import java.util.*;
@@ -56,10 +52,14 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     private final List<ElementImport> imports = new ArrayList<ElementImport>();
     private final List<ATEToken> decls = new ArrayList<ATEToken>();
 
+    /** Indexes of the rules and of the declarations by name, replaced after each parsing */
+    private volatile Map<String,ElementRule> rulesByName = new HashMap<String,ElementRule>();
+    private volatile Map<String,ATEToken> declsByName = new HashMap<String,ATEToken>();
+
     private final List<ElementRule> duplicateRules = new ArrayList<ElementRule>();
     private final List<ElementReference> undefinedReferences = new ArrayList<ElementReference>();
 
-    private final Set<String> tokenVocabNames = new HashSet<String>();
+    private Set<String> tokenVocabNames = Collections.emptySet();
     private String tokenVocabName;
 
     private GrammarEngine engine;
@@ -86,12 +86,7 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     }
 
     public ElementRule getRuleWithName(String name) {
-        List<ElementRule> rules = getRules();
-        for (ElementRule r : rules) {
-            if (r.name.equals(name))
-                return r;
-        }
-        return null;
+        return rulesByName.get(name);
     }
 
     public List<ElementGroup> getGroups() {
@@ -236,14 +231,13 @@ public class GrammarPropertiesImpl implements GrammarProperties {
 
     private void resetTokenVocab() {
         tokenVocabName = null;
-        tokenVocabNames.clear();
+        tokenVocabNames = Collections.emptySet();
     }
 
     private Set<String> getTokenVocabNames() {
         String tokenVocab = getTokenVocab();
         if(tokenVocab == null) {
-            tokenVocabName = null;
-            tokenVocabNames.clear();
+            resetTokenVocab();
             return tokenVocabNames;
         }
 
@@ -251,12 +245,13 @@ public class GrammarPropertiesImpl implements GrammarProperties {
             return tokenVocabNames;
 
         tokenVocabName = tokenVocab;
-        tokenVocabNames.clear();
+        tokenVocabNames = Collections.emptySet();
 
         try {
+            // the names are read again only if the file has been modified
             String file = engine.getTokenVocabFile(tokenVocabName+".tokens");
             if(file != null) {
-                readTokenVocabFromFile(file, tokenVocabNames);
+                tokenVocabNames = TokenVocabCache.shared().getTokenNames(file);
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -266,48 +261,17 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     }
 
     public static boolean readTokenVocabFromFile(String filePath, Set<String> tokenNames) throws IOException {
-        // Read the tokens from the file if it exists
-        List<ATEToken> tokens = parsePropertiesString(XJUtils.getStringFromFile(filePath));
-        // Add each token name to the list of tokenVocabNames
-        for (ATEToken t : tokens) {
-            tokenNames.add(t.getAttribute());
-        }
-
+        tokenNames.addAll(TokenVocabCache.shared().getTokenNames(filePath));
         return true;
     }
 
-    private static List<ATEToken> parsePropertiesString(final String content) {
-
-        class ParseProperties extends ATESyntaxParser {
-
-            public List<ATEToken> propertiesTokens;
-
-            public void parseTokens() {
-                propertiesTokens = new ArrayList<ATEToken>();
-                while(nextToken()) {
-                    if(T(0).type == ATESyntaxLexer.TOKEN_ID) {
-                        if(isChar(1, "=") || isChar(1, "\n"))
-                            propertiesTokens.add(T(0));
-                    }
-                }
-            }
-
-        }
-
-        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
-        lexer.tokenize(content);
-
-        ParseProperties parser = new ParseProperties();
-        parser.parse(lexer.getTokens());
-        return parser.propertiesTokens;
-    }
-
     private void rebuildHasLeftRecursionRulesList() {
         if(getRules() == null)
             return;
 
         for (ElementRule r : getRules()) {
-            // hasLeftRecursion has a side-effect to analyze the rule
+            // hasLeftRecursion has a side-effect to analyze the rule: only the rules
+            // parsed again are analyzed, the others have kept their result
             r.hasLeftRecursion();
         }
     }
@@ -333,7 +297,7 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     }
 
     private void rebuildUndefinedReferencesList() {
-        List<String> existingReferences = getRuleNames();
+        Set<String> existingReferences = new HashSet<String>(rulesByName.keySet());
         existingReferences.addAll(getDeclaredTokenNames());
         existingReferences.addAll(getPredefinedReferences());
 
@@ -349,12 +313,19 @@ public class GrammarPropertiesImpl implements GrammarProperties {
         for (ElementReference ref : references) {
             if (existingReferences.contains(ref.token.getAttribute())) continue;
             if (!engine.getGrammarsOverriddenByRule(ref.token.getAttribute()).isEmpty()) continue;
-            // also check from the root grammar
-            if (!engine.getRootEngine().getGrammarsOverriddenByRule(ref.token.getAttribute()).isEmpty()) continue;
+            // also check from the root grammars
+            if (isOverriddenFromRoot(ref.token.getAttribute())) continue;
             undefinedReferences.add(ref);
         }
     }
 
+    private boolean isOverriddenFromRoot(String name) {
+        for(GrammarEngine root : engine.getRootEngines()) {
+            if(!root.getGrammarsOverriddenByRule(name).isEmpty()) return true;
+        }
+        return false;
+    }
+
     public void updateAll() {
         rebuildDuplicateRulesList();
         rebuildUndefinedReferencesList();
@@ -362,7 +333,10 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     }
 
     public void parserCompleted() {
-        update((GrammarSyntaxParser) syntaxEngine.getParser());
+        // The lists of the parser are modified by the next processing of the text
+        synchronized(syntaxEngine.getProcessLock()) {
+            update((GrammarSyntaxParser) syntaxEngine.getParser());
+        }
         resetTokenVocab();
     }
 
@@ -393,6 +367,28 @@ public class GrammarPropertiesImpl implements GrammarProperties {
         for(ElementRule r : rules) {
             r.setEngine(engine);
         }
+
+        rebuildIndexes();
+    }
+
+    private void rebuildIndexes() {
+        // keep the first occurrence of each name, as a linear search would do
+        Map<String,ElementRule> ruleIndex = new HashMap<String,ElementRule>();
+        for(ElementRule r : rules) {
+            if(!ruleIndex.containsKey(r.name)) {
+                ruleIndex.put(r.name, r);
+            }
+        }
+        rulesByName = ruleIndex;
+
+        Map<String,ATEToken> declIndex = new HashMap<String,ATEToken>();
+        for(ATEToken decl : decls) {
+            String attribute = decl.getAttribute();
+            if(!declIndex.containsKey(attribute)) {
+                declIndex.put(attribute, decl);
+            }
+        }
+        declsByName = declIndex;
     }
 
     public List<String> getAllGeneratedNames() throws Exception {
@@ -425,12 +421,7 @@ public class GrammarPropertiesImpl implements GrammarProperties {
     }
 
     private ATEToken getFirstDeclaration(String name) {
-        for(ATEToken decl : getDecls()) {
-            if(decl.getAttribute().equals(name)) {
-                return decl;
-            }
-        }
-        return null;
+        return declsByName.get(name);
     }
 
 }
\ No newline at end of file
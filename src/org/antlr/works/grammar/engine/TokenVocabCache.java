@@ -0,0 +1,186 @@
+package org.antlr.works.grammar.engine;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2007 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Cache of the token names read from the token vocabulary files, shared by all the grammars.
+ * A file is read again only if its modification date or its size have changed. The sets of
+ * names are immutable so they can be shared by all the grammars using the same vocabulary.
+ */
+public class TokenVocabCache {
+
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 64;
+
+    private static final TokenVocabCache shared = new TokenVocabCache(DEFAULT_MAXIMUM_ENTRIES);
+
+    private final Map<String,VocabEntry> entries;
+
+    public static TokenVocabCache shared() {
+        return shared;
+    }
+
+    public TokenVocabCache(final int maximumEntries) {
+        // least recently used order
+        entries = new LinkedHashMap<String,VocabEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,VocabEntry> eldest) {
+                return size() > maximumEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the names of the tokens defined in the vocabulary file.
+     *
+     * @param path the path of the .tokens file
+     * @return an immutable set of names, empty if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public Set<String> getTokenNames(String path) throws IOException {
+        File file = new File(path);
+        String key = getKey(file);
+        long modified = file.lastModified();
+        long length = file.length();
+
+        synchronized(this) {
+            VocabEntry entry = entries.get(key);
+            if(entry != null && entry.modified == modified && entry.length == length) {
+                return entry.names;
+            }
+        }
+
+        if(!file.isFile()) {
+            synchronized(this) {
+                entries.remove(key);
+            }
+            return Collections.emptySet();
+        }
+
+        // read the file outside of the lock: the other files remain available
+        Set<String> names;
+        Reader reader = new BufferedReader(new FileReader(file));
+        try {
+            names = Collections.unmodifiableSet(readTokenNames(reader));
+        } finally {
+            reader.close();
+        }
+
+        synchronized(this) {
+            entries.put(key, new VocabEntry(modified, length, names));
+        }
+        return names;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Reads the names of the tokens of a vocabulary file. Each line of the file has the form
+     * NAME=type or 'literal'=type: only the names are returned.
+     */
+    public static Set<String> readTokenNames(Reader reader) throws IOException {
+        Set<String> names = new HashSet<String>();
+        StringBuilder name = new StringBuilder();
+        boolean skipLine = false;
+        boolean afterName = false;
+        int c;
+        while((c = reader.read()) != -1) {
+            if(c == '\n' || c == '\r') {
+                if(afterName || name.length() > 0) {
+                    names.add(name.toString());
+                }
+                name.setLength(0);
+                skipLine = false;
+                afterName = false;
+                continue;
+            }
+            if(skipLine) continue;
+
+            if(c == '=') {
+                if(name.length() > 0) {
+                    names.add(name.toString());
+                }
+                skipLine = true;
+            } else if(c == ' ' || c == '\t') {
+                if(name.length() > 0) {
+                    afterName = true;
+                }
+            } else if(!afterName && isNameCharacter(c, name.length() == 0)) {
+                name.append((char)c);
+            } else {
+                // a literal or anything else than a name
+                skipLine = true;
+            }
+            if(skipLine) {
+                name.setLength(0);
+                afterName = false;
+            }
+        }
+        if(name.length() > 0) {
+            names.add(name.toString());
+        }
+        return names;
+    }
+
+    private static boolean isNameCharacter(int c, boolean first) {
+        return Character.isLetter(c) || c == '_' || (!first && Character.isDigit(c));
+    }
+
+    private static String getKey(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static class VocabEntry {
+
+        private final long modified;
+        private final long length;
+        private final Set<String> names;
+
+        public VocabEntry(long modified, long length, Set<String> names) {
+            this.modified = modified;
+            this.length = length;
+            this.names = names;
+        }
+    }
+}
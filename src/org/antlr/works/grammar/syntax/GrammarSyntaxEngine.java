@@ -141,6 +141,10 @@ public class GrammarSyntaxEngine extends ATESyntaxEngine {
     }
 
     public void resolveReferencesWithExternalNames(Set<String> names) {
-        ((GrammarSyntaxParser)getParser()).resolveReferencesWithExternalNames(names);
+        synchronized(getProcessLock()) {
+            // The type of the resolved references changes: publish them again
+            if(((GrammarSyntaxParser)getParser()).resolveReferencesWithExternalNames(names))
+                republish();
+        }
     }
 }
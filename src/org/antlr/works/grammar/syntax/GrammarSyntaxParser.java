@@ -78,6 +78,30 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
     private final Set<String> declaredReferenceNames = new HashSet<String>();
     private final Map<ATEToken,ElementRule> refsToRules = new HashMap<ATEToken,ElementRule>();
 
+    /** All the internal references (resolved or not) in the order they appear in the grammar */
+    private final List<ATEToken> internalReferences = new ArrayList<ATEToken>();
+
+    /** Size of each list at the beginning of each rule, used by the incremental parsing
+     * to replace only the elements belonging to the rules that are parsed again.
+     */
+    private final List<RuleOffsets> rulesOffsets = new ArrayList<RuleOffsets>();
+
+    /** Number of references matched by the parser itself (the ones following are coming
+     * from the resolution of the internal references)
+     */
+    private int parsedReferencesCount;
+
+    /** Type of the tokens of the resolved references before their resolution */
+    private final List<Integer> resolvedTypes = new ArrayList<Integer>();
+
+    /** True if an element other than a rule has been matched after the first rule */
+    private boolean elementAfterRules;
+
+    /** Tokens reset by the incremental parsing with their previous type and scope */
+    private List<ATEToken> resetTokens;
+    private List<Integer> resetTypes;
+    private List<ATEScope> resetScopes;
+
     private ElementGrammarName name;
     private ElementRule currentRule;
 
@@ -127,12 +151,13 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         if(!nextToken()) return;
 
         while(true) {
+            final int lookahead = getFurthestPosition()-getPosition();
 
-            if(matchName()) continue;
-            if(matchScope()) continue; // scope before block
-            if(matchBlock()) continue;
-            if(matchImport()) continue;
-            if(matchRule()) continue;
+            if(matchGrammarElement()) {
+                if(!rules.isEmpty()) elementAfterRules = true;
+                continue;
+            }
+            if(matchRule(lookahead)) continue;
 
             if(matchRuleGroup()) continue; // before single comment
 
@@ -146,6 +171,234 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         resolveReferences();
     }
 
+    /**
+     * Parses again only the rules affected by the modified tokens. The parsing starts at the last rule
+     * beginning before the modified tokens and stops as soon as the beginning of a previously parsed
+     * rule located after the modified tokens is reached. If the modification can affect something
+     * else than the rules (e.g. the name of the grammar, the options, etc), the whole grammar is parsed again.
+     */
+    @Override
+    public void parse(List<ATEToken> tokens, int modifiedStart, int modifiedEnd) {
+        if(!parseModifiedRules(tokens, modifiedStart, modifiedEnd)) {
+            parse(tokens);
+        }
+    }
+
+    private boolean parseModifiedRules(List<ATEToken> tokens, int modifiedStart, int modifiedEnd) {
+        if(rules.isEmpty() || elementAfterRules) return false;
+
+        // The parsing restarts from a rule that was parsed without looking at the tokens located
+        // before it, otherwise its parsing could have been influenced by the preceding tokens.
+        int index = getLastRuleBefore(tokens, modifiedStart);
+        while(index >= 0 && rulesOffsets.get(index).lookahead > 0) {
+            index--;
+        }
+        if(index == -1) {
+            // The beginning of the grammar might have been modified
+            return false;
+        }
+        final int first = index;
+
+        // The references coming from the resolution are computed again at the end
+        for(int i=references.size()-1; i >= parsedReferencesCount; i--) {
+            references.get(i).token.type = resolvedTypes.get(i-parsedReferencesCount);
+        }
+        references.subList(parsedReferencesCount, references.size()).clear();
+        resolvedTypes.clear();
+
+        // The new elements are appended at the end of each list
+        final int rulesCount = rules.size();
+        final RuleOffsets tail = getOffsets();
+
+        prepare(tokens, rules.get(first).start.index);
+        resetTokens = new ArrayList<ATEToken>();
+        resetTypes = new ArrayList<Integer>();
+        resetScopes = new ArrayList<ATEScope>();
+        int next = first+1;
+        try {
+            while(true) {
+                // Skip the rules that are modified or that have been looked at by the parsing
+                while(next < rulesCount && !isUnchangedRule(tokens, next, modifiedEnd)) {
+                    next++;
+                }
+
+                // Stop when an unchanged rule is reached
+                if(next < rulesCount && rules.get(next).start.index == getPosition()) {
+                    rulesOffsets.get(next).lookahead = getFurthestPosition()-getPosition();
+                    break;
+                }
+                if(T(0) == null) break;
+
+                final int lookahead = getFurthestPosition()-getPosition();
+                if(matchGrammarElement()) return false;
+                if(matchRule(lookahead)) continue;
+                if(matchRuleGroup()) continue;
+                if(matchSingleComment(0)) continue;
+                if(matchComplexComment(0)) continue;
+
+                if(!nextToken()) break;
+            }
+            restoreTokens(next < rulesCount ? rules.get(next).start.index : tokens.size());
+        } finally {
+            resetTokens = null;
+            resetTypes = null;
+            resetScopes = null;
+        }
+
+        replaceRules(first, next, rulesCount, tail);
+
+        // Resolve again all the internal references because the declared names might have changed
+        declaredReferenceNames.clear();
+        for(ATEToken decl : decls) {
+            declaredReferenceNames.add(decl.getAttribute());
+        }
+        resolveReferences();
+        return true;
+    }
+
+    /**
+     * Replaces the rules between first (inclusive) and next (exclusive) and their elements
+     * with the ones appended at the end of each list by the incremental parsing.
+     */
+    private void replaceRules(int first, int next, int rulesCount, RuleOffsets tail) {
+        final RuleOffsets start = rulesOffsets.get(first);
+        final RuleOffsets stop = next < rulesCount ? rulesOffsets.get(next).copy() : tail;
+
+        // Translate the indexes of the new rules and groups to their final position
+        for(int i=rulesCount; i<rules.size(); i++) {
+            rules.get(i).shiftIndexes(start.references-tail.references, start.blocks-tail.blocks,
+                    start.actions-tail.actions);
+            rulesOffsets.get(i).shift(start, tail);
+        }
+        for(int i=tail.groups; i<groups.size(); i++) {
+            groups.get(i).ruleIndex += first - rulesCount;
+        }
+
+        // Shift the indexes of the rules and groups located after the replaced rules
+        final RuleOffsets delta = getOffsets();
+        delta.shift(start, tail);
+        delta.shift(RuleOffsets.ZERO, stop);
+        final int rulesDelta = rules.size() - rulesCount - (next - first);
+        for(int i=next; i<rulesCount; i++) {
+            rules.get(i).shiftIndexes(delta.references, delta.blocks, delta.actions);
+            rulesOffsets.get(i).shift(delta, RuleOffsets.ZERO);
+        }
+        for(int i=stop.groups; i<tail.groups; i++) {
+            groups.get(i).ruleIndex += rulesDelta;
+        }
+
+        // Forget the references of the removed rules
+        final Set<ElementRule> removed = new HashSet<ElementRule>(rules.subList(first, next));
+        for(Iterator<ElementRule> iterator = refsToRules.values().iterator(); iterator.hasNext();) {
+            if(removed.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+
+        replace(rules, first, next, rulesCount);
+        replace(rulesOffsets, first, next, rulesCount);
+        replace(groups, start.groups, stop.groups, tail.groups);
+        replace(blocks, start.blocks, stop.blocks, tail.blocks);
+        replace(actions, start.actions, stop.actions, tail.actions);
+        replace(references, start.references, stop.references, tail.references);
+        replace(internalReferences, start.internalReferences, stop.internalReferences, tail.internalReferences);
+        replace(decls, start.decls, stop.decls, tail.decls);
+        replace(imports, start.imports, stop.imports, tail.imports);
+
+        for(int i=start.actions; i<actions.size(); i++) {
+            actions.get(i).actionNum = i;
+        }
+    }
+
+    private RuleOffsets getOffsets() {
+        return new RuleOffsets(groups.size(), blocks.size(), actions.size(), references.size(),
+                internalReferences.size(), decls.size(), imports.size());
+    }
+
+    /**
+     * Replaces the elements of the list between from (inclusive) and to (exclusive) with
+     * the elements located at the end of the list starting at index tail.
+     */
+    private static <T> void replace(List<T> list, int from, int to, int tail) {
+        List<T> elements = list.subList(tail, list.size());
+        List<T> added = new ArrayList<T>(elements);
+        elements.clear();
+        list.subList(from, to).clear();
+        list.addAll(from, added);
+    }
+
+    /**
+     * Returns the index of the last rule starting before the specified token index
+     * or -1 if there is none.
+     */
+    private int getLastRuleBefore(List<ATEToken> tokens, int index) {
+        // The rules starting before the modified tokens are always at the beginning of the list
+        int low = 0;
+        int high = rules.size()-1;
+        int result = -1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            ATEToken start = rules.get(middle).start;
+            if(start.index < index && isTokenAt(tokens, start)) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the rule is located after the modified tokens and was parsed without looking at the tokens
+     * located before it: such a rule is parsed exactly the same way as long as the parser did not look
+     * at its tokens yet.
+     */
+    private boolean isUnchangedRule(List<ATEToken> tokens, int index, int modifiedEnd) {
+        ATEToken start = rules.get(index).start;
+        return start.index > modifiedEnd && isTokenAt(tokens, start)
+                && rulesOffsets.get(index).lookahead <= 0 && getFurthestPosition() <= start.index;
+    }
+
+    private static boolean isTokenAt(List<ATEToken> tokens, ATEToken token) {
+        return token.index >= 0 && token.index < tokens.size() && tokens.get(token.index) == token;
+    }
+
+    @Override
+    protected void resetToken(ATEToken token) {
+        if(resetTokens != null) {
+            resetTokens.add(token);
+            resetTypes.add(token.type);
+            resetScopes.add(token.scope);
+        }
+        super.resetToken(token);
+    }
+
+    /**
+     * Restores the tokens reset by the incremental parsing that are located after the specified index.
+     * These tokens belong to rules that have not been parsed again.
+     */
+    private void restoreTokens(int index) {
+        for(int i=resetTokens.size()-1; i >= 0; i--) {
+            ATEToken token = resetTokens.get(i);
+            if(token.index < index) break;
+            token.type = resetTypes.get(i);
+            token.scope = resetScopes.get(i);
+        }
+    }
+
+    /**
+     * Matches any element of the grammar that is not a rule
+     *
+     * @return true if an element is matched
+     */
+    private boolean matchGrammarElement() {
+        if(matchName()) return true;
+        if(matchScope()) return true; // scope before block
+        if(matchBlock()) return true;
+        return matchImport();
+    }
+
     private void clear() {
         rules.clear();
         groups.clear();
@@ -158,6 +411,11 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         declaredReferenceNames.clear();
         unresolvedReferences.clear();
         refsToRules.clear();
+        internalReferences.clear();
+        resolvedTypes.clear();
+        rulesOffsets.clear();
+        parsedReferencesCount = 0;
+        elementAfterRules = false;
     }
 
     /**
@@ -166,25 +424,34 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
      * any remaining references that are still unresolved.
      *
      * @param externalNames A list of string representing the external declared reference names
+     * @return True if at least one reference has been resolved
      */
-    public void resolveReferencesWithExternalNames(Set<String> externalNames) {
+    public boolean resolveReferencesWithExternalNames(Set<String> externalNames) {
+        boolean resolved = false;
         for(int i=unresolvedReferences.size()-1; i >= 0; i--) {
             ATEToken ref = unresolvedReferences.get(i);
             if(externalNames.contains(ref.getAttribute())) {
+                resolvedTypes.add(ref.type);
                 ref.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
                 references.add(new ElementReference(refsToRules.get(ref), ref));
                 unresolvedReferences.remove(i);
+                resolved = true;
             }
         }
+        return resolved;
     }
 
     /**
      * Resolves the unresolved references by looking at the set of declared references
      */
     private void resolveReferences() {
+        parsedReferencesCount = references.size();
+        unresolvedReferences.clear();
+        unresolvedReferences.addAll(internalReferences);
         for(int i=unresolvedReferences.size()-1; i >= 0; i--) {
             ATEToken ref = unresolvedReferences.get(i);
             if(declaredReferenceNames.contains(ref.getAttribute())) {
+                resolvedTypes.add(ref.type);
                 ref.type = GrammarSyntaxLexer.TOKEN_REFERENCE;
                 references.add(new ElementReference(refsToRules.get(ref), ref));
                 unresolvedReferences.remove(i);
@@ -401,19 +668,25 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
      *  COMMENT = // or /*
      *  ARG = '[' Type arg... ']'
      *
+     * @param lookahead The distance between the current token and the furthest token looked at before
      * @return true if a rule is matched
      */
-    private boolean matchRule() {
+    private boolean matchRule(int lookahead) {
         mark();
+        RuleOffsets offsets = getOffsets();
+        offsets.lookahead = lookahead;
         try {
             if(tryMatchRule()) {
+                rulesOffsets.add(offsets);
                 return true;
             } else {
                 rewind();
                 return false;
             }
         } finally {
+            // The labels belong to the rule only
             currentRule = null;
+            labels.clear();
         }
     }
 
@@ -422,7 +695,7 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         if(start == null) return false;
 
         // Match any modifiers
-        if(ruleModifiers.contains(start.getAttribute())) {
+        if(start.lexerType == ATESyntaxLexer.TOKEN_ID && ruleModifiers.contains(start.getAttribute())) {
             // skip the modifier
             if(!nextToken()) return false;
         }
@@ -833,7 +1106,9 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         String comment = token.getAttribute();
 
         if(comment.startsWith(BEGIN_GROUP)) {
-            groups.add(new ElementGroup(comment.substring(BEGIN_GROUP.length(), comment.length()-1), rules.size()-1, token));
+            // The comment does not end with a new line if it is at the end of the text
+            int end = Math.max(BEGIN_GROUP.length(), comment.length()-1);
+            groups.add(new ElementGroup(comment.substring(BEGIN_GROUP.length(), end), rules.size()-1, token));
             nextToken();
             return true;
         } else if(comment.startsWith(END_GROUP)) {
@@ -919,7 +1194,7 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
                 // after parsing if they are listed as a lexer or parser declaration. Otherwise, we
                 // skip these references.
 
-                unresolvedReferences.add(ref);
+                internalReferences.add(ref);
             }
         }
     }
@@ -1030,6 +1305,56 @@ public class GrammarSyntaxParser extends ATESyntaxParser {
         return isTokenType(index, ATESyntaxLexer.TOKEN_LCURLY);
     }
 
+    /**
+     * Size of the lists of the parser at a given time
+     */
+    private static class RuleOffsets {
+
+        public static final RuleOffsets ZERO = new RuleOffsets(0, 0, 0, 0, 0, 0, 0);
+
+        public int groups;
+        public int blocks;
+        public int actions;
+        public int references;
+        public int internalReferences;
+        public int decls;
+        public int imports;
+
+        /** Distance between the beginning of the rule and the furthest token looked at by the parser
+         * when it reached the beginning of the rule
+         */
+        public int lookahead;
+
+        public RuleOffsets(int groups, int blocks, int actions, int references, int internalReferences,
+                           int decls, int imports) {
+            this.groups = groups;
+            this.blocks = blocks;
+            this.actions = actions;
+            this.references = references;
+            this.internalReferences = internalReferences;
+            this.decls = decls;
+            this.imports = imports;
+        }
+
+        public RuleOffsets copy() {
+            RuleOffsets offsets = new RuleOffsets(groups, blocks, actions, references, internalReferences,
+                    decls, imports);
+            offsets.lookahead = lookahead;
+            return offsets;
+        }
+
+        /** Adds the difference between the two offsets */
+        public void shift(RuleOffsets plus, RuleOffsets minus) {
+            groups += plus.groups - minus.groups;
+            blocks += plus.blocks - minus.blocks;
+            actions += plus.actions - minus.actions;
+            references += plus.references - minus.references;
+            internalReferences += plus.internalReferences - minus.internalReferences;
+            decls += plus.decls - minus.decls;
+            imports += plus.imports - minus.imports;
+        }
+    }
+
     private static class LabelTable {
 
         Set<String> labels = new HashSet<String>();
@@ -39,11 +39,13 @@ import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.components.GrammarWindow;
 import org.antlr.works.components.GrammarWindowMenu;
 import org.antlr.works.editor.GrammarWindowTab;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.menu.ContextualMenuFactory;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.stats.StatisticsAW;
+import org.antlr.works.utils.ErrorListener;
 import org.antlr.works.utils.IconManager;
 import org.antlr.works.utils.TextUtils;
 import org.antlr.works.utils.Toolbar;
@@ -263,16 +265,19 @@ public class InterpreterTab extends GrammarWindowTab implements Runnable, AWTree
         progress.setIndeterminate(true);
         progress.display();
 
-        new Thread(this).start();
+        new Thread(ANTLRErrorContext.releasing(this)).start();
     }
 
     public void run() {
+        // the messages of ANTLR emitted by this run are isolated from the other jobs
+        ANTLRErrorContext context = ANTLRErrorContext.enter(new ErrorListener());
         try {
             window.getGrammarEngine().analyze();
             process();
         } catch(Exception e) {
             window.consoleTab.println(e);
         } finally {
+            context.exit();
             runEnded();
         }
     }
@@ -5,6 +5,10 @@ import org.antlr.works.debugger.DebuggerTab;
 import org.antlr.works.stats.StatisticsAW;
 import org.antlr.works.utils.Console;
 import org.antlr.works.utils.StreamWatcher;
+import org.antlr.xjlib.appkit.utils.XJFileChooser;
+
+import java.io.File;
+import java.io.IOException;
 
 /*
 
@@ -38,6 +42,8 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 public class DebugMenu {
 
+    public static final String TRACE_EXTENSION = "awtrace";
+
     private final GrammarWindow window;
 
     public DebugMenu(GrammarWindow window) {
@@ -78,6 +84,21 @@ public class DebugMenu {
         window.getDebuggerTab().launchRemoteDebugger();
     }
 
+    public void openTrace() {
+        StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_OPEN_DEBUGGER_TRACE);
+
+        if(!XJFileChooser.shared().displayOpenDialog(window.getJavaContainer(), TRACE_EXTENSION, "Debugger trace file", false))
+            return;
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if(file != null)
+            window.getDebuggerTab().openTrace(new File(file));
+    }
+
+    public void saveTrace(File file) throws IOException {
+        window.getDebuggerTab().saveTrace(file);
+    }
+
     public void toggleInputTokens() {
         window.getDebuggerTab().toggleInputTokensBox();
         StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_DEBUGGER_TOGGLE_INPUT_TOKENS);
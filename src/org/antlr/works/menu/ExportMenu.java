@@ -82,6 +82,25 @@ public class ExportMenu {
         }
     }
 
+    public void exportEventsAsTraceFile() {
+        StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_EXPORT_EVENTS_AS_TRACE);
+
+        if (!XJFileChooser.shared().displaySaveDialog(window.getJavaContainer(), DebugMenu.TRACE_EXTENSION, "Debugger trace file", false)) {
+            return;
+        }
+
+        String file = XJFileChooser.shared().getSelectedFilePath();
+        if (file == null) {
+            return;
+        }
+
+        try {
+            window.getDebugMenu().saveTrace(new File(file));
+        } catch (IOException e) {
+            XJAlert.display(window.getJavaContainer(), "Error", "Cannot save trace file: " + file + "\nError: " + e);
+        }
+    }
+
     public void exportAsImage() {
         StatisticsAW.shared().recordEvent(StatisticsAW.EVENT_EXPORT_AS_BITMAP);
 
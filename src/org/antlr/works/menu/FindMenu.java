@@ -1,5 +1,6 @@
 package org.antlr.works.menu;
 
+import org.antlr.works.ate.syntax.misc.ATESymbolTable;
 import org.antlr.works.ate.syntax.misc.ATEToken;
 import org.antlr.works.find.Usages;
 import org.antlr.works.grammar.element.ElementRule;
@@ -73,8 +74,10 @@ public class FindMenu {
         Usages usage = new Usages(delegate, token);
         delegate.addUsagesTab(usage);
 
+        // Identifiers are compared using their symbol
+        final boolean symbol = token.symbol != ATESymbolTable.NO_SYMBOL;
         for (ATEToken ateToken : delegate.getTokens()) {
-            if (ateToken.getAttribute().equals(token.getAttribute())) {
+            if (symbol ? ateToken.symbol == token.symbol : ateToken.getAttribute().equals(token.getAttribute())) {
                 ElementRule matchedRule = delegate.getEditorRules().getEnclosingRuleAtPosition(ateToken.getStartIndex());
                 if (matchedRule != null)
                     usage.addMatch(matchedRule, ateToken);
@@ -31,7 +31,7 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package org.antlr.works.menu;
 
-import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
 import org.antlr.works.grammar.element.Jumpable;
 import org.antlr.works.stats.StatisticsAW;
 
@@ -115,12 +115,12 @@ public class GoToMenu {
     }
 
     public void moveCursorToLine(int lineIndex) {
-        if(lineIndex < 0 || lineIndex > delegate.getLines().size()-1)
+        ATELineIndex index = delegate.getTextEditor().getLineIndex();
+        if(lineIndex < 0 || lineIndex > index.getLineCount()-1)
             return;
 
-        ATELine line = delegate.getLines().get(lineIndex);
         delegate.goToHistoryRememberCurrentPosition();
-        delegate.setCaretPosition(line.position);
+        delegate.setCaretPosition(index.getLineStart(lineIndex));
     }
 
 }
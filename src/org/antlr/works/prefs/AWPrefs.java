@@ -227,6 +227,14 @@ public class AWPrefs {
     public static final String PREF_DEBUGGER_ASK_GEN = "PREF_DEBUGGER_ASK_GEN";
     public static final boolean DEFAULT_DEBUGGER_ASK_GEN = false;
 
+    /** Memory in MB used by the checkpoints of the debugger player */
+    public static final String PREF_DEBUGGER_CHECKPOINT_MEMORY = "PREF_DEBUGGER_CHECKPOINT_MEMORY";
+    public static final int DEFAULT_DEBUGGER_CHECKPOINT_MEMORY = 64;
+
+    /** Trace file receiving the events of each debugging session (none if empty) */
+    public static final String PREF_DEBUGGER_TRACE_FILE = "PREF_DEBUGGER_TRACE_FILE";
+    public static final String DEFAULT_DEBUGGER_TRACE_FILE = "";
+
     // Avanced
 
     public static final String PREF_ALERT_CHECK_GRAMMAR_SUCCESS = "PREF_ALERT_CHECK_GRAMMAR_SUCCESS";
@@ -538,6 +546,14 @@ public class AWPrefs {
         return getPreferences().getBoolean(PREF_DEBUGGER_ASK_GEN, DEFAULT_DEBUGGER_ASK_GEN);
     }
 
+    public static int getDebuggerCheckpointMemory() {
+        return getPreferences().getInt(PREF_DEBUGGER_CHECKPOINT_MEMORY, DEFAULT_DEBUGGER_CHECKPOINT_MEMORY);
+    }
+
+    public static String getDebuggerTraceFile() {
+        return getPreferences().getString(PREF_DEBUGGER_TRACE_FILE, DEFAULT_DEBUGGER_TRACE_FILE);
+    }
+
     public static XJPreferences getPreferences() {
         return XJApplication.shared().getPreferences();
     }
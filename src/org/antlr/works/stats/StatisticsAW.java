@@ -50,6 +50,7 @@ public class StatisticsAW {
     public static final int EVENT_EXPORT_AS_DOT = 2;
     public static final int EVENT_EXPORT_EVENTS_AS_TEXT = 3;
     public static final int EVENT_EXPORT_AS_XML = 4;
+    public static final int EVENT_EXPORT_EVENTS_AS_TRACE = 5;
     
     /* Menu Find */
     public static final int EVENT_FIND_DIALOG = 10;
@@ -103,6 +104,7 @@ public class StatisticsAW {
     public static final int EVENT_LOCAL_DEBUGGER = 92;
     public static final int EVENT_LOCAL_DEBUGGER_BUILD = 93;
     public static final int EVENT_REMOTE_DEBUGGER = 94;
+    public static final int EVENT_OPEN_DEBUGGER_TRACE = 95;
 
     /* Toolbar toggle */
     public static final int EVENT_TOGGLE_SYNTAX_COLORING = 120;
@@ -141,6 +143,7 @@ public class StatisticsAW {
         register(EVENT_EXPORT_AS_EPS, "Export as EPS");
         register(EVENT_EXPORT_AS_DOT, "Export as DOT");
         register(EVENT_EXPORT_EVENTS_AS_TEXT, "Export events as text");
+        register(EVENT_EXPORT_EVENTS_AS_TRACE, "Export events as trace");
 
         register(EVENT_FIND_DIALOG, "Find dialog");
         register(EVENT_FIND_NEXT, "Find next");
@@ -186,6 +189,7 @@ public class StatisticsAW {
         register(EVENT_LOCAL_DEBUGGER, "Debug");
         register(EVENT_LOCAL_DEBUGGER_BUILD, "Build and debug");
         register(EVENT_REMOTE_DEBUGGER, "Remote debug");
+        register(EVENT_OPEN_DEBUGGER_TRACE, "Open debugger trace");
 
         register(EVENT_TOGGLE_SYNTAX_COLORING, "Toggle syntax coloring");
         register(EVENT_TOGGLE_SYNTAX_DIAGRAM, "Toggle syntax diagram");
@@ -41,8 +41,6 @@ import java.util.List;
 
 public class ErrorListener implements ANTLRErrorListener {
 
-    private static ThreadLocal<ErrorListener> threadLocalListener = new ThreadLocal<ErrorListener>();
-
     public List<String> infos = new LinkedList<String>();
     public List<Message> errors = new LinkedList<Message>();
     public List<Message> warnings = new LinkedList<Message>();
@@ -50,13 +48,6 @@ public class ErrorListener implements ANTLRErrorListener {
     public boolean printToConsole = true;
     public ErrorListener forwardListener = null;
 
-    public static synchronized ErrorListener getThreadInstance() {
-        if(threadLocalListener.get() == null) {
-            threadLocalListener.set(new ErrorListener());
-        }
-        return threadLocalListener.get();
-    }
-
     public ErrorListener() {
 
     }
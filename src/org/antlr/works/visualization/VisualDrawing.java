@@ -32,7 +32,10 @@ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package org.antlr.works.visualization;
 
 import org.antlr.analysis.NFAState;
+import org.antlr.works.ate.syntax.misc.ATEScheduler;
 import org.antlr.works.ate.syntax.misc.ATEThread;
+import org.antlr.works.components.GrammarWindow;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
 import org.antlr.works.grammar.element.ElementRule;
 import org.antlr.works.prefs.AWPrefs;
 import org.antlr.works.utils.Console;
@@ -70,6 +73,11 @@ public class VisualDrawing extends ATEThread {
         syntaxDiagramTab = null;
     }
 
+    @Override
+    protected ATEScheduler getScheduler() {
+        return GrammarWindow.getGrammarScheduler();
+    }
+
     public void toggleNFAOptimization() {
         factory.toggleNFAOptimization();
         clearCacheGraphs();
@@ -129,12 +137,15 @@ public class VisualDrawing extends ATEThread {
         rule = null;
     }
 
+    public synchronized void threadCancelProcess() {
+        if(rule == null)
+            rule = threadRule;
+    }
+
     private void threadProcessText() {
         if(threadText == null)
             return;
 
-        ErrorListener.getThreadInstance().setPrintToConsole(false);
-
         try {
             syntaxDiagramTab.getEngineGrammar().createGrammars();
         } catch (Exception e) {
@@ -151,8 +162,6 @@ public class VisualDrawing extends ATEThread {
 
         String error = null;
 
-        ErrorListener.getThreadInstance().setPrintToConsole(false);
-
         if(syntaxDiagramTab.getEngineGrammar().hasGrammar()) {
             NFAState startState = null;
             try {
@@ -203,11 +212,25 @@ public class VisualDrawing extends ATEThread {
         if(threadShouldProcess()) {
             threadPrepareProcess();
 
-            // Process any text
-            threadProcessText();
-
-            // Process any rule
-            threadProcessRule();
+            // The messages of ANTLR are not displayed in the console
+            ErrorListener el = new ErrorListener();
+            el.setPrintToConsole(false);
+            ANTLRErrorContext context = ANTLRErrorContext.enter(el);
+            try {
+                // Process any text
+                threadProcessText();
+
+                // A newer text or rule is waiting: let the next run display the rule
+                if(cancel()) {
+                    threadCancelProcess();
+                    return;
+                }
+
+                // Process any rule
+                threadProcessRule();
+            } finally {
+                context.exit();
+            }
         }
     }
 
@@ -45,6 +45,7 @@ public class XJTableView extends JScrollPane {
 
     private XJTable table = new XJTable();
     private boolean alternateBackground = true;
+    private boolean autoresizeVisibleRows = false;
 
     public XJTableView() {
         setViewportView(table);
@@ -80,8 +81,22 @@ public class XJTableView extends JScrollPane {
         }
     }
 
+    /** Only measures the visible rows when the columns are resized, for the tables
+     * with too many rows to measure all of them.
+     */
+    public void setAutoresizeVisibleRows(boolean flag) {
+        this.autoresizeVisibleRows = flag;
+    }
+
     public void autoresizeColumns() {
-        resizeTableColumnsToFitContent(table, 20);
+        if(autoresizeVisibleRows) {
+            Rectangle r = table.getVisibleRect();
+            int first = table.rowAtPoint(r.getLocation());
+            int last = table.rowAtPoint(new Point(r.x, r.y+r.height-1));
+            resizeTableColumnsToFitContent(table, 20, Math.max(first, 0), last == -1 ? table.getRowCount()-1 : last);
+        } else {
+            resizeTableColumnsToFitContent(table, 20);
+        }
 
         TableColumnModel model = table.getColumnModel();
         int columnTotalWidth = 0;
@@ -118,12 +133,20 @@ public class XJTableView extends JScrollPane {
     }
 
     public static void resizeTableColumnsToFitContent(JTable table, int margin) {
+        resizeTableColumnsToFitContent(table, margin, 0, table.getRowCount()-1);
+    }
+
+    public static void resizeTableColumnsToFitContent(JTable table, int margin, int firstRow, int lastRow) {
         for(int c = 0; c < table.getColumnCount(); c++) {
-            resizeColumnToFitContent(table, c, margin);
+            resizeColumnToFitContent(table, c, margin, firstRow, lastRow);
         }
     }
 
     public static void resizeColumnToFitContent(JTable table, int columnIndex, int margin) {
+        resizeColumnToFitContent(table, columnIndex, margin, 0, table.getRowCount()-1);
+    }
+
+    public static void resizeColumnToFitContent(JTable table, int columnIndex, int margin, int firstRow, int lastRow) {
         TableColumn column = table.getColumnModel().getColumn(columnIndex);
         TableCellRenderer renderer = column.getHeaderRenderer();
         if (renderer == null) {
@@ -135,7 +158,7 @@ public class XJTableView extends JScrollPane {
                 0, 0);
         int maxWidth = c.getPreferredSize().width;
 
-        for(int row=0; row<table.getRowCount(); row++) {
+        for(int row=firstRow; row<=lastRow; row++) {
             renderer = table.getCellRenderer(row, columnIndex);
             c = renderer.getTableCellRendererComponent(table,
                     table.getValueAt(row, columnIndex),
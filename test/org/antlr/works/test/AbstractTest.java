@@ -50,6 +50,8 @@ public abstract class AbstractTest extends TestCase {
     private GrammarEngine engine = new GrammarEngineImpl(new MyGrammarEngineDelegate());
     private String text;
     private String vocabFile;
+    private String grammarFileName;
+    private Tool tool;
 
     @Override
     protected void setUp() throws Exception {
@@ -58,6 +60,7 @@ public abstract class AbstractTest extends TestCase {
 
     public void parseFile(String fileName) throws IOException {
         this.text = getTextFromFile(fileName);
+        this.grammarFileName = fileName.substring(fileName.lastIndexOf('/')+1);
         engine.getSyntaxEngine().setDelegate(new MySyntaxEngineDelegate());
         engine.getSyntaxEngine().processSyntax();
         engine.parserCompleted();
@@ -96,11 +99,14 @@ public abstract class AbstractTest extends TestCase {
         }
 
         public Tool getANTLRTool() {
-            return null;
+            if(tool == null) {
+                tool = new Tool();
+            }
+            return tool;
         }
 
         public String getGrammarFileName() {
-            return null;
+            return grammarFileName;
         }
 
         public String getGrammarText() {
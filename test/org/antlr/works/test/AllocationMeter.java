@@ -0,0 +1,74 @@
+package org.antlr.works.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+/** Measures the memory allocated by the current thread to run a job. The allocation counters
+ * are specific to the HotSpot virtual machine: create() returns null on the other ones.
+ */
+public class AllocationMeter {
+
+    /** The job is run several times and the smallest amount is kept to ignore the
+     * allocations of the class loading and of the compiler */
+    private static final int RUNS = 5;
+
+    private final com.sun.management.ThreadMXBean bean;
+
+    /** Returns a meter or null if the allocated memory cannot be measured */
+    public static AllocationMeter create() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if(!threadBean.isThreadAllocatedMemorySupported()) return null;
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return new AllocationMeter(threadBean);
+    }
+
+    private AllocationMeter(com.sun.management.ThreadMXBean bean) {
+        this.bean = bean;
+    }
+
+    /** Returns the number of bytes allocated by the job */
+    public long measure(Runnable job) {
+        long id = Thread.currentThread().getId();
+        long bytes = Long.MAX_VALUE;
+        for(int run=0; run<RUNS; run++) {
+            long before = bean.getThreadAllocatedBytes(id);
+            job.run();
+            bytes = Math.min(bytes, bean.getThreadAllocatedBytes(id) - before);
+        }
+        return bytes;
+    }
+
+}
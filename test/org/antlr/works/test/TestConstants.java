@@ -36,6 +36,7 @@ public interface TestConstants {
     String TEST = PREFIX+"test.g";
     String REFERENCES = PREFIX+"references.g";
     String BLOCKS = PREFIX+"blocks.g";
+    String LEFT_RECURSION = PREFIX+"left_recursion.g";
 
     String REFACTOR_PREFIX = PREFIX+"refactor/";
     String REFACTOR_ORIGINAL_A = REFACTOR_PREFIX+"original_a.g";
@@ -48,4 +49,7 @@ public interface TestConstants {
     String CODE_GEN_PHASE = PREFIX+"mantra/CodeGenPhase.g";
     String RESOLVE_PHASE = PREFIX+"mantra/ResolvePhase.g";
     String SEMANTIC_PHASE = PREFIX+"mantra/SemanticPhase.g";
+
+    String COMPOSITE_PREFIX = PREFIX+"composite/";
+    String COMPOSITE_MAIN = COMPOSITE_PREFIX+"Main.g";
 }
@@ -0,0 +1,3 @@
+parser grammar Atom;
+
+atom : ID | INT ;
@@ -0,0 +1,6 @@
+parser grammar Expr;
+import Atom;
+
+expr : atom ('+' atom)* ;
+
+stat : expr ;
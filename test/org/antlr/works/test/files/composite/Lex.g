@@ -0,0 +1,5 @@
+lexer grammar Lex;
+
+ID : ('a'..'z')+ ;
+INT : ('0'..'9')+ ;
+WS : (' '|'\n')+ {skip();} ;
@@ -0,0 +1,6 @@
+grammar Main;
+import Expr, Lex;
+
+prog : stat+ ;
+
+stat : expr ';' ;
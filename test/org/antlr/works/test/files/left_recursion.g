@@ -0,0 +1,17 @@
+grammar left_recursion;
+
+expr	:	expr '+' term
+	|	expr '-' term
+	|	term
+	;
+
+term	:	( atom | '(' expr ')' ) ( '*' atom )*
+	|
+	;
+
+atom	:	ID
+	|	INT
+	;
+
+ID	:	'a'..'z'+ ;
+INT	:	'0'..'9'+ ;
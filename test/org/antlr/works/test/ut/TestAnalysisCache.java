@@ -0,0 +1,131 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisCache;
+import org.antlr.works.grammar.antlr.GrammarError;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.io.File;
+import java.io.FileOutputStream;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestAnalysisCache extends AbstractTest {
+
+    private File directory;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestAnalysisCache.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("analysis", "cache");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        new ANTLRAnalysisCache(directory, 0, 0).clear();
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testKey() throws Exception {
+        parseFile(TestConstants.MANTRA);
+        String key = ANTLRAnalysisCache.computeKey(getEngine(), new String[0]);
+        assertNotNull(key);
+        assertEquals(key, ANTLRAnalysisCache.computeKey(getEngine(), new String[0]));
+        assertFalse(key.equals(ANTLRAnalysisCache.computeKey(getEngine(), new String[] { "-Xmaxdfaedges", "1000" })));
+
+        parseFile(TestConstants.REFERENCES);
+        assertFalse(key.equals(ANTLRAnalysisCache.computeKey(getEngine(), new String[0])));
+    }
+
+    public void testStoreAndLoad() throws Exception {
+        ANTLRAnalysisCache cache = new ANTLRAnalysisCache(directory, 1024*1024, 10);
+        assertNull(cache.load("missing"));
+
+        ANTLRAnalysisCache.Entry entry = new ANTLRAnalysisCache.Entry();
+        entry.add(createError(3, "Decision can match input such as \"ID\" using multiple alternatives"), "expr");
+        entry.add(createError(12, "The following alternatives are unreachable: [2]"), "atom");
+        entry.add(createError(20, "outside"), null);
+        cache.store("key", entry);
+
+        ANTLRAnalysisCache.Entry loaded = cache.load("key");
+        assertNotNull(loaded);
+        assertEquals(3, loaded.errors.size());
+        assertEquals(3, loaded.errors.get(0).line);
+        assertEquals("The following alternatives are unreachable: [2]", loaded.errors.get(1).messageText);
+        assertEquals(1, loaded.getErrorsForRule("expr").size());
+        assertEquals(12, loaded.getErrorsForRule("atom").get(0).line);
+        assertEquals(0, loaded.getErrorsForRule("other").size());
+    }
+
+    public void testEviction() throws Exception {
+        ANTLRAnalysisCache cache = new ANTLRAnalysisCache(directory, 1024*1024, 2);
+        for(int i=0; i<3; i++) {
+            ANTLRAnalysisCache.Entry entry = new ANTLRAnalysisCache.Entry();
+            entry.add(createError(i, "error"), "rule");
+            cache.store("key"+i, entry);
+            // make sure the modification times are distinct
+            new File(directory, "key"+i+ANTLRAnalysisCache.CACHE_EXTENSION).setLastModified(1000000L*(i+1));
+        }
+        cache.evict();
+
+        assertNull(cache.load("key0"));
+        assertNotNull(cache.load("key1"));
+        assertNotNull(cache.load("key2"));
+    }
+
+    public void testCorruptedEntry() throws Exception {
+        ANTLRAnalysisCache cache = new ANTLRAnalysisCache(directory, 1024*1024, 10);
+        File file = new File(directory, "bad"+ANTLRAnalysisCache.CACHE_EXTENSION);
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(new byte[] { 1, 2, 3 });
+        os.close();
+
+        assertNull(cache.load("bad"));
+        assertFalse(file.exists());
+    }
+
+    private GrammarError createError(int line, String message) {
+        GrammarError error = new GrammarError();
+        error.setLine(line);
+        error.setMessageText(message);
+        return error;
+    }
+
+}
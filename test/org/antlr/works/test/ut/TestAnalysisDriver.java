@@ -0,0 +1,136 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.Tool;
+import org.antlr.tool.Grammar;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisDriver;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisProgress;
+import org.antlr.works.grammar.antlr.ANTLRGrammarEngine;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+import org.antlr.works.utils.ErrorListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestAnalysisDriver extends AbstractTest {
+
+    private static final String PARSER =
+            "parser grammar P;\n"+
+            "a : b | c ;\n"+
+            "b : ID INT | ID ;\n"+
+            "c : ID INT ;\n"+
+            "d : (ID)* INT ;\n";
+
+    private static final String LEXER =
+            "lexer grammar L;\n"+
+            "ID : 'a'..'z'+ ;\n"+
+            "INT : '0'..'9'+ ;\n"+
+            "WS : (' '|'\\n')+ ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestAnalysisDriver.class));
+    }
+
+    public void testConcurrentGrammars() throws Exception {
+        Grammar parser = createGrammar(PARSER);
+        Grammar lexer = createGrammar(LEXER);
+
+        final List<Integer> progress = new ArrayList<Integer>();
+        final int[] total = new int[1];
+        ANTLRAnalysisDriver driver = new ANTLRAnalysisDriver(new ANTLRAnalysisProgress() {
+            public void analysisProgress(int convertedDecisions, int totalDecisions) {
+                progress.add(convertedDecisions);
+                total[0] = totalDecisions;
+            }
+        });
+
+        ErrorListener el = new ErrorListener();
+        el.setPrintToConsole(false);
+        driver.createLookaheadDFAs(Arrays.asList(parser, lexer), el);
+
+        assertTrue(parser.allDecisionDFAHaveBeenCreated());
+        assertTrue(lexer.allDecisionDFAHaveBeenCreated());
+        assertFalse(progress.isEmpty());
+        assertEquals(total[0], progress.get(progress.size()-1).intValue());
+
+        // rule a is ambiguous: one warning and one unreachable alternative error
+        assertEquals(1, el.warnings.size());
+        assertEquals(1, el.errors.size());
+        assertTrue(el.errors.get(0).toString().indexOf("can never be matched") != -1);
+    }
+
+    public void testCancel() throws Exception {
+        Grammar parser = createGrammar(PARSER);
+
+        ANTLRAnalysisDriver driver = new ANTLRAnalysisDriver(null);
+        driver.cancel();
+        assertTrue(driver.isCancelled());
+
+        ErrorListener el = new ErrorListener();
+        el.setPrintToConsole(false);
+        driver.createLookaheadDFAs(Arrays.asList(parser), el);
+
+        for(int decision = 1; decision <= parser.getNumberOfDecisions(); decision++) {
+            assertNull(parser.getLookaheadDFA(decision));
+        }
+    }
+
+    public void testWarmUp() throws Exception {
+        parseFile(TestConstants.PREFIX+"calc.g");
+        ANTLRGrammarEngine antlrEngine = getEngine().getANTLRGrammarEngine();
+
+        assertTrue(antlrEngine.warmUp());
+        assertTrue(antlrEngine.getWarmUpTime() >= 0);
+        assertNotNull(antlrEngine.getDefaultGrammar());
+        assertFalse("already created", antlrEngine.warmUp());
+
+        Grammar g = antlrEngine.getDefaultGrammar();
+        antlrEngine.createGrammars();
+        assertSame("grammar of the warm-up", g, antlrEngine.getDefaultGrammar());
+        assertEquals(antlrEngine.getWarmUpTime(), antlrEngine.getWarmUpSavedTime());
+
+        // a modification discards the grammars of the warm-up
+        getEngine().markDirty();
+        assertTrue(antlrEngine.warmUp());
+    }
+
+    private Grammar createGrammar(String text) throws Exception {
+        Grammar g = new Grammar(new Tool(), text);
+        g.composite.createNFAs();
+        return g;
+    }
+
+}
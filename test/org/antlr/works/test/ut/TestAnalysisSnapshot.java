@@ -0,0 +1,91 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisSnapshot;
+import org.antlr.works.grammar.antlr.GrammarError;
+import org.antlr.works.grammar.element.ElementRule;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestAnalysisSnapshot extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestAnalysisSnapshot.class));
+    }
+
+    public void testErrorsByRule() throws Exception {
+        parseFile(TestConstants.MANTRA);
+
+        // one error on each line of the grammar, including the lines outside any rule
+        List<GrammarError> errors = new ArrayList<GrammarError>();
+        for(int line = 0; line < getEngine().getNumberOfLines(); line++) {
+            GrammarError error = new GrammarError();
+            error.setLine(line);
+            errors.add(error);
+        }
+
+        ANTLRAnalysisSnapshot snapshot = ANTLRAnalysisSnapshot.create(errors, getEngine().getRules());
+        assertEquals("errors", errors.size(), snapshot.getErrors().size());
+
+        for(ElementRule rule : getEngine().getRules()) {
+            List<GrammarError> expected = new ArrayList<GrammarError>();
+            for(GrammarError error : errors) {
+                if(error.line >= rule.start.startLineNumber && error.line <= rule.end.startLineNumber)
+                    expected.add(error);
+            }
+            assertEquals("errors of "+rule.name, expected, snapshot.getErrorsForRule(rule.name));
+        }
+        assertTrue("unknown rule", snapshot.getErrorsForRule("unknown_rule").isEmpty());
+    }
+
+    public void testRuleNames() throws Exception {
+        GrammarError e1 = new GrammarError();
+        GrammarError e2 = new GrammarError();
+        ANTLRAnalysisSnapshot snapshot = new ANTLRAnalysisSnapshot(Arrays.asList(e1, e2), Arrays.asList("expr", ""));
+
+        assertEquals("rule", "expr", snapshot.getRuleName(0));
+        assertEquals("errors of expr", Arrays.asList(e1), snapshot.getErrorsForRule("expr"));
+        try {
+            snapshot.getErrors().clear();
+            fail("the snapshot must be immutable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+}
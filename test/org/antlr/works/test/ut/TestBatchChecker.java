@@ -0,0 +1,128 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.antlr.ANTLRAnalysisCache;
+import org.antlr.works.grammar.check.GrammarBatchChecker;
+import org.antlr.works.grammar.check.GrammarCheckReport;
+import org.antlr.works.grammar.check.GrammarCheckResult;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.io.File;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestBatchChecker extends AbstractTest {
+
+    private File directory;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestBatchChecker.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("batch", "cache");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        new ANTLRAnalysisCache(directory, 0, 0).clear();
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testCheck() throws Exception {
+        List<File> files = getGrammars();
+        assertEquals("grammars", 4, files.size());
+
+        List<GrammarCheckResult> results = new GrammarBatchChecker(2, null, null).check(files);
+        assertEquals("results", files.size(), results.size());
+        for(int index=0; index<files.size(); index++) {
+            GrammarCheckResult r = results.get(index);
+            assertEquals("order", files.get(index).getPath(), r.file);
+            assertNull("exception in "+r.file, r.exception);
+            assertFalse("cached", r.cached);
+        }
+
+        GrammarCheckResult lexer = getResult(results, "Lex");
+        assertTrue("lexer success", lexer.isSuccess());
+        assertEquals("lexer type", "lexer", lexer.type);
+        assertNotNull("statistics", lexer.statistics);
+        assertTrue("decisions", lexer.statistics.decisions > 0);
+
+        String json = new GrammarCheckReport(results, 0).toJSON();
+        assertTrue("json", json.contains("\"name\": \"Lex\""));
+        String xml = new GrammarCheckReport(results, 0).toJUnitXML();
+        assertTrue("junit", xml.contains("tests=\"4\""));
+    }
+
+    public void testCache() throws Exception {
+        List<File> files = getGrammars();
+        ANTLRAnalysisCache cache = new ANTLRAnalysisCache(directory, ANTLRAnalysisCache.DEFAULT_MAXIMUM_SIZE,
+                ANTLRAnalysisCache.DEFAULT_MAXIMUM_ENTRIES);
+
+        List<GrammarCheckResult> first = new GrammarBatchChecker(2, cache, null).check(files);
+        List<GrammarCheckResult> second = new GrammarBatchChecker(2, cache, null).check(files);
+
+        GrammarCheckResult lexer = getResult(second, "Lex");
+        assertTrue("cached", lexer.cached);
+        for(int index=0; index<files.size(); index++) {
+            GrammarCheckResult r1 = first.get(index);
+            GrammarCheckResult r2 = second.get(index);
+            assertEquals("errors of "+r1.file, r1.errors, r2.errors);
+            assertEquals("warnings of "+r1.file, r1.warnings, r2.warnings);
+            if(r1.statistics != null && r2.cached) {
+                assertEquals("decisions of "+r1.file, r1.statistics.decisions, r2.statistics.decisions);
+                assertEquals("lookahead of "+r1.file, r1.statistics.maxLookahead, r2.statistics.maxLookahead);
+            }
+        }
+    }
+
+    private List<File> getGrammars() {
+        File main = new File(getResourceFile(TestConstants.COMPOSITE_MAIN));
+        return GrammarBatchChecker.findGrammars(main.getParentFile());
+    }
+
+    private GrammarCheckResult getResult(List<GrammarCheckResult> results, String name) {
+        for(GrammarCheckResult r : results) {
+            if(name.equals(r.name)) return r;
+        }
+        fail("no result for "+name);
+        return null;
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.Tool;
+import org.antlr.tool.ErrorManager;
+import org.antlr.tool.Grammar;
+import org.antlr.works.grammar.antlr.ANTLRErrorContext;
+import org.antlr.works.grammar.check.GrammarBatchChecker;
+import org.antlr.works.grammar.check.GrammarCheckResult;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+import org.antlr.works.utils.ErrorListener;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestErrorContext extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestErrorContext.class));
+    }
+
+    public void testNestedContexts() throws Exception {
+        ErrorListener outer = createListener();
+        ErrorListener inner = createListener();
+
+        ANTLRErrorContext outerContext = ANTLRErrorContext.enter(outer, new Tool());
+        try {
+            ANTLRErrorContext innerContext = ANTLRErrorContext.enter(inner);
+            try {
+                // the rule b is not defined
+                new Grammar(new Tool(), "parser grammar P;\na : b ;\n");
+            } finally {
+                innerContext.exit();
+            }
+            assertTrue("inner errors", inner.hasErrors());
+            assertFalse("outer errors", outer.hasErrors());
+            assertTrue("shared error state", ErrorManager.getErrorState().errors > 0);
+
+            new Grammar(new Tool(), "parser grammar Q;\na : c ;\n");
+            assertTrue("outer listener restored", outer.hasErrors());
+        } finally {
+            outerContext.exit();
+        }
+
+        // a new job starts with a clean error state
+        ANTLRErrorContext context = ANTLRErrorContext.enter(createListener());
+        try {
+            assertEquals("reset error state", 0, ErrorManager.getErrorState().errors);
+        } finally {
+            context.exit();
+        }
+    }
+
+    public void testConcurrentAnalyses() throws Exception {
+        File root = new File(getResourceFile(TestConstants.COMPOSITE_MAIN)).getParentFile().getParentFile();
+        List<File> grammars = GrammarBatchChecker.findGrammars(root);
+        List<File> files = new ArrayList<File>();
+        for(int repeat = 0; repeat < 3; repeat++) {
+            files.addAll(grammars);
+        }
+
+        List<GrammarCheckResult> sequential = new GrammarBatchChecker(1, null, null).check(grammars);
+        List<GrammarCheckResult> concurrent = new GrammarBatchChecker(8, null, null).check(files);
+
+        assertEquals("results", files.size(), concurrent.size());
+        for(int index = 0; index < concurrent.size(); index++) {
+            GrammarCheckResult expected = sequential.get(index % grammars.size());
+            GrammarCheckResult result = concurrent.get(index);
+            assertEquals("errors of "+result.file, expected.errors, result.errors);
+            assertEquals("warnings of "+result.file, expected.warnings, result.warnings);
+            assertEquals("left recursion of "+result.file, expected.leftRecursiveRules, result.leftRecursiveRules);
+            assertEquals("exception of "+result.file, getExceptionName(expected), getExceptionName(result));
+        }
+    }
+
+    public void testReleasedThread() throws Exception {
+        // listeners of the threads registered in ANTLR
+        Field field = ErrorManager.class.getDeclaredField("threadToListenerMap");
+        field.setAccessible(true);
+        final Map<?,?> listeners = (Map<?,?>) field.get(null);
+
+        final Thread[] thread = new Thread[1];
+        final boolean[] registered = new boolean[1];
+        Thread t = new Thread(ANTLRErrorContext.releasing(new Runnable() {
+            public void run() {
+                thread[0] = Thread.currentThread();
+                ANTLRErrorContext context = ANTLRErrorContext.enter(createListener(), new Tool());
+                try {
+                    registered[0] = listeners.containsKey(thread[0]);
+                } finally {
+                    context.exit();
+                }
+            }
+        }));
+        t.start();
+        t.join();
+
+        assertTrue("registered while running", registered[0]);
+        assertFalse("released", listeners.containsKey(thread[0]));
+    }
+
+    private ErrorListener createListener() {
+        ErrorListener listener = new ErrorListener();
+        listener.setPrintToConsole(false);
+        return listener;
+    }
+
+    private String getExceptionName(GrammarCheckResult result) {
+        return result.exception == null ? null : result.exception.getClass().getName();
+    }
+
+}
@@ -0,0 +1,160 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.MismatchedTokenException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.tivo.DBEventLog;
+import org.antlr.works.debugger.tree.DBTreeToken;
+import org.antlr.works.test.AbstractTest;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestEventLog extends AbstractTest {
+
+    private DBEventLog log;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestEventLog.class));
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        log = new DBEventLog();
+    }
+
+    protected void tearDown() throws Exception {
+        log.close();
+        super.tearDown();
+    }
+
+    public void testEncodeEvents() throws Exception {
+        Token token = createToken(3, "foo");
+        MismatchedTokenException exception = new MismatchedTokenException();
+
+        DBEvent enterRule = DBEventFactory.createEnterRule("/tmp/Expr.g", "expr");
+        DBEvent lt = DBEventFactory.createLT(1, token);
+        lt.setGrammarName("Expr");
+
+        log.add(DBEventFactory.createCommence());
+        log.add(enterRule);
+        log.add(lt);
+        log.add(DBEventFactory.createConsumeToken(token));
+        log.add(DBEventFactory.createLocation(12, 4));
+        log.add(DBEventFactory.createEndBacktrack(2, true));
+        log.add(DBEventFactory.createRewind());
+        log.add(DBEventFactory.createCreateNode(5, "IMAGINARY", 9));
+        log.add(DBEventFactory.createCreateNode(6, 3));
+        log.add(DBEventFactory.createRecognitionException(exception));
+        log.add(DBEventFactory.createSetTokenBoundaries(5, 1, 3));
+        log.add(DBEventFactory.createTerminate());
+
+        assertEquals(12, log.size());
+        for(int i=0; i<log.size(); i++) {
+            assertEquals("event "+i, createEventString(i, exception), log.get(i).toString());
+        }
+
+        assertEquals("Expr", log.get(1).getGrammarName());
+        assertEquals("Expr", log.get(2).getGrammarName());
+        assertNull(log.get(3).getGrammarName());
+
+        assertSame("shared token", ((DBEventLT)log.get(2)).token, ((DBEventConsumeToken)log.get(3)).token);
+        assertEquals(1, log.getTokenCount());
+        assertTrue(((DBEventEndBacktrack)log.get(5)).successful);
+        assertTrue(((DBEventRewind)log.get(6)).rewindToLastMark());
+        assertEquals(-1, ((DBEventCreateNode)log.get(7)).tokenIndex);
+        assertEquals(3, ((DBEventCreateNode)log.get(8)).tokenIndex);
+        assertSame(exception, ((DBEventRecognitionException)log.get(9)).e);
+    }
+
+    public void testTokenTable() throws Exception {
+        log.add(DBEventFactory.createLT(1, createToken(0, "a")));
+        log.add(DBEventFactory.createConsumeToken(createToken(0, "a")));
+        // same index but another content (invalid token indexes)
+        log.add(DBEventFactory.createConsumeToken(createToken(0, "b")));
+        log.add(DBEventFactory.createConsumeToken(new DBTreeToken(
+                new RemoteDebugEventSocketListener.ProxyTree(7, 4, 1, 0, -1, "node"))));
+        log.add(DBEventFactory.createLT(1, new DBTreeToken(
+                new RemoteDebugEventSocketListener.ProxyTree(7, 4, 1, 0, -1, "node"))));
+
+        assertEquals(3, log.getTokenCount());
+        assertEquals("b", ((DBEventConsumeToken)log.get(2)).token.getText());
+        assertEquals(7, ((DBTreeToken)((DBEventLT)log.get(4)).token).ID);
+    }
+
+    public void testRandomAccess() throws Exception {
+        int count = DBEventLog.RECORDS_PER_CHUNK*2+10;
+        for(int i=0; i<count; i++) {
+            log.add(DBEventFactory.createLocation(i, i % 80));
+        }
+        assertEquals(count, log.size());
+        for(int i=count-1; i>=0; i-=997) {
+            DBEventLocation location = (DBEventLocation)log.get(i);
+            assertEquals(i, location.line);
+            assertEquals(i % 80, location.pos);
+        }
+        try {
+            log.get(count);
+            fail("index out of bounds");
+        } catch(IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private String createEventString(int index, Exception exception) {
+        switch(index) {
+            case 0: return "Commence";
+            case 1: return "Enter rule /tmp/Expr.g:expr";
+            case 2: return "LT 1 (foo)";
+            case 3: return "Consume "+createToken(3, "foo");
+            case 4: return "Location (12,4)";
+            case 5: return "End backtrack 2 (true)";
+            case 6: return "Rewind "+DBEventRewind.REWIND_TO_LAST_MARK;
+            case 7: return "Create node 5 (IMAGINARY/9)";
+            case 8: return "Create node 6 (3)";
+            case 9: return "Recognition exception "+exception;
+            case 10: return "Set token boundaries 5 (1,3)";
+            case 11: return "Terminate";
+        }
+        return null;
+    }
+
+    private Token createToken(int index, String text) {
+        CommonToken token = new CommonToken(4, text);
+        token.setTokenIndex(index);
+        token.setLine(1);
+        return token;
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventFactory;
+import org.antlr.works.debugger.events.DBEventLocation;
+import org.antlr.works.debugger.tivo.DBEventRing;
+import org.antlr.works.test.AbstractTest;
+
+import java.util.ArrayList;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestEventRing extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestEventRing.class));
+    }
+
+    public void testBatches() throws Exception {
+        DBEventRing ring = new DBEventRing(8);
+        List<DBEvent> batch = new ArrayList<DBEvent>();
+        int next = 0;
+        // wrap around the ring several times
+        for(int round=0; round<5; round++) {
+            for(int i=0; i<6; i++) {
+                assertTrue(ring.put(DBEventFactory.createLocation(round*6+i, 0)));
+            }
+            assertEquals(6, ring.size());
+
+            batch.clear();
+            assertTrue(ring.drainTo(batch, 4));
+            assertTrue(ring.drainTo(batch, 4));
+            assertEquals(6, batch.size());
+            for(DBEvent event : batch) {
+                assertEquals(next++, ((DBEventLocation)event).line);
+            }
+            assertEquals(0, ring.size());
+        }
+    }
+
+    public void testClose() throws Exception {
+        DBEventRing ring = new DBEventRing(2);
+        ring.put(DBEventFactory.createCommence());
+        ring.close();
+        assertFalse("closed", ring.put(DBEventFactory.createTerminate()));
+
+        List<DBEvent> batch = new ArrayList<DBEvent>();
+        assertTrue("events left", ring.drainTo(batch, 10));
+        assertEquals(DBEvent.COMMENCE, batch.get(0).getEventType());
+        assertFalse("empty", ring.drainTo(batch, 10));
+
+        try {
+            new DBEventRing(3);
+            fail("capacity must be a power of two");
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testProducerConsumer() throws Exception {
+        final DBEventRing ring = new DBEventRing(16);
+        final int count = 100000;
+        Thread producer = new Thread() {
+            public void run() {
+                for(int i=0; i<count; i++) {
+                    ring.put(DBEventFactory.createLocation(i, 0));
+                }
+                ring.close();
+            }
+        };
+        producer.start();
+
+        List<DBEvent> batch = new ArrayList<DBEvent>();
+        int next = 0;
+        while(ring.drainTo(batch, 7)) {
+            for(DBEvent event : batch) {
+                assertEquals(next++, ((DBEventLocation)event).line);
+            }
+            batch.clear();
+        }
+        producer.join();
+        assertEquals(count, next);
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.engine.GrammarEngine;
+import org.antlr.works.grammar.engine.GrammarEngineRegistry;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+import org.antlr.xjlib.foundation.XJUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGrammarEngineRegistry extends AbstractTest {
+
+    private static final String[] GRAMMARS = { "Main.g", "Expr.g", "Atom.g", "Lex.g" };
+
+    private File directory;
+    private GrammarEngineRegistry registry;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGrammarEngineRegistry.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("composite", "grammars");
+        directory.delete();
+        directory.mkdirs();
+        for(String name : GRAMMARS) {
+            XJUtils.writeStringToFile(getTextFromFile(TestConstants.COMPOSITE_PREFIX+name), getPath(name));
+        }
+        registry = new GrammarEngineRegistry();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for(String name : GRAMMARS) {
+            new File(getPath(name)).delete();
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testHierarchy() throws Exception {
+        GrammarEngine main = registry.getEngine(getPath("Main.g"));
+        GrammarEngine expr = registry.getEngine(getPath("Expr.g"));
+        assertNotNull(main);
+        assertSame("shared engine", expr, registry.getEngine(getPath("Expr.g")));
+
+        assertEquals("undefined references", 0, main.getUndefinedReferences().size());
+        assertEquals("overridden", Arrays.asList("Expr"), main.getGrammarsOverriddenByRule("stat"));
+        assertEquals("overridden", Arrays.asList("Atom"), main.getGrammarsOverriddenByRule("atom"));
+        assertEquals("overriding", Arrays.asList("Main"), expr.getGrammarsOverridingRule("stat"));
+        assertNull("missing grammar", registry.getEngine(getPath("Missing.g")));
+    }
+
+    public void testImportChanged() throws Exception {
+        GrammarEngine main = registry.getEngine(getPath("Main.g"));
+        registry.grammarParsed(main, getPath("Main.g"));
+        GrammarEngine atom = registry.getEngine(getPath("Atom.g"));
+        assertEquals("overridden", Collections.emptyList(), main.getGrammarsOverriddenByRule("num"));
+
+        File file = new File(getPath("Atom.g"));
+        XJUtils.writeStringToFile(XJUtils.getStringFromFile(file.getPath())+"\nnum : INT ;\n", file.getPath());
+        file.setLastModified(file.lastModified()+2000);
+
+        assertNotSame("reloaded engine", atom, registry.getEngine(getPath("Atom.g")));
+        registry.grammarParsed(main, getPath("Main.g"));
+        assertEquals("overridden", Arrays.asList("Atom"), main.getGrammarsOverriddenByRule("num"));
+    }
+
+    public void testUnregister() throws Exception {
+        GrammarEngine main = registry.getEngine(getPath("Main.g"));
+        registry.grammarParsed(main, getPath("Main.g"));
+        GrammarEngine expr = registry.getEngine(getPath("Expr.g"));
+        assertSame("imported engine", expr, registry.getEngine(getPath("Expr.g")));
+
+        registry.unregister(main);
+        assertNotSame("released engine", expr, registry.getEngine(getPath("Expr.g")));
+    }
+
+    public void testSharedImport() throws Exception {
+        String other = getPath("Other.g");
+        XJUtils.writeStringToFile("grammar Other;\nimport Expr, Lex;\n\nstat : expr '.' ;\n", other);
+        try {
+            GrammarEngine main = registry.getEngine(getPath("Main.g"));
+            registry.grammarParsed(main, getPath("Main.g"));
+            GrammarEngine second = registry.getEngine(other);
+            registry.grammarParsed(second, other);
+            GrammarEngine expr = registry.getEngine(getPath("Expr.g"));
+
+            assertEquals("parents", 2, expr.getParents().size());
+            assertEquals("overriding", Arrays.asList("Main", "Other"), expr.getGrammarsOverridingRule("stat"));
+            assertEquals("roots", Arrays.asList(main, second), registry.getEngine(getPath("Atom.g")).getRootEngines());
+
+            registry.unregister(second);
+            assertEquals("overriding", Arrays.asList("Main"), expr.getGrammarsOverridingRule("stat"));
+        } finally {
+            new File(other).delete();
+        }
+    }
+
+    private String getPath(String name) {
+        return new File(directory, name).getPath();
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.antlr.ANTLRGrammarSignature;
+import org.antlr.works.test.AbstractTest;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestGrammarSignature extends AbstractTest {
+
+    private static final String GRAMMAR =
+            "grammar T;\n"+
+            "options { output=AST; }\n"+
+            "@header { package p; }\n"+
+            "// rules\n"+
+            "a : b {int x = 1; String s = \"}\";} | c ;\n"+
+            "b : {enabled}? ID INT | ID ;\n"+
+            "/* the c rule */\n"+
+            "c : ID '{' INT ;\n";
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestGrammarSignature.class));
+    }
+
+    public void testActionsAndComments() throws Exception {
+        String signature = ANTLRGrammarSignature.compute(GRAMMAR);
+        assertSame(signature, GRAMMAR.replace("package p;", "package q;"));
+        assertSame(signature, GRAMMAR.replace("int x = 1;", "int y = 2;"));
+        assertSame(signature, GRAMMAR.replace("// rules", "// r"));
+        assertSame(signature, GRAMMAR.replace("the c rule", "rule c !"));
+    }
+
+    public void testAnalysisChanges() throws Exception {
+        String signature = ANTLRGrammarSignature.compute(GRAMMAR);
+        assertDifferent(signature, GRAMMAR.replace("output=AST", "output=template"));
+        assertDifferent(signature, GRAMMAR.replace("{enabled}?", "{disabled}?"));
+        assertDifferent(signature, GRAMMAR.replace("c : ID '{' INT", "c : ID INT"));
+        assertDifferent(signature, GRAMMAR.replace("| c ;", "| c | ID ;"));
+    }
+
+    public void testPositions() throws Exception {
+        String signature = ANTLRGrammarSignature.compute(GRAMMAR);
+        // the actions and the comments keep the lines and columns of what follows them
+        assertEquals(GRAMMAR.split("\n").length, signature.split("\n").length);
+        assertDifferent(signature, GRAMMAR.replace("package p;", "package p;\n"));
+        assertDifferent(signature, GRAMMAR.replace("int x = 1;", "int x = 10;"));
+    }
+
+    private void assertSame(String signature, String text) {
+        assertEquals(signature, ANTLRGrammarSignature.compute(text));
+    }
+
+    private void assertDifferent(String signature, String text) {
+        assertFalse(signature.equals(ANTLRGrammarSignature.compute(text)));
+    }
+
+}
@@ -0,0 +1,344 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.ate.syntax.generic.ATESyntaxSnapshot;
+import org.antlr.works.ate.syntax.misc.ATEEdit;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.element.*;
+import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestIncrementalParser extends AbstractTest {
+
+    private static final String[] SNIPPETS = {
+            "a", "r", " ", "\n", ";", ":", "{", "}", "[", "]", "'", "//", "/*", "*/", "$x", "x=", "->", "|",
+            "\nfoo : A ;\n", "fragment ", "import ", "catch [E e] {}", "@init {", "scope S;", "// $< Group\n", "// $>\n"
+    };
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestIncrementalParser.class));
+    }
+
+    public void testIncrementalMantra() throws Exception {
+        assertIncrementalParsing(TestConstants.MANTRA);
+    }
+
+    public void testIncrementalCodeGenPhase() throws Exception {
+        assertIncrementalParsing(TestConstants.CODE_GEN_PHASE);
+    }
+
+    public void testIncrementalReferences() throws Exception {
+        assertIncrementalParsing(TestConstants.REFERENCES);
+    }
+
+    public void testIncrementalBlocks() throws Exception {
+        assertIncrementalParsing(TestConstants.BLOCKS);
+    }
+
+    public void testUnchangedRulesAreKept() throws Exception {
+        String text = getTextFromFile(TestConstants.MANTRA);
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        GrammarSyntaxParser parser = new GrammarSyntaxParser();
+        lexer.tokenize(text);
+        parser.parse(lexer.getTokens());
+
+        List<ElementRule> rules = parser.rules;
+        ElementRule firstRule = rules.get(0);
+        ElementRule lastRule = rules.get(rules.size()-1);
+        ElementRule middleRule = rules.get(rules.size()/2);
+
+        // Insert a space in the middle rule
+        int offset = middleRule.colon.end;
+        text = text.substring(0, offset)+" "+text.substring(offset);
+        lexer.tokenize(text, new ATEEdit(offset, 0, 1));
+        parser.parse(lexer.getTokens(), lexer.getModifiedStartIndex(), lexer.getModifiedEndIndex());
+
+        assertSame("first rule", firstRule, parser.rules.get(0));
+        assertSame("last rule", lastRule, parser.rules.get(parser.rules.size()-1));
+        assertEquals("last rule start", lastRule.start.start, text.indexOf(lastRule.start.getAttribute(), lastRule.start.start));
+    }
+
+    public void testSnapshotIsNotShifted() throws Exception {
+        SyntaxDelegate delegate = new SyntaxDelegate(getTextFromFile(TestConstants.MANTRA));
+        GrammarSyntaxEngine engine = new GrammarSyntaxEngine();
+        engine.setDelegate(delegate);
+        engine.processSyntax();
+
+        ATESyntaxSnapshot snapshot = engine.getSnapshot();
+        int last = snapshot.getTokenCount()-1;
+        int lastStart = snapshot.getTokenStart(last);
+        int lastLine = snapshot.lines.get(snapshot.lines.size()-1).position;
+
+        // Insert a space at the beginning of the text
+        delegate.text = " "+delegate.text;
+        engine.changeUpdate(0, 1, true);
+        engine.processSyntax();
+
+        assertEquals("last token start", lastStart, snapshot.getTokenStart(last));
+        assertEquals("last token object start", lastStart, snapshot.tokens.get(last).start);
+        assertEquals("last line", lastLine, snapshot.lines.get(snapshot.lines.size()-1).position);
+
+        ATESyntaxSnapshot newSnapshot = engine.getSnapshot();
+        assertTrue(newSnapshot.revision > snapshot.revision);
+        assertEquals("shifted last token start", lastStart+1, newSnapshot.getTokenStart(last));
+        assertEquals("shifted last token object start", lastStart+1, newSnapshot.tokens.get(last).start);
+        engine.close();
+    }
+
+    public void testSnapshotReusesUnchangedTokens() throws Exception {
+        SyntaxDelegate delegate = new SyntaxDelegate(getTextFromFile(TestConstants.MANTRA));
+        GrammarSyntaxEngine engine = new GrammarSyntaxEngine();
+        engine.setDelegate(delegate);
+        engine.processSyntax();
+
+        ATESyntaxSnapshot snapshot = engine.getSnapshot();
+        ATEToken first = snapshot.tokens.get(0);
+        int firstType = first.type;
+
+        // Append a space at the end of the text
+        int length = delegate.text.length();
+        delegate.text = delegate.text+" ";
+        engine.changeUpdate(length, 1, true);
+        engine.processSyntax();
+
+        ATESyntaxSnapshot newSnapshot = engine.getSnapshot();
+        assertNotSame("token of the parser", engine.getParser().getTokens().get(0), first);
+        assertSame("unchanged token", first, newSnapshot.tokens.get(0));
+        assertEquals("unchanged token type", firstType, first.type);
+        engine.close();
+    }
+
+    public void testProcessLater() throws Exception {
+        final String original = getTextFromFile(TestConstants.MANTRA);
+        final SyntaxDelegate delegate = new SyntaxDelegate(original);
+        final GrammarSyntaxEngine engine = new GrammarSyntaxEngine();
+        engine.setDelegate(delegate);
+        engine.processSyntax();
+
+        // Submit several revisions: only the last one is reported to the delegate
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                for(int i=0; i<20; i++) {
+                    delegate.text = "a"+delegate.text;
+                    engine.changeUpdate(0, 1, true);
+                    engine.processLater(delegate.text);
+                }
+            }
+        });
+        assertTrue(delegate.parsed.await(10, TimeUnit.SECONDS));
+
+        // Flush the events posted by the engine
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+            }
+        });
+        assertEquals(1, delegate.count);
+
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(delegate.text);
+        List<ATEToken> tokens = engine.getTokens();
+        assertEquals(lexer.getTokens().size(), tokens.size());
+        for(int i=0; i<tokens.size(); i++) {
+            assertEquals(lexer.getTokens().get(i).start, tokens.get(i).start);
+        }
+        engine.close();
+    }
+
+    /*********************** HELPER ***************************************/
+
+    private static class SyntaxDelegate implements ATESyntaxEngineDelegate {
+
+        private String text;
+        private int count;
+        private final CountDownLatch parsed = new CountDownLatch(1);
+
+        public SyntaxDelegate(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void ateEngineBeforeParsing() {
+        }
+
+        public void ateEngineAfterParsing() {
+            count++;
+            parsed.countDown();
+        }
+    }
+
+    private void assertIncrementalParsing(String file) throws Exception {
+        Random random = new Random(0);
+        String text = getTextFromFile(file);
+
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        GrammarSyntaxParser parser = new GrammarSyntaxParser();
+        lexer.tokenize(text);
+        parser.parse(lexer.getTokens());
+
+        for(int i=0; i<200; i++) {
+            int offset = random.nextInt(text.length()+1);
+            int removed = random.nextInt(3) == 0 ? Math.min(random.nextInt(30), text.length()-offset) : 0;
+            String inserted = removed > 0 && random.nextBoolean() ? "" : SNIPPETS[random.nextInt(SNIPPETS.length)];
+
+            text = text.substring(0, offset)+inserted+text.substring(offset+removed);
+            lexer.tokenize(text, new ATEEdit(offset, removed, inserted.length()));
+            parser.parse(lexer.getTokens(), lexer.getModifiedStartIndex(), lexer.getModifiedEndIndex());
+
+            GrammarSyntaxLexer fullLexer = new GrammarSyntaxLexer();
+            GrammarSyntaxParser full = new GrammarSyntaxParser();
+            fullLexer.tokenize(text);
+            full.parse(fullLexer.getTokens());
+
+            String context = file+" edit #"+i+" ("+offset+", "+removed+", \""+inserted+"\")";
+            assertParser(context, full, parser);
+        }
+    }
+
+    private void assertParser(String context, GrammarSyntaxParser expected, GrammarSyntaxParser actual) {
+        assertEquals(context+" number of rules", expected.rules.size(), actual.rules.size());
+        for(int i=0; i<expected.rules.size(); i++) {
+            ElementRule e = expected.rules.get(i);
+            ElementRule a = actual.rules.get(i);
+            assertEquals(context+" rule "+i, e.name, a.name);
+            assertEquals(context+" rule start "+i, e.start.start, a.start.start);
+            assertEquals(context+" rule colon "+i, e.colon.start, a.colon.start);
+            assertEquals(context+" rule end "+i, e.end.end, a.end.end);
+            assertEquals(context+" rule references "+i, getReferencesPositions(e), getReferencesPositions(a));
+            assertEquals(context+" rule blocks "+i, getBlocksPositions(e), getBlocksPositions(a));
+            assertEquals(context+" rule actions "+i, getActionsPositions(e), getActionsPositions(a));
+        }
+
+        assertEquals(context+" number of groups", expected.groups.size(), actual.groups.size());
+        for(int i=0; i<expected.groups.size(); i++) {
+            assertEquals(context+" group "+i, expected.groups.get(i).toString(), actual.groups.get(i).toString());
+            assertEquals(context+" group token "+i, expected.groups.get(i).token.start, actual.groups.get(i).token.start);
+        }
+
+        assertEquals(context+" number of blocks", expected.blocks.size(), actual.blocks.size());
+        for(int i=0; i<expected.blocks.size(); i++) {
+            ElementBlock e = expected.blocks.get(i);
+            ElementBlock a = actual.blocks.get(i);
+            assertEquals(context+" block "+i, e.name, a.name);
+            assertEquals(context+" block start "+i, e.start.start, a.start.start);
+        }
+
+        assertEquals(context+" number of actions", expected.actions.size(), actual.actions.size());
+        for(int i=0; i<expected.actions.size(); i++) {
+            ElementAction e = expected.actions.get(i);
+            ElementAction a = actual.actions.get(i);
+            assertEquals(context+" action "+i, e.start.start, a.start.start);
+            assertEquals(context+" action end "+i, e.end.end, a.end.end);
+            assertEquals(context+" action number "+i, e.actionNum, a.actionNum);
+            assertEquals(context+" action rule "+i, getName(e.rule), getName(a.rule));
+        }
+
+        assertEquals(context+" number of references", expected.references.size(), actual.references.size());
+        for(int i=0; i<expected.references.size(); i++) {
+            ElementReference e = expected.references.get(i);
+            ElementReference a = actual.references.get(i);
+            assertEquals(context+" reference "+i, e.token.start, a.token.start);
+            assertEquals(context+" reference rule "+i, getName(e.rule), getName(a.rule));
+        }
+
+        assertEquals(context+" number of declarations", expected.decls.size(), actual.decls.size());
+        for(int i=0; i<expected.decls.size(); i++) {
+            assertEquals(context+" declaration "+i, expected.decls.get(i).start, actual.decls.get(i).start);
+        }
+
+        assertEquals(context+" number of imports", expected.imports.size(), actual.imports.size());
+
+        List<ATEToken> expectedTokens = expected.getTokens();
+        List<ATEToken> actualTokens = actual.getTokens();
+        assertEquals(context+" number of tokens", expectedTokens.size(), actualTokens.size());
+        for(int i=0; i<expectedTokens.size(); i++) {
+            ATEToken e = expectedTokens.get(i);
+            ATEToken a = actualTokens.get(i);
+            assertEquals(context+" token "+i, e.toString(), a.toString());
+            assertEquals(context+" token type "+i, e.type, a.type);
+            assertEquals(context+" token scope "+i, getScopeName(e), getScopeName(a));
+        }
+    }
+
+    private static String getReferencesPositions(ElementRule rule) {
+        StringBuilder sb = new StringBuilder();
+        if(rule.getReferences() != null) {
+            for(ElementReference reference : rule.getReferences()) {
+                sb.append(reference.token.start).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String getBlocksPositions(ElementRule rule) {
+        StringBuilder sb = new StringBuilder();
+        if(rule.getBlocks() != null) {
+            for(ElementBlock block : rule.getBlocks()) {
+                sb.append(block.start.start).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String getActionsPositions(ElementRule rule) {
+        StringBuilder sb = new StringBuilder();
+        if(rule.getActions() != null) {
+            for(ElementAction action : rule.getActions()) {
+                sb.append(action.start.start).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String getName(ElementRule rule) {
+        return rule == null ? null : rule.name;
+    }
+
+    private static String getScopeName(ATEToken token) {
+        return token.scope == null ? null : token.scope.getClass().getName();
+    }
+
+}
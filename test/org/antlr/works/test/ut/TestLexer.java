@@ -0,0 +1,215 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.misc.ATEEdit;
+import org.antlr.works.ate.syntax.misc.ATELine;
+import org.antlr.works.ate.syntax.misc.ATELineIndex;
+import org.antlr.works.ate.syntax.misc.ATESymbolTable;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.util.List;
+import java.util.Random;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestLexer extends AbstractTest {
+
+    private static final String[] SNIPPETS = {
+            "a", "rule", " ", "\n", "\n\n", ";", ":", "{", "}", "'", "\"", "//", "/*", "*/", "\\", "->", "$x", "@"
+    };
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestLexer.class));
+    }
+
+    public void testIncrementalMantra() throws Exception {
+        assertIncrementalLexing(TestConstants.MANTRA);
+    }
+
+    public void testIncrementalCodeGenPhase() throws Exception {
+        assertIncrementalLexing(TestConstants.CODE_GEN_PHASE);
+    }
+
+    public void testIncrementalReferences() throws Exception {
+        assertIncrementalLexing(TestConstants.REFERENCES);
+    }
+
+    public void testMergeEdits() throws Exception {
+        ATEEdit edit = new ATEEdit(10, 0, 3);
+        edit.merge(13, 0, 2);
+        assertEquals("offset", 10, edit.offset);
+        assertEquals("removed", 0, edit.removedLength);
+        assertEquals("inserted", 5, edit.insertedLength);
+
+        edit = new ATEEdit(10, 4, 0);
+        edit.merge(2, 3, 1);
+        assertEquals("offset", 2, edit.offset);
+        assertEquals("removed", 12, edit.removedLength);
+        assertEquals("inserted", 6, edit.insertedLength);
+    }
+
+    public void testSymbols() throws Exception {
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize("a : b | 'b' ;\nb : a B ;\n");
+
+        List<ATEToken> tokens = lexer.getTokens();
+        ATEToken a1 = tokens.get(0);
+        ATEToken b1 = tokens.get(2);
+        ATEToken b2 = tokens.get(6);
+        ATEToken a2 = tokens.get(8);
+        assertEquals("same symbol", a1.symbol, a2.symbol);
+        assertEquals("same symbol", b1.symbol, b2.symbol);
+        assertFalse("different symbols", a1.symbol == b1.symbol);
+        assertSame("shared attribute", a1.getAttribute(), a2.getAttribute());
+        assertEquals("no symbol", ATESymbolTable.NO_SYMBOL, tokens.get(4).symbol);
+        assertEquals("lookup", b1.symbol, lexer.getSymbols().lookup("b"));
+        assertEquals("lookup", ATESymbolTable.NO_SYMBOL, lexer.getSymbols().lookup("c"));
+
+        // Symbols survive the growth of the table
+        ATESymbolTable table = new ATESymbolTable();
+        for(int i=0; i<2000; i++) {
+            assertEquals("symbol "+i, i, table.getSymbol("id"+i));
+        }
+        for(int i=0; i<2000; i++) {
+            assertEquals("symbol "+i, i, table.lookup("id"+i));
+            assertEquals("name "+i, "id"+i, table.getName(i));
+        }
+    }
+
+    public void testSymbolsCompaction() throws Exception {
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        ATESymbolTable table = lexer.getSymbols();
+        int keyword = table.getPermanentSymbol("grammar");
+
+        // Type an identifier character by character
+        String text = "a : b ;\n";
+        lexer.tokenize(text);
+        String name = "identifier";
+        for(int i=0; i<name.length(); i++) {
+            text += name.charAt(i);
+            lexer.tokenize(text, new ATEEdit(text.length()-1, 0, 1));
+        }
+        assertEquals("partial identifiers", 1+2+name.length(), table.size());
+
+        lexer.tokenize(text);
+        assertEquals("compacted", 4, table.size());
+        assertEquals("partial identifier", ATESymbolTable.NO_SYMBOL, table.lookup("ident"));
+        assertEquals("keyword", keyword, table.lookup("grammar"));
+        ATEToken b = lexer.getTokens().get(2);
+        assertEquals("lookup", b.symbol, table.lookup("b"));
+        assertSame("name", b.getAttribute(), table.getName(b.symbol));
+
+        // The removed symbols are reused only after the next compaction
+        int created = table.getSymbol("c");
+        assertTrue("not reused", created > table.lookup(name));
+        lexer.tokenize(text + " d");
+        assertTrue("reused", table.getSymbol("e") < table.lookup(name));
+        assertEquals("lookup", b.symbol, table.lookup("b"));
+    }
+
+    public void testLineIndex() throws Exception {
+        String text = getTextFromFile(TestConstants.MANTRA);
+        GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+        lexer.tokenize(text);
+
+        List<ATELine> lines = lexer.getLines();
+        ATELineIndex index = new ATELineIndex(lines);
+        assertEquals(lines.size(), index.getLineCount());
+        assertEquals(-1, index.getLineIndexAtPosition(-1));
+        for(int pos=0; pos<=text.length(); pos++) {
+            assertEquals("position "+pos, getLineIndexAtPosition(lines, pos), index.getLineIndexAtPosition(pos));
+        }
+        assertEquals(-1, ATELineIndex.EMPTY.getLineIndexAtPosition(0));
+    }
+
+    /*********************** HELPER ***************************************/
+
+    private static int getLineIndexAtPosition(List<ATELine> lines, int pos) {
+        for(int i=0; i<lines.size(); i++) {
+            if(lines.get(i).position > pos) {
+                return i-1;
+            }
+        }
+        return lines.size()-1;
+    }
+
+    private void assertIncrementalLexing(String file) throws Exception {
+        Random random = new Random(0);
+        String text = getTextFromFile(file);
+
+        GrammarSyntaxLexer incremental = new GrammarSyntaxLexer();
+        incremental.tokenize(text);
+
+        for(int i=0; i<200; i++) {
+            int offset = random.nextInt(text.length()+1);
+            int removed = random.nextInt(3) == 0 ? Math.min(random.nextInt(20), text.length()-offset) : 0;
+            String inserted = removed > 0 && random.nextBoolean() ? "" : SNIPPETS[random.nextInt(SNIPPETS.length)];
+
+            text = text.substring(0, offset)+inserted+text.substring(offset+removed);
+            incremental.tokenize(text, new ATEEdit(offset, removed, inserted.length()));
+
+            GrammarSyntaxLexer full = new GrammarSyntaxLexer();
+            full.tokenize(text);
+
+            String context = file+" edit #"+i+" ("+offset+", "+removed+", \""+inserted+"\")";
+            assertTokens(context, full.getTokens(), incremental.getTokens());
+            assertLines(context, full.getLines(), incremental.getLines());
+            assertEquals(context+" line number", full.getLineNumber(), incremental.getLineNumber());
+        }
+    }
+
+    private void assertTokens(String context, List<ATEToken> expected, List<ATEToken> actual) {
+        assertEquals(context+" number of tokens", expected.size(), actual.size());
+        for(int i=0; i<expected.size(); i++) {
+            ATEToken e = expected.get(i);
+            ATEToken a = actual.get(i);
+            assertEquals(context+" token "+i, e.toString(), a.toString());
+            assertEquals(context+" token type "+i, e.type, a.type);
+            assertEquals(context+" token index "+i, e.index, a.index);
+            assertEquals(context+" token start line "+i, e.startLineNumber, a.startLineNumber);
+            assertEquals(context+" token end line "+i, e.endLineNumber, a.endLineNumber);
+            assertEquals(context+" token start line index "+i, e.startLineIndex, a.startLineIndex);
+            assertEquals(context+" token end line index "+i, e.endLineIndex, a.endLineIndex);
+        }
+    }
+
+    private void assertLines(String context, List<ATELine> expected, List<ATELine> actual) {
+        assertEquals(context+" number of lines", expected.size(), actual.size());
+        for(int i=0; i<expected.size(); i++) {
+            assertEquals(context+" line "+i, expected.get(i).position, actual.get(i).position);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.ATEPanel;
+import org.antlr.works.ate.ATETextPane;
+import org.antlr.works.ate.swing.ATERenderingView;
+import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.test.AbstractTest;
+
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
+import javax.swing.text.StyledEditorKit;
+import javax.swing.text.View;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestLineLayout extends AbstractTest {
+
+    private static final String TEXT = "grammar T;\nrule\t: 'a'\t'b' | ID ;\nID : ('a'..'z')+ ;\n";
+
+    private ATEPanel panel;
+    private View view;
+    private Rectangle bounds;
+    private Graphics graphics;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestLineLayout.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ATERenderingView.DEFAULT_FONT = new Font("Monospaced", Font.PLAIN, 12);
+
+        panel = new TextPanel();
+        panel.setParserEngine(new GrammarSyntaxEngine());
+        panel.setSyntaxColoring(true);
+        panel.getTextPane().setText(TEXT);
+        panel.getParserEngine().processSyntax();
+        panel.getTextPane().setSize(800, 600);
+
+        View root = panel.getTextPane().getUI().getRootView(panel.getTextPane());
+        view = findRenderingView(root);
+        assertNotNull("rendering view", view);
+
+        bounds = new Rectangle(0, 0, 800, 600);
+        graphics = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB).getGraphics();
+        graphics.setClip(bounds);
+        view.paint(graphics, bounds);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        graphics.dispose();
+        panel.getParserEngine().close();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() throws Exception {
+        int length = panel.getTextPane().getDocument().getLength();
+        int previousX = -1;
+        for(int pos = 0; pos < length; pos++) {
+            Rectangle r = view.modelToView(pos, bounds, Position.Bias.Forward).getBounds();
+            assertEquals("position "+pos, pos, view.viewToModel(r.x, r.y + 1, bounds, new Position.Bias[1]));
+            if(TEXT.charAt(pos) != '\n' && pos > 0 && TEXT.charAt(pos-1) != '\n') {
+                assertTrue("increasing x at "+pos, r.x > previousX);
+            }
+            previousX = r.x;
+        }
+    }
+
+    public void testTabExpansion() throws Exception {
+        int tab = TEXT.indexOf('\t');
+        int afterTab = view.modelToView(tab+1, bounds, Position.Bias.Forward).getBounds().x;
+        int beforeTab = view.modelToView(tab, bounds, Position.Bias.Forward).getBounds().x;
+        assertEquals("tab stop", (int)((ATERenderingView)view).nextTabStop(beforeTab, tab), afterTab);
+    }
+
+    public void testInvalidation() throws Exception {
+        Document doc = panel.getTextPane().getDocument();
+        int lineEnd = TEXT.indexOf('\n', TEXT.indexOf("rule"));
+        int x = view.modelToView(lineEnd, bounds, Position.Bias.Forward).getBounds().x;
+
+        // Replace a character by a tab: the length of the line does not change
+        int a = TEXT.indexOf("'a'")+1;
+        doc.remove(a, 1);
+        doc.insertString(a, "\t", null);
+        int tabX = view.modelToView(lineEnd, bounds, Position.Bias.Forward).getBounds().x;
+        assertTrue("line with a tab is wider", tabX > x);
+
+        // And the other way around
+        doc.remove(a, 1);
+        doc.insertString(a, "a", null);
+        assertEquals("line restored", x, view.modelToView(lineEnd, bounds, Position.Bias.Forward).getBounds().x);
+    }
+
+    /** Text panel without the gutter and the other components that need a window */
+    private static class TextPanel extends ATEPanel {
+
+        public TextPanel() {
+            super(null);
+        }
+
+        @Override
+        protected void createTextPane(StyledEditorKit editorKit) {
+            textPane = new ATETextPane(this, editorKit);
+            textPane.setWordWrap(false);
+            // create the views again now that the text pane is known
+            textPane.setDocument(new DefaultStyledDocument());
+        }
+    }
+
+    private static View findRenderingView(View v) {
+        if(v instanceof ATERenderingView)
+            return v;
+        for(int i = 0; i < v.getViewCount(); i++) {
+            View found = findRenderingView(v.getView(i));
+            if(found != null)
+                return found;
+        }
+        return null;
+    }
+
+}
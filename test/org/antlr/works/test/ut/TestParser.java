@@ -119,6 +119,59 @@ public class TestParser extends AbstractTest {
         assertParserProperties(65, 32, 30, 115, 274); // verified by hand
     }
 
+    public void testLookupByName() throws Exception {
+        parseFile(TestConstants.MANTRA);
+
+        for(ElementRule rule : getEngine().getRules()) {
+            assertSame("rule "+rule.name, rule, getEngine().getRuleWithName(rule.name));
+        }
+        for(ATEToken decl : getEngine().getDecls()) {
+            int expected = -1;
+            for(ATEToken other : getEngine().getDecls()) {
+                if(other.getAttribute().equals(decl.getAttribute())) {
+                    expected = other.start;
+                    break;
+                }
+            }
+            assertEquals("declaration "+decl.getAttribute(), expected, getEngine().getFirstDeclarationPosition(decl.getAttribute()));
+        }
+        assertNull("unknown rule", getEngine().getRuleWithName("unknown_rule"));
+        assertEquals("unknown declaration", -1, getEngine().getFirstDeclarationPosition("unknown_rule"));
+        assertTrue("no override", getEngine().getGrammarsOverriddenByRule("compilationUnit").isEmpty());
+    }
+
+    public void testRuleAlternatives() throws Exception {
+        parseFile(TestConstants.LEFT_RECURSION);
+
+        ElementRule expr = getEngine().getRuleWithName("expr");
+        assertTrue("expr left recursion", expr.hasLeftRecursion());
+        assertEquals("expr alternatives", 3, expr.getAlternatives().size());
+        assertEquals("expr first alternative", Arrays.asList("expr", "'+'", "term"), getDeclsAsString(expr.getAlternatives().get(0)));
+        assertEquals("expr internal start", expr.getTokens().get(2).getStartIndex(), expr.getInternalTokensStartIndex());
+
+        ElementRule term = getEngine().getRuleWithName("term");
+        assertFalse("term left recursion", term.hasLeftRecursion());
+        // the empty last alternative is ignored
+        assertEquals("term alternatives", 1, term.getAlternatives().size());
+        assertEquals("term alternative size", 12, term.getAlternatives().get(0).size());
+
+        ElementRule atom = getEngine().getRuleWithName("atom");
+        assertFalse("atom left recursion", atom.hasLeftRecursion());
+        assertEquals("atom alternatives", 2, atom.getAlternatives().size());
+
+        try {
+            atom.getTokens().clear();
+            fail("tokens of a rule are read-only");
+        } catch(UnsupportedOperationException e) {
+            // expected
+        }
+
+        // The rules of a previous parse keep their own tokens
+        parseFile(TestConstants.BLOCKS);
+        assertEquals("atom first alternative", Arrays.asList("ID"), getDeclsAsString(atom.getAlternatives().get(0)));
+        assertEquals("atom internal end", atom.getTokens().get(atom.getTokens().size()-1).getEndIndex(), atom.getInternalTokensEndIndex());
+    }
+
     public void testCodeGenPhase() throws Exception {
         parseFile(TestConstants.CODE_GEN_PHASE);
         assertInspector(76);
@@ -0,0 +1,187 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.CommonToken;
+import org.antlr.works.debugger.events.DBEvent;
+import org.antlr.works.debugger.events.DBEventFactory;
+import org.antlr.works.debugger.tivo.DBPlayerCheckpoint;
+import org.antlr.works.debugger.tivo.DBPlayerCheckpoints;
+import org.antlr.works.debugger.tivo.DBPlayerContextInfo;
+import org.antlr.works.debugger.tivo.DBPlayerSnapshot;
+import org.antlr.works.debugger.tree.DBASTModel;
+import org.antlr.works.test.AbstractTest;
+
+import java.util.Stack;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestPlayerCheckpoints extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestPlayerCheckpoints.class));
+    }
+
+    public void testCheckpointLookup() throws Exception {
+        DBPlayerCheckpoints checkpoints = new DBPlayerCheckpoints();
+        checkpoints.setInterval(10);
+
+        assertFalse(checkpoints.shouldSave(5));
+        for(int position=10; position<=50; position+=10) {
+            assertTrue(checkpoints.shouldSave(position));
+            checkpoints.add(createCheckpoint(position, 1));
+        }
+        assertFalse("already saved", checkpoints.shouldSave(30));
+
+        assertNull(checkpoints.getCheckpoint(9));
+        assertEquals(10, checkpoints.getCheckpoint(10).position);
+        assertEquals(30, checkpoints.getCheckpoint(39).position);
+        assertEquals(50, checkpoints.getCheckpoint(1000).position);
+    }
+
+    public void testMemoryBudget() throws Exception {
+        DBPlayerCheckpoints checkpoints = new DBPlayerCheckpoints();
+        checkpoints.setInterval(10);
+        // room for 4 checkpoints of 10 elements
+        checkpoints.setMemoryBudget(4*10*DBPlayerCheckpoints.ELEMENT_SIZE);
+
+        for(int position=10; position<=50; position+=10) {
+            checkpoints.add(createCheckpoint(position, 10));
+        }
+
+        // every other checkpoint is dropped and the interval doubled
+        assertEquals(2, checkpoints.size());
+        assertEquals(20, checkpoints.get(0).position);
+        assertEquals(40, checkpoints.get(1).position);
+        assertEquals(20, checkpoints.getInterval());
+        assertFalse(checkpoints.shouldSave(50));
+        assertTrue(checkpoints.shouldSave(60));
+        assertTrue(checkpoints.getMemoryUsed() <= checkpoints.getMemoryBudget());
+
+        // a checkpoint larger than the budget is never kept
+        checkpoints.add(createCheckpoint(60, 100));
+        assertEquals(2, checkpoints.size());
+    }
+
+    public void testContextInfoCopy() throws Exception {
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        info.enterDecision(3);
+        info.mark(1);
+
+        Stack<Integer> markStack = new Stack<Integer>();
+        markStack.push(7);
+
+        DBPlayerCheckpoint checkpoint = new DBPlayerCheckpoint(1, info, markStack, 0, null);
+        info.exitDecision();
+        markStack.pop();
+
+        assertEquals(3, checkpoint.contextInfo.getDecision());
+        assertEquals(1, checkpoint.contextInfo.getMark());
+        assertEquals(Integer.valueOf(7), checkpoint.markStack.peek());
+    }
+
+    public void testContextInfoApply() throws Exception {
+        DBEvent[] events = new DBEvent[] {
+                DBEventFactory.createEnterDecision(1),
+                DBEventFactory.createMark(4),
+                DBEventFactory.createBeginBacktrack(1),
+                DBEventFactory.createEnterSubRule(2),
+                DBEventFactory.createRewind(),
+                DBEventFactory.createExitSubRule(2),
+                DBEventFactory.createEndBacktrack(1, true),
+                DBEventFactory.createRewind(4),
+                DBEventFactory.createExitDecision(1),
+                // unbalanced event is ignored
+                DBEventFactory.createExitSubRule(3)
+        };
+
+        DBPlayerContextInfo info = new DBPlayerContextInfo();
+        DBPlayerContextInfo checkpoint = null;
+        for(int i=0; i<events.length; i++) {
+            info.apply(events[i]);
+            if(i == 3)
+                checkpoint = info.copy();
+        }
+        assertEquals(0, info.size());
+
+        // replay from the context saved after the first 4 events
+        assertEquals(2, checkpoint.getSubrule());
+        checkpoint.apply(events[4]);
+        assertEquals("rewind to the last mark keeps the mark", 4, checkpoint.getMark());
+        checkpoint.apply(events[5]);
+        checkpoint.apply(events[6]);
+        assertEquals(-1, checkpoint.getSubrule());
+        assertFalse(checkpoint.isBacktracking());
+        checkpoint.apply(events[7]);
+        assertEquals(-1, checkpoint.getMark());
+        assertEquals(1, checkpoint.getDecision());
+    }
+
+    public void testASTModelState() throws Exception {
+        DBASTModel model = new DBASTModel(null);
+        model.pushRule("expr");
+        model.createNode(1, new CommonToken(1, "+"));
+        model.createNode(2, new CommonToken(2, "a"));
+        model.nilNode(3);
+        model.addChild(3, 2);
+        model.becomeRoot(1, 3);
+
+        DBPlayerSnapshot state = model.saveState();
+        assertEquals(3, state.getSize());
+
+        // keep playing after the checkpoint
+        model.createNode(4, new CommonToken(2, "b"));
+        model.addChild(1, 4);
+        model.pushRule("term");
+        assertEquals(2, model.getRuleCount());
+        assertEquals(2, model.getRuleAtIndex(0).getRootAtIndex(0).getChildCount());
+
+        model.restoreState(state);
+        assertEquals(1, model.getRuleCount());
+        assertEquals("+", model.getRuleAtIndex(0).getRootAtIndex(0).toString());
+        assertEquals(1, model.getRuleAtIndex(0).getRootAtIndex(0).getChildCount());
+
+        // the saved state has not been modified by the restored model
+        model.createNode(5, new CommonToken(2, "c"));
+        model.addChild(1, 5);
+        model.restoreState(state);
+        assertEquals(1, model.getRuleAtIndex(0).getRootAtIndex(0).getChildCount());
+    }
+
+    private DBPlayerCheckpoint createCheckpoint(int position, int size) {
+        Stack<Integer> markStack = new Stack<Integer>();
+        for(int i=0; i<size; i++) {
+            markStack.push(i);
+        }
+        return new DBPlayerCheckpoint(position, new DBPlayerContextInfo(), markStack, 0, null);
+    }
+
+}
@@ -0,0 +1,144 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.generic.ATESyntaxEngineDelegate;
+import org.antlr.works.ate.syntax.generic.ATESyntaxStyle;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.syntax.GrammarSyntaxEngine;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.AllocationMeter;
+import org.antlr.works.test.TestConstants;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestRenderingStyles extends AbstractTest {
+
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 12);
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestRenderingStyles.class));
+    }
+
+    public void testStyles() throws Exception {
+        GrammarSyntaxEngine engine = createEngine(getTextFromFile(TestConstants.MANTRA));
+        for(ATEToken token : engine.getTokens()) {
+            AttributeSet attribute = engine.getAttributeForToken(token);
+            ATESyntaxStyle style = engine.getStyleForToken(token);
+            if(attribute == null) {
+                assertSame(ATESyntaxStyle.DEFAULT, style);
+                continue;
+            }
+            Color color = StyleConstants.getForeground(attribute);
+            assertEquals(color == null?Color.black:color, style.getColor());
+            assertEquals(getFontForAttribute(attribute), style.getFont(FONT));
+            assertSame(style, engine.getStyleForToken(token));
+        }
+    }
+
+    /**
+     * Compares the memory allocated to apply the style of each token of the mantra grammar to a
+     * graphic context, as a paint does, when the font is derived from the attributes for each token
+     * (as it used to be) and when the resolved style is used.
+     */
+    public void testPaintAllocation() throws Exception {
+        AllocationMeter meter = AllocationMeter.create();
+        if(meter == null) return;
+
+        final GrammarSyntaxEngine engine = createEngine(getTextFromFile(TestConstants.MANTRA));
+        final Graphics g = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB).getGraphics();
+
+        long attributes = meter.measure(new Runnable() {
+            public void run() {
+                paint(engine, g, false);
+            }
+        });
+        long styles = meter.measure(new Runnable() {
+            public void run() {
+                paint(engine, g, true);
+            }
+        });
+        assertTrue("styles allocate "+styles+" bytes, attributes "+attributes+" bytes", styles < attributes);
+    }
+
+    private static void paint(GrammarSyntaxEngine engine, Graphics g, boolean styles) {
+        List<ATEToken> tokens = engine.getTokens();
+        for(int i=0; i<tokens.size(); i++) {
+            ATEToken token = tokens.get(i);
+            if(styles) {
+                engine.getStyleForToken(token).apply(g, FONT);
+            } else {
+                AttributeSet attribute = engine.getAttributeForToken(token);
+                if(attribute == null) {
+                    g.setColor(Color.black);
+                    g.setFont(FONT);
+                } else {
+                    g.setFont(getFontForAttribute(attribute));
+                    Color c = StyleConstants.getForeground(attribute);
+                    g.setColor(c == null?Color.black:c);
+                }
+            }
+        }
+    }
+
+    private static Font getFontForAttribute(AttributeSet attribute) {
+        Font f = FONT;
+        if(StyleConstants.isBold(attribute))
+            f = f.deriveFont(Font.BOLD);
+        if(StyleConstants.isItalic(attribute))
+            f = f.deriveFont(Font.ITALIC);
+        return f;
+    }
+
+    private static GrammarSyntaxEngine createEngine(final String text) {
+        GrammarSyntaxEngine engine = new GrammarSyntaxEngine();
+        engine.setDelegate(new ATESyntaxEngineDelegate() {
+            public String getText() {
+                return text;
+            }
+
+            public void ateEngineBeforeParsing() {
+            }
+
+            public void ateEngineAfterParsing() {
+            }
+        });
+        engine.refreshColoring();
+        engine.processSyntax();
+        return engine;
+    }
+}
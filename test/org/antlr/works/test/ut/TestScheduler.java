@@ -0,0 +1,146 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.misc.ATEScheduler;
+import org.antlr.works.test.AbstractTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestScheduler extends AbstractTest {
+
+    private ATEScheduler scheduler;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestScheduler.class));
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        scheduler = new ATEScheduler(2);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        scheduler.shutdown();
+        super.tearDown();
+    }
+
+    public void testCoalescing() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        Object key = new Object();
+        for(int i=0; i<50; i++) {
+            scheduler.schedule(key, new Runnable() {
+                public void run() {
+                    count.incrementAndGet();
+                    done.countDown();
+                }
+            }, 100);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, count.get());
+    }
+
+    public void testLastTaskWins() throws Exception {
+        final AtomicInteger value = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        Object key = new Object();
+        for(int i=1; i<=10; i++) {
+            final int v = i;
+            scheduler.schedule(key, new Runnable() {
+                public void run() {
+                    value.set(v);
+                    done.countDown();
+                }
+            }, 50);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(10, value.get());
+    }
+
+    public void testCancel() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Object key = new Object();
+        scheduler.schedule(key, new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+            }
+        }, 50);
+        scheduler.cancel(key);
+        Thread.sleep(200);
+        assertEquals(0, count.get());
+        assertFalse(scheduler.isScheduled(key));
+    }
+
+    public void testSupersededTaskIsCancelled() throws Exception {
+        final Object key = new Object();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch superseded = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        scheduler.schedule(key, new Runnable() {
+            public void run() {
+                maxConcurrent.set(Math.max(maxConcurrent.get(), concurrent.incrementAndGet()));
+                started.countDown();
+                long end = System.currentTimeMillis()+5000;
+                while(!scheduler.isCancelled(key) && System.currentTimeMillis() < end) {
+                    Thread.yield();
+                }
+                if(scheduler.isCancelled(key))
+                    superseded.countDown();
+                concurrent.decrementAndGet();
+            }
+        }, 0);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.schedule(key, new Runnable() {
+            public void run() {
+                maxConcurrent.set(Math.max(maxConcurrent.get(), concurrent.incrementAndGet()));
+                concurrent.decrementAndGet();
+                done.countDown();
+            }
+        }, 0);
+
+        assertTrue(superseded.await(5, TimeUnit.SECONDS));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxConcurrent.get());
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.ate.syntax.misc.ATEToken;
+import org.antlr.works.grammar.syntax.GrammarSyntaxLexer;
+import org.antlr.works.grammar.syntax.GrammarSyntaxParser;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.AllocationMeter;
+import org.antlr.works.test.TestConstants;
+
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestTokenAllocation extends AbstractTest {
+
+    private static final String[] GRAMMARS = {
+            TestConstants.MANTRA, TestConstants.CODE_GEN_PHASE, TestConstants.RESOLVE_PHASE, TestConstants.SEMANTIC_PHASE
+    };
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestTokenAllocation.class));
+    }
+
+    /**
+     * Compares the memory allocated to lex and parse the mantra grammars when the attribute of each token
+     * is created eagerly (as it used to be) with the memory allocated when it is created on demand.
+     */
+    public void testLazyAttributesAllocation() throws Exception {
+        AllocationMeter meter = AllocationMeter.create();
+        if(meter == null) return;
+
+        final String[] texts = new String[GRAMMARS.length];
+        for(int i=0; i<GRAMMARS.length; i++) {
+            texts[i] = getTextFromFile(GRAMMARS[i]);
+        }
+
+        long eager = meter.measure(new Runnable() {
+            public void run() {
+                parse(texts, true);
+            }
+        });
+        long lazy = meter.measure(new Runnable() {
+            public void run() {
+                parse(texts, false);
+            }
+        });
+        assertTrue("lazy attributes allocate "+lazy+" bytes, eager attributes "+eager+" bytes", lazy < eager);
+    }
+
+    private static void parse(String[] texts, boolean eager) {
+        for(String text : texts) {
+            GrammarSyntaxLexer lexer = new GrammarSyntaxLexer();
+            lexer.tokenize(text);
+            if(eager) {
+                for(ATEToken token : lexer.getTokens()) {
+                    token.getAttribute();
+                }
+            }
+            new GrammarSyntaxParser().parse(lexer.getTokens());
+        }
+    }
+
+}
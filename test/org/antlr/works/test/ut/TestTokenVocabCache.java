@@ -0,0 +1,99 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.works.grammar.engine.TokenVocabCache;
+import org.antlr.works.test.AbstractTest;
+import org.antlr.works.test.TestConstants;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestTokenVocabCache extends AbstractTest {
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestTokenVocabCache.class));
+    }
+
+    public void testReadTokenNames() throws Exception {
+        Set<String> names = TokenVocabCache.readTokenNames(new StringReader(
+                "ID=4\n'+'=5\r\n  INT = 6\nT__7=7\n'='=8\nWS\n9BAD=9\nLAST=10"));
+        assertEquals(new HashSet<String>(Arrays.asList("ID", "INT", "T__7", "WS", "LAST")), names);
+    }
+
+    public void testVocabFile() throws Exception {
+        TokenVocabCache cache = new TokenVocabCache(TokenVocabCache.DEFAULT_MAXIMUM_ENTRIES);
+        String path = getResourceFile(TestConstants.PREFIX+"mantra/Mantra.tokens");
+
+        Set<String> names = cache.getTokenNames(path);
+        // 144 lines of which 76 define literals
+        assertEquals(68, names.size());
+        assertTrue(names.contains("INDEX"));
+        assertSame("shared names", names, cache.getTokenNames(path));
+        try {
+            names.add("OTHER");
+            fail("names are immutable");
+        } catch(UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testModifiedFile() throws Exception {
+        TokenVocabCache cache = new TokenVocabCache(2);
+        File file = File.createTempFile("vocab", ".tokens");
+        try {
+            write(file, "A=4\n");
+            assertEquals(new HashSet<String>(Arrays.asList("A")), cache.getTokenNames(file.getPath()));
+
+            write(file, "A=4\nB=5\n");
+            assertEquals(new HashSet<String>(Arrays.asList("A", "B")), cache.getTokenNames(file.getPath()));
+
+            file.delete();
+            assertTrue(cache.getTokenNames(file.getPath()).isEmpty());
+            assertEquals(0, cache.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void write(File file, String text) throws Exception {
+        FileWriter writer = new FileWriter(file);
+        writer.write(text);
+        writer.close();
+    }
+
+}
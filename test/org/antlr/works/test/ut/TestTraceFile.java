@@ -0,0 +1,152 @@
+package org.antlr.works.test.ut;
+
+import junit.framework.TestSuite;
+import junit.textui.TestRunner;
+import org.antlr.runtime.MismatchedTokenException;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.Token;
+import org.antlr.runtime.debug.RemoteDebugEventSocketListener;
+import org.antlr.works.debugger.events.*;
+import org.antlr.works.debugger.tivo.DBEventLog;
+import org.antlr.works.debugger.tivo.DBTraceReader;
+import org.antlr.works.debugger.tree.DBTreeToken;
+import org.antlr.works.test.AbstractTest;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+/*
+
+[The "BSD licence"]
+Copyright (c) 2005-2006 Jean Bovet
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+1. Redistributions of source code must retain the above copyright
+notice, this list of conditions and the following disclaimer.
+2. Redistributions in binary form must reproduce the above copyright
+notice, this list of conditions and the following disclaimer in the
+documentation and/or other materials provided with the distribution.
+3. The name of the author may not be used to endorse or promote products
+derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+
+*/
+
+public class TestTraceFile extends AbstractTest {
+
+    private DBEventLog log;
+    private File file;
+
+    public static void main(String[] args) {
+        new TestRunner().doRun(new TestSuite(TestTraceFile.class));
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        log = new DBEventLog();
+        file = File.createTempFile("antlrworks-test", ".awtrace");
+    }
+
+    protected void tearDown() throws Exception {
+        log.close();
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testWriteTrace() throws Exception {
+        addEvents(DBEventLog.RECORDS_PER_CHUNK+100);
+        log.writeTrace(file);
+        assertTrace();
+    }
+
+    public void testStreamTrace() throws Exception {
+        addEvents(DBEventLog.RECORDS_PER_CHUNK+100);
+        log.startTrace(file);
+        addEvents(DBEventLog.RECORDS_PER_CHUNK);
+        log.closeTrace();
+        assertTrace();
+    }
+
+    public void testInvalidFile() throws Exception {
+        FileWriter writer = new FileWriter(file);
+        writer.write("not a trace file");
+        writer.close();
+        try {
+            new DBTraceReader(file);
+            fail("invalid trace file");
+        } catch(IOException e) {
+            // expected
+        }
+    }
+
+    private void assertTrace() throws Exception {
+        DBTraceReader trace = new DBTraceReader(file);
+        try {
+            assertEquals(log.size(), trace.size());
+            assertEquals(log.getTokenCount(), trace.getTokenCount());
+            // backward to read the chunks out of order
+            for(int i=log.size()-1; i>=0; i--) {
+                DBEvent expected = log.get(i);
+                DBEvent event = trace.get(i);
+                assertEquals("event "+i, expected.toString(), event.toString());
+                assertEquals("grammar of event "+i, expected.getGrammarName(), event.getGrammarName());
+            }
+
+            DBEventRecognitionException e = (DBEventRecognitionException)trace.get(3);
+            assertEquals(MismatchedTokenException.class, e.e.getClass());
+            assertEquals(7, e.e.line);
+            assertEquals(2, e.e.charPositionInLine);
+
+            DBTreeToken node = (DBTreeToken)((DBEventLT)trace.get(4)).token;
+            assertEquals(9, node.ID);
+            assertEquals("node", node.getText());
+
+            try {
+                trace.add(DBEventFactory.createTerminate());
+                fail("read-only trace");
+            } catch(UnsupportedOperationException ex) {
+                // expected
+            }
+        } finally {
+            trace.close();
+        }
+    }
+
+    private void addEvents(int count) {
+        RecognitionException exception = new MismatchedTokenException();
+        exception.line = 7;
+        exception.charPositionInLine = 2;
+
+        DBEvent enterRule = DBEventFactory.createEnterRule("/tmp/Expr.g", "expr");
+        enterRule.setGrammarName("Expr");
+        log.add(enterRule);
+        log.add(DBEventFactory.createLT(1, createToken(0, "foo")));
+        log.add(DBEventFactory.createConsumeToken(createToken(0, "foo")));
+        log.add(DBEventFactory.createRecognitionException(exception));
+        log.add(DBEventFactory.createLT(1, new DBTreeToken(
+                new RemoteDebugEventSocketListener.ProxyTree(9, 4, 1, 0, -1, "node"))));
+        log.add(DBEventFactory.createCreateNode(5, "IMAGINARY", 9));
+        for(int i=6; i<count; i++) {
+            log.add(DBEventFactory.createConsumeToken(createToken(i, "t"+(i % 100))));
+        }
+    }
+
+    private Token createToken(int index, String text) {
+        return new RemoteDebugEventSocketListener.ProxyToken(index, 4, Token.DEFAULT_CHANNEL, 1, index % 80, text);
+    }
+
+}